@@ -0,0 +1,231 @@
+package gameoflife;
+
+import gameoflife.engine.DenseEngine;
+import gameoflife.engine.LifeEngine;
+import gameoflife.engine.LifeEngines;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Runs many independent boards at once, such as every seed and rule of a parameter sweep,
+ * each on its own engine without the history and ages a {@link GameOfLife} keeps.
+ * <p>
+ * Every job runs on one thread of the executor, so boards are never split into stripes,
+ * and as many boards are stepped at once as the executor has threads. Engines are given back to a pool
+ * when their job is done, and the next job with the same settings reuses the engine and its buffers.
+ */
+public class BatchRunner implements AutoCloseable {
+
+    /**
+     * Watches the generations of a job as it runs, such as to collect its population curve.
+     * Observers of a job are called on the thread that runs it, one generation after another.
+     */
+    @FunctionalInterface
+    public interface Observer {
+        /**
+         * @param generation The generation the board is at, from 0 for the starting pattern.
+         * @param engine The engine holding the board, which must not be changed or kept after returning.
+         */
+        void generation(long generation, LifeEngine engine);
+    }
+
+    /**
+     * A board to run.
+     * @param settings The settings of the board, which pick its size, rules and engine.
+     * @param cells The index (x + y * width) of every live cell of the starting pattern.
+     * @param generations The number of generations to run for.
+     * @param observers The observers called with the starting pattern and every generation after it.
+     */
+    public record Job(GameOfLife.Settings settings, int[] cells, long generations, List<Observer> observers) {
+
+        public Job {
+            if (generations < 0)
+                throw new IllegalArgumentException("A job cannot run for a negative number of generations");
+            observers = List.copyOf(observers);
+        }
+
+        public Job(GameOfLife.Settings settings, int[] cells, long generations) {
+            this(settings, cells, generations, List.of());
+        }
+
+    }
+
+    /**
+     * What became of a job.
+     * @param job The job.
+     * @param population The number of live cells after the last generation, or -1 if the job failed.
+     * @param error What the job failed with, such as an observer throwing, or null if it ran to the end.
+     */
+    public record Result(Job job, int population, Throwable error) {}
+
+    private final ExecutorService executor;
+    /**
+     * true if the runner made the executor, and so shuts it down when it is closed.
+     */
+    private final boolean ownsExecutor;
+
+    /**
+     * The engines of finished jobs, by their settings, waiting to be reused.
+     */
+    private final ConcurrentHashMap<GameOfLife.Settings, BlockingDeque<LifeEngine>> pool = new ConcurrentHashMap<>();
+    /**
+     * The most engines kept for any one settings.
+     */
+    private final int poolSize;
+    private final AtomicInteger enginesCreated = new AtomicInteger();
+
+    /**
+     * Run jobs on an executor that belongs to someone else, which is not shut down when the runner is closed.
+     * @param executor The executor to run jobs on.
+     * @param poolSize The most engines to keep for reuse for any one settings, usually the number of threads.
+     */
+    public BatchRunner(ExecutorService executor, int poolSize) {
+        this(executor, poolSize, false);
+    }
+
+    private BatchRunner(ExecutorService executor, int poolSize, boolean ownsExecutor) {
+        this.executor = executor;
+        this.poolSize = poolSize;
+        this.ownsExecutor = ownsExecutor;
+    }
+
+    /**
+     * @param threads The number of jobs to run at once.
+     * @return A runner with a pool of its own threads.
+     */
+    public static BatchRunner fixed(int threads) {
+        return new BatchRunner(Executors.newFixedThreadPool(threads), threads, true);
+    }
+
+    /**
+     * Run every job on a virtual thread of its own, where the Java version has them,
+     * otherwise on a thread pool with a thread for every core.
+     * @return A runner with an executor of its own.
+     */
+    public static BatchRunner virtualThreads() {
+        int cores = Runtime.getRuntime().availableProcessors();
+        try {
+            // looked up by name, since virtual threads are newer than the Java version the game is built for
+            ExecutorService executor = (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            return new BatchRunner(executor, cores, true);
+        } catch (ReflectiveOperationException e) {
+            return fixed(cores);
+        }
+    }
+
+    /**
+     * Run jobs, handing back the result of every job as soon as it is done.
+     * Results are handed back on the calling thread, so the consumer does not have to be thread safe.
+     * @param jobs The jobs to run.
+     * @param results Receives the result of every job, in the order they finish.
+     * @throws InterruptedException The calling thread was interrupted while waiting, and the jobs left were cancelled.
+     */
+    public void run(Collection<Job> jobs, Consumer<Result> results) throws InterruptedException {
+        CompletionService<Result> completion = new ExecutorCompletionService<>(this.executor);
+        List<Future<Result>> futures = new ArrayList<>(jobs.size());
+        try {
+            for (Job job : jobs)
+                futures.add(completion.submit(() -> runJob(job)));
+            for (int i = 0; i < futures.size(); i++) {
+                try {
+                    results.accept(completion.take().get());
+                } catch (ExecutionException e) {
+                    // runJob catches what jobs throw, so this is only reached if the executor fails
+                    throw new IllegalStateException(e.getCause());
+                }
+            }
+        } finally {
+            for (Future<Result> future : futures)
+                future.cancel(true);
+        }
+    }
+
+    /**
+     * Run jobs and wait for all of them.
+     * @param jobs The jobs to run.
+     * @return The result of every job, in the order they finished.
+     * @throws InterruptedException The calling thread was interrupted while waiting, and the jobs left were cancelled.
+     */
+    public List<Result> runAll(Collection<Job> jobs) throws InterruptedException {
+        List<Result> results = new ArrayList<>(jobs.size());
+        run(jobs, results::add);
+        return results;
+    }
+
+    private Result runJob(Job job) {
+        LifeEngine engine = null;
+        try {
+            // an engine that cannot be made for the settings fails this job like anything else it throws
+            engine = take(job.settings);
+            for (int index : job.cells)
+                engine.set(index, true);
+            if (job.observers.isEmpty()) {
+                // with no one watching, engines that can skip generations get to
+                engine.stepN(job.generations);
+            } else {
+                for (Observer observer : job.observers)
+                    observer.generation(0, engine);
+                for (long generation = 1; generation <= job.generations; generation++) {
+                    if (Thread.interrupted())
+                        throw new InterruptedException();
+                    engine.step();
+                    for (Observer observer : job.observers)
+                        observer.generation(generation, engine);
+                }
+            }
+            return new Result(job, engine.population(), null);
+        } catch (Exception e) {
+            return new Result(job, -1, e);
+        } finally {
+            if (engine != null)
+                give(job.settings, engine);
+        }
+    }
+
+    /**
+     * @return An empty engine for the settings, from the pool if there is one there.
+     */
+    private LifeEngine take(GameOfLife.Settings settings) {
+        BlockingDeque<LifeEngine> engines = this.pool.get(settings);
+        LifeEngine engine = engines == null ? null : engines.pollFirst();
+        if (engine != null)
+            return engine;
+        this.enginesCreated.incrementAndGet();
+        engine = LifeEngines.create(settings);
+        // the executor's threads are already busy with other boards
+        if (engine instanceof DenseEngine dense)
+            dense.setParallelism(1, 0);
+        return engine;
+    }
+
+    /**
+     * Clear an engine and keep it for the next job with the same settings, if the pool has room for it.
+     */
+    private void give(GameOfLife.Settings settings, LifeEngine engine) {
+        engine.clear();
+        this.pool.computeIfAbsent(settings, s -> new LinkedBlockingDeque<>(this.poolSize)).offerFirst(engine);
+    }
+
+    /**
+     * @return The number of engines made so far, which stays low while engines are being reused.
+     */
+    public int enginesCreated() {
+        return this.enginesCreated.get();
+    }
+
+    /**
+     * Shut the executor down if the runner made it, and drop the pooled engines.
+     */
+    @Override
+    public void close() {
+        if (this.ownsExecutor)
+            this.executor.shutdownNow();
+        this.pool.clear();
+    }
+
+}
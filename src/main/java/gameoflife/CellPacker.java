@@ -0,0 +1,144 @@
+package gameoflife;
+
+import gameoflife.engine.AgePlane;
+import gameoflife.engine.LifeEngine;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Arrays;
+
+/**
+ * Packs the live cells of a bounded board, and their ages, into a few bytes.
+ * The live cells, in order, become the lengths of the runs of dead and live cells between them,
+ * and their ages become the lengths of the runs of equal ages, each in a variable number of bytes.
+ * A board takes a few bytes for every run of live cells, rather than a bit or a byte for every cell.
+ */
+class CellPacker {
+
+    /**
+     * The live cells of the board being packed, and the bytes they are packed into, kept to be reused.
+     */
+    private int[] cells = new int[256];
+    private byte[] buffer = new byte[256];
+    private int length;
+
+    /**
+     * Pack the live cells as the runs of dead and live cells between them, followed by the runs of equal ages if there are ages.
+     */
+    byte[] pack(LifeEngine engine, AgePlane ages) {
+        int[] count = { 0 };
+        engine.forEachLiveCell(index -> {
+            if (count[0] == this.cells.length)
+                this.cells = Arrays.copyOf(this.cells, count[0] * 2);
+            this.cells[count[0]++] = index;
+        });
+        int[] cells = this.cells;
+        int population = count[0];
+        // engines that go through the board in order hand the cells over sorted already
+        for (int i = 1; i < population; i++) {
+            if (cells[i - 1] > cells[i]) {
+                Arrays.sort(cells, 0, population);
+                break;
+            }
+        }
+
+        this.length = 0;
+        writeVarint(population);
+        writeVarint(ages != null ? 1 : 0);
+        int end = 0;
+        for (int i = 0; i < population; ) {
+            int start = i;
+            while (i + 1 < population && cells[i + 1] == cells[i] + 1)
+                i++;
+            i++;
+            writeVarint(cells[start] - end);
+            writeVarint(i - start);
+            end = cells[i - 1] + 1;
+        }
+        if (ages != null) {
+            for (int i = 0; i < population; ) {
+                int start = i, age = ages.age(cells[i]);
+                while (i < population && ages.age(cells[i]) == age)
+                    i++;
+                writeVarint(age);
+                writeVarint(i - start);
+            }
+        }
+        return Arrays.copyOf(this.buffer, this.length);
+    }
+
+    /**
+     * Set the cells and ages to packed ones that this game packed itself.
+     * @param engine The engine to set the cells of, or null to only set the ages.
+     * @param ages The ages to set, or null if ages are not being kept.
+     */
+    void unpack(byte[] packed, LifeEngine engine, AgePlane ages) {
+        try {
+            unpack(packed, Integer.MAX_VALUE, engine, ages);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Set the cells and ages to packed ones read from a file, which may have been cut short or changed,
+     * so every cell is checked to be on the board and every age to be one a cell can have.
+     * @param area The number of cells on the board (width * height).
+     * @param engine The engine to set the cells of, or null to only set the ages.
+     * @param ages The ages to set, or null if ages are not being kept.
+     * @throws IOException The packed cells or ages are not ones a board of the area can have.
+     */
+    void unpack(byte[] packed, int area, LifeEngine engine, AgePlane ages) throws IOException {
+        try {
+            int[] position = { 0 };
+            int population = Varints.read(packed, position);
+            boolean withAges = Varints.read(packed, position) == 1;
+            if (population < 0 || population > area)
+                throw new IOException("Could not decode board!");
+            if (this.cells.length < population)
+                this.cells = new int[population];
+            int[] cells = this.cells;
+
+            if (engine != null)
+                engine.clear();
+            long index = 0;
+            for (int i = 0; i < population; ) {
+                index += Integer.toUnsignedLong(Varints.read(packed, position));
+                int run = Varints.read(packed, position);
+                if (run <= 0 || run > population - i || index + run > area)
+                    throw new IOException("Could not decode board!");
+                for (; run > 0; run--) {
+                    if (engine != null)
+                        engine.set((int) index, true);
+                    cells[i++] = (int) index++;
+                }
+            }
+            if (ages == null)
+                return;
+            ages.clear();
+            if (!withAges) {
+                for (int i = 0; i < population; i++)
+                    ages.setAge(cells[i], 0);
+                return;
+            }
+            for (int i = 0; i < population; ) {
+                int age = Varints.read(packed, position);
+                int run = Varints.read(packed, position);
+                if (age < 0 || age > AgePlane.MAX_AGE || run <= 0 || run > population - i)
+                    throw new IOException("Could not decode cell ages!");
+                for (; run > 0; run--)
+                    ages.setAge(cells[i++], age);
+            }
+        } catch (IndexOutOfBoundsException e) {
+            // the packed bytes end in the middle of a number
+            throw new IOException("Could not decode board!");
+        }
+    }
+
+    private void writeVarint(int value) {
+        if (this.length + Varints.MAX_INT_BYTES > this.buffer.length)
+            this.buffer = Arrays.copyOf(this.buffer, this.buffer.length * 2);
+        this.length = Varints.write(this.buffer, this.length, value);
+    }
+
+}
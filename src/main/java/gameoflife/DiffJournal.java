@@ -0,0 +1,291 @@
+package gameoflife;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+
+/**
+ * The cells that were born or died in each of the last generations stepped forward, so stepping back
+ * can undo a generation in time that depends on how many cells changed, rather than replaying to it.
+ * <p>
+ * Every generation is written into a ring of bytes, with the changed cells sorted and stored as the differences
+ * between their indices in a variable number of bytes, which is a byte or two each for cells close together.
+ * When ages are kept, the age every changed cell had before the generation is stored too, since cells that died
+ * cannot be given their ages back otherwise, along with the cells that reached {@link gameoflife.engine.AgePlane#MAX_AGE}
+ * in the generation, since the age of a cell at the most cannot be counted back otherwise.
+ * When the ring is full, the oldest generations are forgotten.
+ */
+class DiffJournal {
+
+    /**
+     * The system property that sets the size of the ring, in megabytes.
+     */
+    static final String BUDGET_PROPERTY = "gameoflife.journal.budget";
+
+    /**
+     * A generation in the ring.
+     * @param step The step the generation was stepped forward from, and the one undoing it goes back to.
+     * @param start Where the generation starts, counting every byte ever written to the ring.
+     * @param length The number of bytes of the generation.
+     */
+    private record Entry(long step, long start, int length) {}
+
+    private final int bytes;
+    /**
+     * Made when the first generation is written, so games that are never stepped do not pay for it.
+     */
+    private byte[] ring;
+    private final ArrayDeque<Entry> entries = new ArrayDeque<>();
+    /**
+     * The number of bytes ever written to the ring, so the next byte goes at written % ring.length.
+     */
+    private long written;
+
+    /**
+     * The generation being recorded or undone: the changed cells, the ages they had before it (plus one, or 0 if they were dead),
+     * and the cells that reached the oldest age in it.
+     */
+    private int[] cells = new int[64], saturated = new int[16];
+    private byte[] ages = new byte[64];
+    private int cellCount, saturatedCount;
+    private boolean withAges;
+    /**
+     * The generation encoded, before it is copied into the ring.
+     */
+    private byte[] encoded = new byte[256];
+    private int encodedLength;
+
+    /**
+     * @param bytes The size of the ring.
+     */
+    DiffJournal(int bytes) {
+        this.bytes = bytes;
+    }
+
+    /**
+     * @return The size of the ring set by the system property, 32 megabytes by default.
+     */
+    static int defaultBudget() {
+        return Integer.getInteger(BUDGET_PROPERTY, 32) << 20;
+    }
+
+    /**
+     * Start recording a generation.
+     * @param withAges true if the ages of the cells are recorded too.
+     */
+    void begin(boolean withAges) {
+        this.cellCount = 0;
+        this.saturatedCount = 0;
+        this.withAges = withAges;
+    }
+
+    /**
+     * Record a cell that was born or died in the generation being recorded.
+     * @param age The age of the cell before the generation, or -1 if it was dead or ages are not recorded.
+     */
+    void changed(int index, int age) {
+        if (this.cellCount == this.cells.length) {
+            this.cells = Arrays.copyOf(this.cells, this.cellCount * 2);
+            this.ages = Arrays.copyOf(this.ages, this.cellCount * 2);
+        }
+        this.cells[this.cellCount] = index;
+        this.ages[this.cellCount++] = (byte) (age + 1);
+    }
+
+    /**
+     * Record a cell that reached the oldest age in the generation being recorded.
+     */
+    void saturated(int index) {
+        if (this.saturatedCount == this.saturated.length)
+            this.saturated = Arrays.copyOf(this.saturated, this.saturatedCount * 2);
+        this.saturated[this.saturatedCount++] = index;
+    }
+
+    /**
+     * Write the generation being recorded into the ring, forgetting the oldest generations to make room.
+     * @param step The step the generation was stepped forward from.
+     */
+    void commit(long step) {
+        if (!this.entries.isEmpty() && this.entries.peekLast().step != step - 1)
+            // the generations have to follow on from each other to be undone one after another
+            this.entries.clear();
+        encode();
+        if (this.ring == null)
+            this.ring = new byte[this.bytes];
+        if (this.encodedLength > this.ring.length) {
+            this.entries.clear();
+            return;
+        }
+        while (!this.entries.isEmpty() && this.written + this.encodedLength - this.entries.peekFirst().start > this.ring.length)
+            this.entries.removeFirst();
+        int at = (int) (this.written % this.ring.length);
+        int first = Math.min(this.encodedLength, this.ring.length - at);
+        System.arraycopy(this.encoded, 0, this.ring, at, first);
+        System.arraycopy(this.encoded, first, this.ring, 0, this.encodedLength - first);
+        this.entries.addLast(new Entry(step, this.written, this.encodedLength));
+        this.written += this.encodedLength;
+    }
+
+    /**
+     * @param step The current step.
+     * @return true if the generation that led to the current step can be undone.
+     */
+    boolean canUndo(long step) {
+        return !this.entries.isEmpty() && this.entries.peekLast().step == step - 1;
+    }
+
+    /**
+     * Take the last generation out of the ring, after which its cells can be read with {@link #cellCount()} and the rest.
+     */
+    void undo() {
+        Entry entry = this.entries.removeLast();
+        this.written = entry.start;
+        this.encodedLength = 0;
+        if (this.encoded.length < entry.length)
+            this.encoded = new byte[entry.length];
+        int at = (int) (entry.start % this.ring.length);
+        int first = Math.min(entry.length, this.ring.length - at);
+        System.arraycopy(this.ring, at, this.encoded, 0, first);
+        System.arraycopy(this.ring, 0, this.encoded, first, entry.length - first);
+        decode();
+    }
+
+    int cellCount() {
+        return this.cellCount;
+    }
+
+    int cell(int i) {
+        return this.cells[i];
+    }
+
+    /**
+     * @return The age the cell had before the generation, or -1 if it was dead or ages were not recorded.
+     */
+    int age(int i) {
+        return this.ages[i] - 1;
+    }
+
+    boolean hasAges() {
+        return this.withAges;
+    }
+
+    int saturatedCount() {
+        return this.saturatedCount;
+    }
+
+    int saturatedCell(int i) {
+        return this.saturated[i];
+    }
+
+    /**
+     * Forget every generation, such as when the board changes other than by stepping forward.
+     */
+    void clear() {
+        this.entries.clear();
+    }
+
+    /**
+     * @return The number of generations that can be undone.
+     */
+    int size() {
+        return this.entries.size();
+    }
+
+    private void encode() {
+        this.encodedLength = 0;
+        // engines that go through the board in order hand the cells over sorted already.
+        // Otherwise the ages have to stay with their cells while they are sorted
+        if (!isSorted(this.cells, this.cellCount) && this.withAges) {
+            long[] pairs = new long[this.cellCount];
+            for (int i = 0; i < this.cellCount; i++)
+                pairs[i] = (long) this.cells[i] << 8 | (this.ages[i] & 0xFF);
+            Arrays.sort(pairs);
+            for (int i = 0; i < this.cellCount; i++) {
+                this.cells[i] = (int) (pairs[i] >>> 8);
+                this.ages[i] = (byte) pairs[i];
+            }
+        } else if (!isSorted(this.cells, this.cellCount)) {
+            Arrays.sort(this.cells, 0, this.cellCount);
+        }
+        if (!isSorted(this.saturated, this.saturatedCount))
+            Arrays.sort(this.saturated, 0, this.saturatedCount);
+
+        writeVarint(this.withAges ? 1 : 0);
+        writeIndices(this.cells, this.cellCount);
+        if (this.withAges) {
+            ensureEncoded(this.cellCount);
+            System.arraycopy(this.ages, 0, this.encoded, this.encodedLength, this.cellCount);
+            this.encodedLength += this.cellCount;
+            writeIndices(this.saturated, this.saturatedCount);
+        }
+    }
+
+    private void decode() {
+        int[] position = { 0 };
+        this.withAges = readVarint(position) == 1;
+        this.cellCount = readIndices(position, false);
+        if (this.withAges) {
+            if (this.ages.length < this.cellCount)
+                this.ages = new byte[this.cells.length];
+            System.arraycopy(this.encoded, position[0], this.ages, 0, this.cellCount);
+            position[0] += this.cellCount;
+            this.saturatedCount = readIndices(position, true);
+        } else {
+            this.saturatedCount = 0;
+        }
+    }
+
+    private static boolean isSorted(int[] indices, int count) {
+        for (int i = 1; i < count; i++)
+            if (indices[i - 1] > indices[i])
+                return false;
+        return true;
+    }
+
+    private void writeIndices(int[] indices, int count) {
+        writeVarint(count);
+        // room for every index is made once, rather than for each of them
+        ensureEncoded(Varints.MAX_INT_BYTES * count);
+        byte[] encoded = this.encoded;
+        int length = this.encodedLength, previous = 0;
+        for (int i = 0; i < count; i++) {
+            length = Varints.write(encoded, length, indices[i] - previous);
+            previous = indices[i];
+        }
+        this.encodedLength = length;
+    }
+
+    /**
+     * Read indices into the cells, or into the saturated cells.
+     * @return The number of indices.
+     */
+    private int readIndices(int[] position, boolean saturated) {
+        int count = readVarint(position);
+        int[] indices = saturated ? this.saturated : this.cells;
+        if (indices.length < count) {
+            indices = new int[count];
+            if (saturated)
+                this.saturated = indices;
+            else
+                this.cells = indices;
+        }
+        int previous = 0;
+        for (int i = 0; i < count; i++)
+            indices[i] = previous += readVarint(position);
+        return count;
+    }
+
+    private void writeVarint(int value) {
+        ensureEncoded(Varints.MAX_INT_BYTES);
+        this.encodedLength = Varints.write(this.encoded, this.encodedLength, value);
+    }
+
+    private int readVarint(int[] position) {
+        return Varints.read(this.encoded, position);
+    }
+
+    private void ensureEncoded(int more) {
+        if (this.encodedLength + more > this.encoded.length)
+            this.encoded = Arrays.copyOf(this.encoded, Math.max(this.encoded.length * 2, this.encodedLength + more));
+    }
+
+}
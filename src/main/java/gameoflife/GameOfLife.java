@@ -1,14 +1,22 @@
 package gameoflife;
 
+import gameoflife.engine.AgePlane;
+import gameoflife.engine.IntIntConsumer;
+import gameoflife.engine.LargerThanLifeRule;
+import gameoflife.engine.LifeEngine;
+import gameoflife.engine.LifeEngines;
+import gameoflife.engine.LongLongConsumer;
+import gameoflife.engine.PlaneEngine;
+import gameoflife.engine.Rule;
+
 import java.io.*;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.*;
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.Collectors;
-import java.util.stream.IntStream;
-import java.util.stream.Stream;
+import java.util.function.IntConsumer;
+import java.util.stream.LongStream;
 import java.util.zip.GZIPInputStream;
-import java.util.zip.GZIPOutputStream;
 
 public class GameOfLife {
 
@@ -19,24 +27,118 @@ public class GameOfLife {
      * @param neededNeighbors
      * @param width The width of the board.
      * @param height
+     * @param engine The name of the engine the game runs on, or null to pick it from the system property.
+     * @param rulestring The rules as a B/S rulestring, such as B36/S23, a Larger than Life rulestring,
+     *                   such as R5,C0,M1,S34..58,B34..45,NM, or null to use the numbers of neighbors.
      */
-    public record Settings(int minNeighbors, int maxNeighbors, int neededNeighbors, int width, int height, boolean toroidal) implements Serializable {}
+    public record Settings(int minNeighbors, int maxNeighbors, int neededNeighbors, int width, int height, boolean toroidal, String engine, String rulestring) implements Serializable {
+
+        public Settings {
+            if (rulestring != null) {
+                if (LargerThanLifeRule.isLargerThanLife(rulestring))
+                    LargerThanLifeRule.parse(rulestring);
+                else
+                    Rule.parse(rulestring);
+            } else {
+                Rule.of(minNeighbors, maxNeighbors, neededNeighbors);
+            }
+        }
+
+        public Settings(int minNeighbors, int maxNeighbors, int neededNeighbors, int width, int height, boolean toroidal) {
+            this(minNeighbors, maxNeighbors, neededNeighbors, width, height, toroidal, null);
+        }
+
+        public Settings(int minNeighbors, int maxNeighbors, int neededNeighbors, int width, int height, boolean toroidal, String engine) {
+            this(minNeighbors, maxNeighbors, neededNeighbors, width, height, toroidal, engine, null);
+        }
+
+        /**
+         * @return The rules of the game, from the rulestring if there is one, otherwise from the numbers of neighbors.
+         */
+        public Rule rule() {
+            return this.rulestring != null ? Rule.parse(this.rulestring) : Rule.of(this.minNeighbors, this.maxNeighbors, this.neededNeighbors);
+        }
+
+        /**
+         * @return true if the rulestring is a Larger than Life rule, which only the Larger than Life engine runs.
+         */
+        public boolean isLargerThanLife() {
+            return this.rulestring != null && LargerThanLifeRule.isLargerThanLife(this.rulestring);
+        }
+
+        /**
+         * @return The Larger than Life rules of the game.
+         * @throws IllegalArgumentException The rulestring is not a Larger than Life rule.
+         */
+        public LargerThanLifeRule largerThanLifeRule() {
+            if (!isLargerThanLife())
+                throw new IllegalArgumentException("Not a Larger than Life rule: " + rule());
+            return LargerThanLifeRule.parse(this.rulestring);
+        }
+
+        /**
+         * @return The rules of the game written out, whichever kind they are.
+         */
+        public String describeRule() {
+            return isLargerThanLife() ? largerThanLifeRule().toString() : rule().toString();
+        }
+
+    }
 
     private final Settings settings;
     private long step;
 
-    private HashMap<Integer, Integer> cells = new HashMap<>();
+    private LifeEngine engine;
+    /**
+     * The ages of the cells, which are only kept while something asks for them, such as the board drawing them.
+     */
+    private AgePlane ages;
 
-    private record Toggle(int index, boolean state) implements Serializable {}
+    /**
+     * A cell the user toggled.
+     * @param index The index of the cell on the board, or -1 if the game is on an unbounded plane.
+     * @param x The x position of the cell, which is only used on an unbounded plane.
+     * @param y The y position of the cell, which is only used on an unbounded plane.
+     */
+    private record Toggle(int index, boolean state, long x, long y) implements Serializable {}
 
     private HashMap<Long, List<Toggle>> history = new HashMap<>();
 
+    /**
+     * The number of recent generations whose fingerprints are kept, which is the longest period that can be found.
+     */
+    private static final int CYCLE_WINDOW = 256;
+    /**
+     * The fingerprints of the generations stepped through one after another since the last toggle,
+     * mapped to their steps, dropping the oldest past {@link #CYCLE_WINDOW}.
+     */
+    private final LinkedHashMap<Long, Long> fingerprints = new LinkedHashMap<>() {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, Long> eldest) {
+            return size() > CYCLE_WINDOW;
+        }
+    };
+    /**
+     * The first step of the cycle the board settled into, and the number of steps it takes to repeat itself,
+     * or 0 if the board is not known to repeat.
+     */
+    private long cycleStart, period;
+    /**
+     * A generation whose fingerprint matched an earlier one, with the number of steps since that one,
+     * and its board packed by {@link #cyclePacker}, or null if there is none. Fingerprints can match by chance,
+     * so the cycle is only taken once the board comes round again and is the same board.
+     */
+    private long candidateStep, candidatePeriod;
+    private byte[] candidateBoard;
+    private final CellPacker cyclePacker = new CellPacker();
+
     /**
      * Create a new instance of Conway's Game of Life.
      * @param settings The settings of the gam.
      */
     public GameOfLife(Settings settings) {
         this.settings = settings;
+        this.engine = LifeEngines.create(settings);
     }
 
     /**
@@ -63,160 +165,486 @@ public class GameOfLife {
         if(x >= width() || y >= height())
             return;
 
+        if (this.engine instanceof PlaneEngine) {
+            toggleCell((long) x, y);
+            return;
+        }
+
         int index = x + y * this.settings.width;
-        if(this.cells.containsKey(index))
-            this.cells.remove(index);
-        else this.cells.put(index, 0);
+        boolean alive = this.engine.toggle(index);
+        if (this.ages != null)
+            this.ages.setAge(index, alive ? 0 : -1);
+
+        addToggle(new Toggle(index, alive, x, y));
+    }
 
+    /**
+     * Toggle a cell anywhere on the plane of an unbounded game.
+     * On other games, cells outside the board are ignored.
+     * @param x The x position of the cell.
+     * @param y The y position of the cell.
+     */
+    public void toggleCell(long x, long y) {
+        if (!(this.engine instanceof PlaneEngine plane)) {
+            if (x >= 0 && y >= 0 && x < width() && y < height())
+                toggleCell((int) x, (int) y);
+            return;
+        }
+        addToggle(new Toggle(-1, plane.toggle(x, y), x, y));
+    }
+
+    private void addToggle(Toggle toggle) {
+        this.revision++;
+        resetCycle();
+        // what was kept of the steps after this one no longer follows from it,
+        // and neither do the toggles made there before going back
+        this.history.keySet().removeIf(s -> s > this.step);
+        this.keyframes.invalidateAfter(this.step);
+        if (this.savedKeyframes != null)
+            this.savedKeyframes.invalidateAfter(this.step);
+        this.stepCache.invalidateFrom(this.step);
+        // the generations in the journal lead to the board as it was before the toggle
+        this.journal.clear();
+        if (this.log != null)
+            this.log.truncate(this.step);
         if (!this.history.containsKey(this.step)) {
             this.history.put(this.step, new ArrayList<>());
         }
-        this.history.get(this.step).add(new Toggle(index, this.cells.containsKey(index)));
+        this.history.get(this.step).add(toggle);
+    }
+
+    /**
+     * Set a cell the way the user toggled it.
+     */
+    private void apply(Toggle toggle) {
+        if (this.engine instanceof PlaneEngine plane) {
+            plane.set(toggle.x, toggle.y, toggle.state);
+            return;
+        }
+        this.engine.set(toggle.index, toggle.state);
+        if (this.ages != null)
+            this.ages.setAge(toggle.index, toggle.state ? 0 : -1);
     }
 
     /**
      * Move forward one step.
      */
     public void step() {
+        step(null);
+    }
+
+    /**
+     * Move forward one step, taking the generation from a look-ahead if it was worked out there.
+     * @param ahead The generation after the current step, or null to work it out here.
+     */
+    void step(LookAhead.Generation ahead) {
+        if (this.log != null)
+            this.log.beforeStep(this.step, this.engine, this.ages);
+        if (this.period == 1 && this.step >= this.cycleStart) {
+            // a still life is the same every step, only its ages change
+            if (this.engine.isBounded()) {
+                this.journal.begin(this.ages != null);
+                if (this.ages != null)
+                    this.ages.step(this.engine, this.recordSaturated);
+                this.journal.commit(this.step);
+            } else if (this.ages != null) {
+                this.ages.step(this.engine);
+            }
+            this.step++;
+        } else if (this.period != 0) {
+            advanceRecorded(ahead);
+            this.step++;
+        } else {
+            // every generation is fingerprinted until a cycle is found, which engines can keep up with as they step
+            this.engine.setFingerprinting(true);
+            if (this.fingerprints.isEmpty())
+                this.fingerprints.put(this.engine.fingerprint(), this.step);
+            advanceRecorded(ahead);
+            this.step++;
+            findCycle();
+        }
+        if (this.keyframes.isDue(this.step))
+            this.keyframes.put(this.step, snapshot());
+        if (this.log != null)
+            this.log.afterStep(this.step, this.engine, this.ages);
+    }
 
-        this.cells.replaceAll((k, v) -> v + 1);
+    /**
+     * Counts the changes to the board other than stepping forward, so a look-ahead can tell when it is out of date.
+     */
+    private long revision;
 
-        HashMap<Integer, Integer> next = new HashMap<>();
+    long revision() {
+        return this.revision;
+    }
 
-        /**
-         * An object to hold an X and Y variable
-         */
-        record XY(int x, int y) {
-
-            /**
-             * A stream of all the neighbors of this x and y variable.
-             * @param toroidal Defines if cell activity on board sides should be toroidal.
-             * @param width The width of the board, needed in order to do logic on the sides of the board.
-             * @param height The width of the board, needed in order to do logic on the sides of the board.
-             * @return A stream of neighbors of this cell.
-             */
-            Stream<XY> neighbors(boolean toroidal, int width, int height) {
-                Stream<XY> base = Stream.of(
-                        new XY(x - 1, y - 1),
-                        new XY(x - 1, y),
-                        new XY(x - 1, y + 1),
-                        new XY(x, y - 1),
-                        new XY(x, y + 1),
-                        new XY(x + 1, y - 1),
-                        new XY(x + 1, y),
-                        new XY(x + 1, y + 1)
-                );
-                if (toroidal) {
-                    base = base.map(xy -> {
-                        int x, y;
-                        if (xy.x < 0)
-                            x = xy.x + width;
-                        else if (xy.x >= width)
-                            x = xy.x - width;
-                        else x = xy.x;
-                        if (xy.y < 0)
-                            y = xy.y + height;
-                        else if (xy.y >= height)
-                            y = xy.y - height;
-                        else y = xy.y;
-                        return new XY(x, y);
-                    });
-                } else {
-                    base = base.filter(xy -> xy.x >= 0 && xy.x < width && xy.y >= 0 && xy.y < height);
-                }
-                return base;
+    /**
+     * Look for the fingerprint of the current generation among the generations before it.
+     * If it is there, the board has probably been here before. The board is kept, and if it is the same board
+     * when the same number of steps have gone by again, the board will go round the same generations forever.
+     */
+    private void findCycle() {
+        Long seen = this.fingerprints.put(this.engine.fingerprint(), this.step);
+        if (this.candidateBoard != null) {
+            if (this.step - this.candidateStep < this.candidatePeriod)
+                return;
+            boolean same = seen != null && seen == this.candidateStep
+                    && Arrays.equals(this.cyclePacker.pack(this.engine, null), this.candidateBoard);
+            this.candidateBoard = null;
+            if (same) {
+                this.cycleStart = this.candidateStep;
+                this.period = this.candidatePeriod;
+                this.engine.setFingerprinting(false);
+                return;
             }
+        }
+        // generations that toggles were replayed into after the one seen cannot be skipped over
+        if (seen == null || seen >= this.step || this.history.keySet().stream().anyMatch(s -> s > seen))
+            return;
+        this.candidateStep = this.step;
+        this.candidatePeriod = this.step - seen;
+        this.candidateBoard = this.cyclePacker.pack(this.engine, null);
+    }
 
-            int index(int width) {
-                return x + y * width;
-            }
+    /**
+     * Forget the cycle the board was in, since a toggle changed where it is going.
+     */
+    private void resetCycle() {
+        this.fingerprints.clear();
+        this.candidateBoard = null;
+        this.cycleStart = 0;
+        this.period = 0;
+    }
 
-            /**
-             * A stream of all the neighbors of this x and y variable, including itself.
-             * @param toroidal Defines if cell activity on board sides should be toroidal.
-             * @param width The width of the board, needed in order to do logic on the sides of the board.
-             * @param height The width of the board, needed in order to do logic on the sides of the board.
-             * @return A stream of neighbors of this cell, including itself.
-             */
-            Stream<XY> neighborsAndSelf(boolean toroidal, int width, int height) {
-                return Stream.concat(neighbors(toroidal, width, height), Stream.of(this));
+    /**
+     * @return The number of steps the board takes to repeat itself, 1 for a still life,
+     *         or 0 if the current step is not known to be part of a cycle.
+     */
+    public long getPeriod() {
+        return this.step >= this.cycleStart ? this.period : 0;
+    }
+
+    /**
+     * Move the engine forward a number of generations, and the ages along with it.
+     */
+    private void advance(long generations) {
+        long start = System.nanoTime();
+        this.engine.stepN(generations);
+        this.keyframes.measure(generations, System.nanoTime() - start);
+        if (this.ages == null)
+            return;
+        if (generations == 1)
+            this.ages.step(this.engine);
+        else
+            // ages are lost when generations are skipped, which is fine as long as the
+            // generations the ages have to be right for are stepped one at a time
+            this.ages.fill(this.engine, AgePlane.MAX_AGE);
+    }
+
+    /**
+     * The cells that were born or died in the last generations stepped forward, which going back one step undoes.
+     */
+    private final DiffJournal journal = new DiffJournal(DiffJournal.defaultBudget());
+    /**
+     * Write a cell that changed into the journal, along with the age it had, created once so stepping does not allocate.
+     */
+    private final IntConsumer recordChange = index -> {
+        this.journal.changed(index, this.ages == null ? -1 : this.ages.age(index));
+        if (this.log != null)
+            this.log.changed(index);
+    };
+    private final IntConsumer recordSaturated = index -> this.journal.saturated(index);
+
+    /**
+     * Move the engine forward one generation like {@link #advance(long)}, writing what changed into the journal.
+     * Engines that go on past the board's edges cannot be set back from the cells on the board, so those are not written down.
+     * @param ahead The generation worked out by a look-ahead, whose changed cells are set rather than worked out, or null.
+     */
+    private void advanceRecorded(LookAhead.Generation ahead) {
+        if (!this.engine.isBounded()) {
+            if (ahead == null) {
+                advance(1);
+                return;
+            }
+            this.engine = ahead.engine();
+            if (this.ages != null)
+                this.ages.step(this.engine);
+            return;
+        }
+        this.journal.begin(this.ages != null);
+        if (ahead != null) {
+            for (int index : ahead.changes()) {
+                this.recordChange.accept(index);
+                this.engine.toggle(index);
             }
+        } else {
+            long start = System.nanoTime();
+            this.engine.step(this.recordChange);
+            this.keyframes.measure(1, System.nanoTime() - start);
+        }
+        if (this.ages != null)
+            this.ages.step(this.engine, this.recordSaturated);
+        this.journal.commit(this.step);
+    }
+
+    /**
+     * Move backwards one step.
+     * The generation stepped forward last is undone from the journal, which only touches the cells that changed in it.
+     * Otherwise, this calculates the step from the nearest keyframe and then saves it into a cache.
+     */
+    public void stepBack() {
+        stepBack(null);
+    }
 
+    /**
+     * Move backwards one step like {@link #stepBack()}, telling a listener how far the replay has got if there is one,
+     * and stopping early if the thread is interrupted, like {@link #stepTo(long, LongLongConsumer)}.
+     * @return true if the step before was reached, false if the thread was interrupted first.
+     */
+    public boolean stepBack(LongLongConsumer progress) {
+        this.revision++;
+        if (this.journal.canUndo(this.step)) {
+            undo();
+            this.step--;
+        } else if (this.step > 0 && !stepTo(this.step - 1, progress)) {
+            return false;
+        }
+        if (this.history.remove(this.step + 1) != null) {
+            // what was kept of the steps from the one whose toggles were dropped no longer follows from here
+            resetCycle();
+            this.keyframes.invalidateAfter(this.step);
+            if (this.savedKeyframes != null)
+                this.savedKeyframes.invalidateAfter(this.step);
+            this.stepCache.invalidateFrom(this.step + 1);
+            if (this.log != null)
+                this.log.truncate(this.step + 1);
         }
+        return true;
+    }
 
-        // get all cell positions and their neighbors,
-        // count the living neighbors
-        // place living and new cells into a new map
-        // ignore dead cells as they do not make it into the new map
-        this.cells.keySet().stream().map(idx -> new XY(idx % width(), idx / width())).flatMap(xy -> xy.neighborsAndSelf(settings.toroidal, settings.width, settings.height)).distinct().forEach(i -> {
-            int index = i.index(width());
-            boolean alive = this.cells.containsKey(index);
-            long neighbors = i.neighbors(settings.toroidal, settings.width, settings.height).mapToInt(xy1 -> xy1.index(width())).filter(this.cells::containsKey).count();
-            if (alive) {
-                if (neighbors >= settings.minNeighbors && neighbors <= settings.maxNeighbors) {
-                    next.put(index, this.cells.get(index));
-                }
-            } else {
-                if(neighbors == settings.neededNeighbors) {
-                    next.put(index, 0);
-                }
-            }
-        });
+    /**
+     * Undo the last generation in the journal.
+     */
+    private void undo() {
+        this.journal.undo();
+        if (this.ages != null) {
+            // the ages are counted back before the cells that died come back, which already have theirs
+            this.ages.stepBack(this.engine);
+            for (int i = 0; i < this.journal.saturatedCount(); i++)
+                this.ages.setAge(this.journal.saturatedCell(i), AgePlane.MAX_AGE - 1);
+        }
+        for (int i = 0; i < this.journal.cellCount(); i++) {
+            int index = this.journal.cell(i);
+            boolean died = !this.engine.isAlive(index);
+            this.engine.set(index, died);
+            if (died && this.ages != null)
+                this.ages.setAge(index, this.journal.age(i));
+        }
+    }
 
-        this.cells = next;
+    /**
+     * A copy of the board at a cached step.
+     * @param ages The ages of the cells, or null if ages were not being kept.
+     */
+    record Snapshot(LifeEngine engine, AgePlane ages) {
 
-        this.step++;
+        /**
+         * @return Roughly how many bytes the copy takes up.
+         */
+        long memoryEstimate() {
+            return this.engine.memoryEstimate() + (this.ages == null ? 0 : this.ages.memoryEstimate());
+        }
 
     }
 
     /**
-     * Move backwards one step.
-     * This calculates each step from the beginning of the game and then saves it into a cache.
+     * @return A copy of the board as it is now.
      */
-    public void stepBack() {
-        if (this.step > 0)
-            this.stepTo(this.step - 1);
-        this.history.remove(this.step + 1);
+    private Snapshot snapshot() {
+        return new Snapshot(this.engine.copy(), this.ages == null ? null : this.ages.copy());
     }
 
     /**
-     * Cached steps
+     * Copies of the board every so many steps, which going back replays from.
      */
-    private final HashMap<Long, HashMap<Integer, Integer>> stepCache = new HashMap<>();
+    private final Keyframes keyframes = new Keyframes(Keyframes.defaultBudget());
     /**
-     * Maximum cached steps
+     * The keyframes in the file the game was opened from, which are read as going back reaches them,
+     * or null if there are none.
+     */
+    private SavedKeyframes savedKeyframes;
+
+    /**
+     * Cached steps, packed under a memory budget
+     */
+    private final SnapshotCache stepCache = new SnapshotCache(SnapshotCache.defaultBudget());
+    /**
+     * Maximum cached steps before a step gone to
      */
     private static final int STEP_CACHE_SIZE = 100;
 
+    /**
+     * How the cache of the steps before the steps gone to is doing.
+     * @param hits The number of times a step was found in the cache.
+     * @param misses The number of times a step had to be replayed.
+     * @param evictions The number of steps dropped to stay under the memory budget.
+     * @param size The number of steps cached.
+     * @param bytes Roughly how many bytes the cached steps take up.
+     */
+    public record CacheStatistics(long hits, long misses, long evictions, int size, long bytes) {}
+
+    public CacheStatistics getCacheStatistics() {
+        return new CacheStatistics(this.stepCache.hits(), this.stepCache.misses(), this.stepCache.evictions(),
+                this.stepCache.size(), this.stepCache.bytes());
+    }
+
     /**
      * Step to a specific step in the game.
      * @param step The step to go to.
      */
     public void stepTo(long step) {
-        if (!stepCache.containsKey(step)) {
-            this.step = 0;
-            this.cells.clear();
-            for (long s = 0; s < step + 1; s++) {
+        stepTo(step, null);
+    }
+
+    /**
+     * Step to a specific step in the game, telling a listener how far the replay has got.
+     * With a listener, the replay stops early if the thread is interrupted, such as when the seek was replaced by a newer one.
+     * The game is then left at the step the replay had got to, which is a step like any other.
+     * @param step The step to go to.
+     * @param progress Told the number of generations replayed and the number to replay before every stretch of them,
+     *                 or null.
+     * @return true if the step was reached, false if the thread was interrupted first.
+     */
+    public boolean stepTo(long step, LongLongConsumer progress) {
+        this.revision++;
+        // the fingerprints and the journal are of steps in a row, which going to another step breaks
+        this.fingerprints.clear();
+        this.candidateBoard = null;
+        this.journal.clear();
+        this.engine.setFingerprinting(false);
+        // once the board is in a cycle, a step further along looks the same as one in the first few rounds.
+        // The rounds after the first MAX_AGE steps of the cycle have the same ages too.
+        long settled = this.cycleStart + AgePlane.MAX_AGE;
+        if (this.period != 0 && step >= settled + this.period && !this.stepCache.contains(step)) {
+            if (!stepTo(settled + (step - settled) % this.period, progress))
+                return false;
+            this.step = step;
+            return true;
+        }
+        LifeEngine cached = this.stepCache.restore(step, this.engine, this.ages);
+        if (cached == null && this.log != null && this.log.contains(step)) {
+            this.log.restore(step, this.engine, this.ages);
+            this.step = step;
+        } else if (cached == null) {
+            // start from the nearest keyframe, or from the start of the game if there is none
+            var keyframe = this.keyframes.floor(step);
+            long saved = this.savedKeyframes != null ? this.savedKeyframes.floor(step) : -1;
+            if (saved >= 0 && (keyframe == null || saved > keyframe.getKey()) && restoreSaved(saved)) {
+                this.step = saved;
+            } else if (keyframe != null) {
+                this.step = keyframe.getKey();
+                this.engine = keyframe.getValue().engine().copy();
+                this.engine.setFingerprinting(false);
+                if (this.ages != null)
+                    this.ages = keyframe.getValue().ages() != null ? keyframe.getValue().ages().copy() : newAges(this.engine);
+            } else {
+                this.step = 0;
+                this.engine.clear();
+                if (this.ages != null)
+                    this.ages.clear();
+            }
+            long from = this.step;
+            // the steps the user toggled cells on, in order. The toggles of the keyframe's step are applied again,
+            // which leaves the cells the same, since toggles set cells rather than flip them
+            long[] toggled = this.history.keySet().stream().mapToLong(Long::longValue).filter(s -> s >= from && s <= step).sorted().toArray();
+            int nextToggled = 0;
+            // after generations are skipped, the ages are only right again once every cell alive then
+            // would have reached MAX_AGE, and nothing is kept of the steps before that
+            long agesRight = from;
+            for (long s = from; s < step + 1; ) {
                 // get user's cell toggles
-                var toggles = this.history.get(s);
-                if (toggles != null) {
-                    for (var t : toggles) {
-                        if (t.state)
-                            this.cells.put(t.index, 0);
-                        else
-                            this.cells.remove(t.index);
+                if (nextToggled < toggled.length && toggled[nextToggled] == s) {
+                    for (var t : this.history.get(s)) {
+                        apply(t);
                     }
+                    nextToggled++;
+                }
+                if (s >= step - STEP_CACHE_SIZE && s >= agesRight) {
+                    this.stepCache.put(s, this.engine, this.ages);
                 }
-                if (s >= step - STEP_CACHE_SIZE) {
-                    stepCache.put(s, new HashMap<>(this.cells));
+                // the interval between keyframes can shrink while generations are skipped, making one due sooner than planned
+                if (this.keyframes.isDue(s) && s >= agesRight)
+                    this.keyframes.put(s, snapshot());
+                if (s == step)
+                    break;
+                if (progress != null) {
+                    progress.accept(s - from, step - from);
+                    // a step whose ages were lost to skipping is not one to stop at
+                    if (Thread.currentThread().isInterrupted() && s >= agesRight)
+                        return false;
                 }
-                if (s != step)
-                    this.step();
+                // jump straight to the next step that has toggles, needs caching or is due a keyframe,
+                // so engines that can skip generations (such as HashLife) get to.
+                // Skipping generations loses the ages of young cells, so the steps before a cached step or a keyframe
+                // are stepped one at a time for as long as ages can be told apart, and the toggles among them with them.
+                long needed = Math.min(step - STEP_CACHE_SIZE, this.keyframes.nextDue(s));
+                long target = Math.max(s + 1, Math.min(nextToggled < toggled.length ? toggled[nextToggled] : step,
+                        this.ages == null ? needed : needed - AgePlane.MAX_AGE));
+                advance(target - s);
+                if (target - s > 1 && this.ages != null)
+                    agesRight = target + AgePlane.MAX_AGE;
+                this.step = s = target;
             }
         } else {
-            this.cells = stepCache.remove(step);
+            this.engine = cached;
+            this.engine.setFingerprinting(false);
             this.step = step;
         }
+        return true;
+    }
+
+    /**
+     * Set the board to a keyframe saved in the file the game was opened from.
+     * @return true if the keyframe was read, false if the file could not be read, whose keyframes are then forgotten.
+     */
+    private boolean restoreSaved(long step) {
+        try {
+            this.savedKeyframes.restore(step, this.engine, this.ages);
+            return true;
+        } catch (IOException e) {
+            this.savedKeyframes = null;
+            return false;
+        }
+    }
+
+    /**
+     * Every generation stepped forward through, written to a file, or null if generations are not being logged.
+     */
+    private GenerationLog log;
+
+    /**
+     * Start writing every generation stepped forward through to a file, so going to any of them later reads it
+     * back rather than replaying it, however long the game runs. The file and an index file next to it,
+     * with ".idx" added, are emptied first. A log that was being written is stopped.
+     * @param path The file to write to.
+     * @throws IllegalStateException If the game is played on an engine that goes on past the board's edges,
+     *                               whose generations cannot be set back from the cells on the board.
+     */
+    public void startLog(Path path) throws IOException {
+        if (!this.engine.isBounded())
+            throw new IllegalStateException("Only games on bounded boards can be logged");
+        stopLog();
+        this.log = new GenerationLog(path);
+    }
+
+    /**
+     * Stop writing generations to the log, leaving its files as they are.
+     */
+    public void stopLog() throws IOException {
+        if (this.log == null)
+            return;
+        this.log.close();
+        this.log = null;
     }
 
     public long getStep() {
@@ -228,13 +656,110 @@ public class GameOfLife {
     }
 
     public void clear() {
+        this.revision++;
         this.step = 0;
-        this.cells.clear();
+        this.engine.clear();
         this.history.clear();
+        this.stepCache.clear();
+        this.keyframes.clear();
+        this.savedKeyframes = null;
+        this.journal.clear();
+        if (this.log != null)
+            this.log.clear();
+        resetCycle();
+        if (this.ages != null)
+            this.ages.clear();
+    }
+
+    /**
+     * Start or stop keeping the age of every cell. Ages are counted from when they start being kept,
+     * and stop counting at {@link AgePlane#MAX_AGE}.
+     * @param tracking true to keep ages, false to save the time and memory they take.
+     */
+    public void setAgeTracking(boolean tracking) {
+        // the ages of cells on an unbounded plane are not kept
+        if (tracking == isAgeTracking() || isUnbounded())
+            return;
+        // cached steps, keyframes and the journal have to be taken again, so they have ages if they need them
+        this.stepCache.clear();
+        this.journal.clear();
+        if (this.log != null)
+            this.log.clear();
+        var pinned = this.keyframes.clearUnpinned();
+        if (pinned != null) {
+            LifeEngine engine = pinned.getValue().engine();
+            this.keyframes.pin(pinned.getKey(), new Snapshot(engine, tracking ? newAges(engine) : null));
+        }
+        this.ages = tracking ? newAges(this.engine) : null;
+    }
+
+    /**
+     * @return Ages for the live cells of an engine, starting from 0.
+     */
+    private AgePlane newAges(LifeEngine engine) {
+        AgePlane ages = new AgePlane(width() * height());
+        ages.fill(engine, 0);
+        return ages;
+    }
+
+    public boolean isAgeTracking() {
+        return this.ages != null;
+    }
+
+    /**
+     * @return true if the game is played on an unbounded plane, and the board is only a window onto it.
+     */
+    public boolean isUnbounded() {
+        return this.engine instanceof PlaneEngine;
+    }
+
+    /**
+     * @return The engine that holds the board and computes its generations.
+     */
+    public LifeEngine getEngine() {
+        return this.engine;
     }
 
+    /**
+     * Run an action for every live cell.
+     * @param action Receives the index (x + y * width) and the age of every live cell, which is 0 if ages are not being kept.
+     */
+    public void forEachLiveCell(IntIntConsumer action) {
+        AgePlane ages = this.ages;
+        if (ages == null)
+            this.engine.forEachLiveCell(index -> action.accept(index, 0));
+        else
+            this.engine.forEachLiveCell(index -> action.accept(index, ages.age(index)));
+    }
+
+    /**
+     * Run an action for every live cell in a rectangle, which may reach past the board on an unbounded plane.
+     * @param left The x position of the left edge of the rectangle.
+     * @param top The y position of the top edge of the rectangle.
+     * @param right The x position just past the right edge of the rectangle.
+     * @param bottom The y position just past the bottom edge of the rectangle.
+     * @param action Receives the x and y position of every live cell in the rectangle.
+     */
+    public void forEachLiveCell(long left, long top, long right, long bottom, LongLongConsumer action) {
+        if (this.engine instanceof PlaneEngine plane) {
+            plane.forEachLiveCell(left, top, right, bottom, action);
+            return;
+        }
+        int width = width();
+        this.engine.forEachLiveCell(index -> {
+            int x = index % width, y = index / width;
+            if (x >= left && x < right && y >= top && y < bottom)
+                action.accept(x, y);
+        });
+    }
+
+    /**
+     * @return A copy of every live cell's index (x + y * width) mapped to its age.
+     */
     public Map<Integer, Integer> getCells() {
-        return this.cells;
+        HashMap<Integer, Integer> cells = new HashMap<>();
+        this.forEachLiveCell(cells::put);
+        return cells;
     }
 
 
@@ -242,39 +767,283 @@ public class GameOfLife {
     public static final byte[] FILE_SIGNATURE = "g22".getBytes(StandardCharsets.UTF_8);
 
     /**
-     * Encode this game into a stream of bytes.
-     * @param output A stream of bytes to write to, such as a file.
+     * The versions of the format written after the file signature: without keyframes, and with keyframes and their index
+     * after the history. Saves from before the format had versions have a GZIP stream straight after the signature,
+     * which starts with a byte that is never a version.
+     */
+    private static final int SAVE_VERSION = 1, SAVE_VERSION_KEYFRAMES = 2;
+    private static final int GZIP_MAGIC = 0x1f;
+
+    /**
+     * How the board is written in a save: left out, as runs of cells, or as a bit for every cell.
+     */
+    private static final byte BOARD_NONE = 0, BOARD_RUNS = 1, BOARD_BITS = 2;
+
+    /**
+     * The start of the comment after the rows of a text save that gives the size of the board, such as !Size: 80x60.
+     */
+    private static final String TEXT_SIZE_COMMENT = "!Size:";
+
+    /**
+     * Encode this game into a stream of bytes: the file signature and the version of the format,
+     * then the settings as fixed fields, the step, the board, and the history of toggles.
+     * <p>
+     * The board is written as the runs of live and dead cells by a {@link CellPacker}, or as a bit for every cell
+     * if that is smaller, such as for a random soup, with the ages of the live cells if they are being kept.
+     * The board of an unbounded game is left out, since it is played again from the history.
+     * The toggles are written in order of step, as the differences from the toggle before,
+     * so a history of thousands of toggles takes a few bytes each.
+     * @param output A stream of bytes to write to, such as a file, which is best buffered.
      * @throws IOException The output stream could not be written to.
      */
     public void encodeIntoBytes(OutputStream output) throws IOException {
-        output.write(FILE_SIGNATURE);
-        var stream = new ObjectOutputStream(new GZIPOutputStream(output));
-        stream.writeObject(this.settings);
+        encodeIntoBytes(output, false);
+    }
+
+    /**
+     * Encode this game into a stream of bytes like {@link #encodeIntoBytes(OutputStream)}, and if asked,
+     * with the keyframes taken while it was played after the history, so going back in the game after opening it
+     * with {@link #decodeFromFile(Path)} does not replay it from the start.
+     * The keyframes are packed by a {@link CellPacker} and followed by an index of where they are,
+     * which is found from the end of the file. The keyframes of unbounded games are not written.
+     * @param output A stream of bytes to write to, which has to be the start of a file for the keyframes to be found.
+     * @param keyframes true to write the keyframes.
+     * @throws IOException The output stream could not be written to.
+     */
+    public void encodeIntoBytes(OutputStream output, boolean keyframes) throws IOException {
+        keyframes &= !isUnbounded();
+        DataOutputStream stream = new DataOutputStream(new BufferedOutputStream(output, 1 << 16));
+        stream.write(FILE_SIGNATURE);
+        stream.writeByte(keyframes ? SAVE_VERSION_KEYFRAMES : SAVE_VERSION);
+
+        stream.writeInt(this.settings.minNeighbors);
+        stream.writeInt(this.settings.maxNeighbors);
+        stream.writeInt(this.settings.neededNeighbors);
+        stream.writeInt(this.settings.width);
+        stream.writeInt(this.settings.height);
+        stream.writeBoolean(this.settings.toroidal);
+        writeString(stream, this.settings.engine);
+        writeString(stream, this.settings.rulestring);
         stream.writeLong(this.step);
-        stream.writeObject(this.cells);
-        stream.writeObject(this.history);
-        stream.close();
+
+        writeBoard(stream);
+        writeHistory(stream);
+        if (keyframes)
+            writeKeyframes(stream);
+        stream.flush();
+    }
+
+    /**
+     * Write the keyframes, both the ones taken while playing and the ones of the file the game was opened from,
+     * then their index and where it starts.
+     */
+    private void writeKeyframes(DataOutputStream stream) throws IOException {
+        NavigableMap<Long, Snapshot> taken = this.keyframes.frames();
+        TreeSet<Long> steps = new TreeSet<>(taken.keySet());
+        if (this.savedKeyframes != null)
+            steps.addAll(this.savedKeyframes.steps());
+
+        CellPacker packer = new CellPacker();
+        long start = stream.size(), offset = start;
+        List<long[]> written = new ArrayList<>();
+        for (long step : steps) {
+            byte[] packed;
+            Snapshot snapshot = taken.get(step);
+            if (snapshot != null) {
+                packed = packer.pack(snapshot.engine(), snapshot.ages());
+            } else {
+                if (this.savedKeyframes == null)
+                    continue;
+                try {
+                    packed = this.savedKeyframes.read(step);
+                } catch (IOException e) {
+                    // the file the game was opened from has changed, so its keyframes are left out
+                    this.savedKeyframes = null;
+                    continue;
+                }
+            }
+            stream.write(packed);
+            written.add(new long[] { step, packed.length });
+            offset += packed.length;
+        }
+
+        Varints.write(stream, written.size());
+        Varints.write(stream, start);
+        long previous = 0;
+        for (long[] frame : written) {
+            Varints.write(stream, frame[0] - previous);
+            Varints.write(stream, frame[1]);
+            previous = frame[0];
+        }
+        stream.writeLong(offset);
+        stream.write(SavedKeyframes.MAGIC);
+    }
+
+    private void writeBoard(DataOutputStream stream) throws IOException {
+        if (isUnbounded()) {
+            stream.writeByte(BOARD_NONE);
+            return;
+        }
+        byte[] packed = new CellPacker().pack(this.engine, this.ages);
+        int bits = (int) (((long) width() * height() + 7) / 8);
+        if (packed.length <= bits) {
+            stream.writeByte(BOARD_RUNS);
+            Varints.write(stream, packed.length);
+            stream.write(packed);
+            return;
+        }
+
+        stream.writeByte(BOARD_BITS);
+        int[] cells = sortedLiveCells();
+        byte[] plane = new byte[bits];
+        for (int index : cells)
+            plane[index >>> 3] |= (byte) (1 << (index & 7));
+        stream.write(plane);
+        stream.writeBoolean(this.ages != null);
+        if (this.ages != null) {
+            // the ages of the live cells in order, as runs of equal ages
+            for (int i = 0; i < cells.length; ) {
+                int start = i, age = this.ages.age(cells[i]);
+                while (i < cells.length && this.ages.age(cells[i]) == age)
+                    i++;
+                Varints.write(stream, age);
+                Varints.write(stream, i - start);
+            }
+        }
+    }
+
+    private void writeHistory(DataOutputStream stream) throws IOException {
+        boolean plane = isUnbounded();
+        List<Long> steps = new ArrayList<>(this.history.keySet());
+        Collections.sort(steps);
+        Varints.write(stream, steps.size());
+        long previousStep = 0;
+        for (long step : steps) {
+            List<Toggle> toggles = this.history.get(step);
+            Varints.write(stream, step - previousStep);
+            Varints.write(stream, toggles.size());
+            previousStep = step;
+            long previousX = 0, previousY = 0;
+            int previousIndex = 0;
+            for (Toggle toggle : toggles) {
+                if (plane) {
+                    stream.writeBoolean(toggle.state);
+                    Varints.write(stream, Varints.zigzag(toggle.x - previousX));
+                    Varints.write(stream, Varints.zigzag(toggle.y - previousY));
+                    previousX = toggle.x;
+                    previousY = toggle.y;
+                } else {
+                    Varints.write(stream, Varints.zigzag(toggle.index - previousIndex) << 1 | (toggle.state ? 1 : 0));
+                    previousIndex = toggle.index;
+                }
+            }
+        }
+    }
+
+    private static void writeString(DataOutputStream stream, String string) throws IOException {
+        stream.writeBoolean(string != null);
+        if (string != null)
+            stream.writeUTF(string);
+    }
+
+    private static String readString(DataInputStream stream) throws IOException {
+        return stream.readBoolean() ? stream.readUTF() : null;
     }
 
     /**
-     * Encode this game into a string.
-     * @param output A stream (could be a file) to write the output string to.
+     * @return The index of every live cell, in order.
+     */
+    private int[] sortedLiveCells() {
+        int[][] cells = { new int[Math.max(16, this.engine.population())] };
+        int[] count = { 0 };
+        this.engine.forEachLiveCell(index -> {
+            if (count[0] == cells[0].length)
+                cells[0] = Arrays.copyOf(cells[0], count[0] * 2);
+            cells[0][count[0]++] = index;
+        });
+        int[] sorted = Arrays.copyOf(cells[0], count[0]);
+        // engines that go through the board in order hand the cells over sorted already
+        for (int i = 1; i < sorted.length; i++) {
+            if (sorted[i - 1] > sorted[i]) {
+                Arrays.sort(sorted);
+                break;
+            }
+        }
+        return sorted;
+    }
+
+    /**
+     * Encode the board as text, with the empty rows at the bottom left out.
+     * @param output A stream (could be a file) to write the text to.
      * @throws IOException The output stream could not be written to.
      */
     public void encodeIntoText(OutputStream output) throws IOException {
-        // map every index to an 'o' or a '.' and add newlines to the end of each row.
-        var text = IntStream.range(0, width() * height()).mapToObj(i -> {
-            String c = this.cells.containsKey(i) ? "o" : ".";
-            if (i % width() == width() - 1)
-                c = c + "\n";
-            return c;
-        });
-        // fold the stream into a string and write it to the output
-        output.write(text.reduce("", (prev, next) -> prev + next).getBytes());
+        encodeIntoText(output, false);
     }
 
     /**
-     * Decode an input into an instance of Conway's game of life.
+     * Encode the board as text, a line of 'o's for live cells and '.'s for dead ones for every row,
+     * written a row at a time. The empty rows at the bottom are left out, and the size of the board is written
+     * in a comment after the rows instead, so the board is read back at its size.
+     * @param output A stream (could be a file) to write the text to.
+     * @param crop true to only write the smallest rectangle holding every live cell, such as to share a pattern,
+     *             which is read back as a board of the rectangle's size.
+     * @throws IOException The output stream could not be written to.
+     */
+    public void encodeIntoText(OutputStream output, boolean crop) throws IOException {
+        int[] cells = sortedLiveCells();
+        int width = width(), left = 0, right = width, top = 0;
+        int bottom = cells.length > 0 ? cells[cells.length - 1] / width + 1 : 0;
+        if (crop && cells.length > 0) {
+            top = cells[0] / width;
+            left = width;
+            right = 0;
+            for (int index : cells) {
+                left = Math.min(left, index % width);
+                right = Math.max(right, index % width + 1);
+            }
+        }
+
+        BufferedOutputStream buffered = new BufferedOutputStream(output, 1 << 16);
+        byte[] row = new byte[right - left + 1];
+        Arrays.fill(row, (byte) '.');
+        row[row.length - 1] = '\n';
+        for (int y = top, i = 0; y < bottom; y++) {
+            int start = i, offset = y * width + left, end = (y + 1) * width;
+            for (; i < cells.length && cells[i] < end; i++)
+                row[cells[i] - offset] = 'o';
+            buffered.write(row);
+            // the row is reused, so only the cells that were set are put back
+            for (int j = start; j < i; j++)
+                row[cells[j] - offset] = '.';
+        }
+        if (!crop)
+            buffered.write((TEXT_SIZE_COMMENT + width + "x" + height() + "\n").getBytes(StandardCharsets.UTF_8));
+        buffered.flush();
+    }
+
+    /**
+     * Encode this game as a run length encoded pattern, the format other Life programs share,
+     * with the rules and whether the board wraps around in its header.
+     * Only the cells are written, not the step or the history.
+     * @param output A writer (could be a file) to write the pattern to.
+     * @throws IOException The writer could not be written to.
+     */
+    public void encodeIntoRle(Writer output) throws IOException {
+        String rule = this.settings.describeRule();
+        if (!isUnbounded())
+            rule += (this.settings.toroidal ? ":T" : ":P") + width() + "," + height();
+        BufferedWriter buffered = new BufferedWriter(output, 1 << 16);
+        RleWriter writer = new RleWriter(buffered, width(), height(), rule);
+        for (int index : sortedLiveCells())
+            writer.live(index);
+        writer.finish();
+        buffered.flush();
+    }
+
+    /**
+     * Decode an input into an instance of Conway's game of life, in the format written by {@link #encodeIntoBytes},
+     * or in the format written before it had versions.
      * @param input A stream of bytes to read from, such as a file.
      * @return A previously saved game of life instance
      * @throws IOException The stream of bytes contains incorrect data, or could not be read.
@@ -285,6 +1054,132 @@ public class GameOfLife {
         if (!Arrays.equals(b, FILE_SIGNATURE)) {
             throw new IOException("Invalid file signature!");
         }
+        DataInputStream stream = new DataInputStream(new BufferedInputStream(input, 1 << 16));
+        stream.mark(1);
+        int version = stream.read();
+        if (version == GZIP_MAGIC) {
+            stream.reset();
+            return decodeLegacy(stream);
+        }
+        // the keyframes after the history are only read from files, by decodeFromFile
+        if (version != SAVE_VERSION && version != SAVE_VERSION_KEYFRAMES)
+            throw new IOException("Unsupported save version: " + version);
+
+        int minNeighbors = stream.readInt(), maxNeighbors = stream.readInt(), neededNeighbors = stream.readInt();
+        int width = stream.readInt(), height = stream.readInt();
+        if (width <= 0 || height <= 0 || (long) width * height > Integer.MAX_VALUE)
+            throw new IOException("Could not decode game settings: the board is " + width + " by " + height + " cells!");
+        GameOfLife game;
+        try {
+            game = new GameOfLife(new Settings(minNeighbors, maxNeighbors, neededNeighbors, width, height,
+                    stream.readBoolean(), readString(stream), readString(stream)));
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Could not decode game settings: " + e.getMessage());
+        }
+        game.step = stream.readLong();
+        if (game.step < 0)
+            throw new IOException("Could not decode step count!");
+
+        game.readBoard(stream);
+        game.readHistory(stream);
+        if (game.isUnbounded()) {
+            // only the toggles are saved, so the plane is played again from the history
+            game.stepTo(game.step);
+            return game;
+        }
+        // the steps before the saved one can only be played again from the history, so the saved board is kept
+        game.keyframes.pin(game.step, game.snapshot());
+        return game;
+    }
+
+    private void readBoard(DataInputStream stream) throws IOException {
+        int area = width() * height();
+        switch (stream.readByte()) {
+            case BOARD_NONE -> {}
+            case BOARD_RUNS -> {
+                long length = Varints.read(stream);
+                // a run of cells takes at least two bytes, and there are at most as many runs as cells, besides the ages
+                if (length > 4L * area + 16)
+                    throw new IOException("Could not decode board!");
+                byte[] packed = new byte[(int) length];
+                stream.readFully(packed);
+                try {
+                    // the number of live cells comes first, then whether there are ages
+                    int[] position = { 0 };
+                    Varints.read(packed, position);
+                    if (Varints.read(packed, position) == 1)
+                        setAgeTracking(true);
+                } catch (IndexOutOfBoundsException e) {
+                    throw new IOException("Could not decode board!");
+                }
+                new CellPacker().unpack(packed, area, this.engine, this.ages);
+            }
+            case BOARD_BITS -> {
+                byte[] plane = new byte[(int) (((long) area + 7) / 8)];
+                stream.readFully(plane);
+                for (int i = 0; i < plane.length; i++) {
+                    for (int bits = plane[i] & 0xFF; bits != 0; bits &= bits - 1) {
+                        int index = i << 3 | Integer.numberOfTrailingZeros(bits);
+                        if (index >= area)
+                            throw new IOException("Could not decode board!");
+                        this.engine.set(index, true);
+                    }
+                }
+                if (stream.readBoolean()) {
+                    setAgeTracking(true);
+                    int[] cells = sortedLiveCells();
+                    for (int i = 0; i < cells.length; ) {
+                        long age = Varints.read(stream), run = Varints.read(stream);
+                        if (age < 0 || age > AgePlane.MAX_AGE || run > cells.length - i || run <= 0)
+                            throw new IOException("Could not decode cell ages!");
+                        for (; run > 0; run--)
+                            this.ages.setAge(cells[i++], (int) age);
+                    }
+                }
+            }
+            default -> throw new IOException("Could not decode board!");
+        }
+    }
+
+    private void readHistory(DataInputStream stream) throws IOException {
+        boolean plane = isUnbounded();
+        int area = width() * height();
+        long steps = Varints.read(stream), step = 0;
+        for (long s = 0; s < steps; s++) {
+            step += Varints.read(stream);
+            long count = Varints.read(stream);
+            if (step < 0 || count > Integer.MAX_VALUE)
+                throw new IOException("Could not decode toggle history!");
+            List<Toggle> toggles = new ArrayList<>((int) Math.min(count, 1 << 16));
+            long x = 0, y = 0;
+            int index = 0;
+            for (long t = 0; t < count; t++) {
+                if (plane) {
+                    boolean state = stream.readBoolean();
+                    x += Varints.unzigzag(Varints.read(stream));
+                    y += Varints.unzigzag(Varints.read(stream));
+                    toggles.add(new Toggle(-1, state, x, y));
+                } else {
+                    long value = Varints.read(stream);
+                    index += (int) Varints.unzigzag(value >>> 1);
+                    if (index < 0 || index >= area)
+                        throw new IOException("Could not decode toggle history!");
+                    toggles.add(new Toggle(index, (value & 1) != 0, index % width(), index / width()));
+                }
+            }
+            this.history.put(step, toggles);
+        }
+    }
+
+    /**
+     * Decode a save written before the format had versions, which is the settings, the cells and the history
+     * written as Java objects into a GZIP stream, after the file signature.
+     * @param input A stream of bytes to read from, just past the file signature.
+     * @return A previously saved game of life instance
+     * @throws IOException The stream of bytes contains incorrect data, or could not be read.
+     */
+    @SuppressWarnings("unchecked")
+    private static GameOfLife decodeLegacy(InputStream input) throws IOException {
         // unzip and extract objects out of the input
         ObjectInputStream stream = new ObjectInputStream(new GZIPInputStream(input));
 
@@ -320,8 +1215,21 @@ public class GameOfLife {
             HashMap<Long, List<GameOfLife.Toggle>> history = (HashMap<Long, List<GameOfLife.Toggle>>) stream.readObject();
             GameOfLife game = new GameOfLife(settings);
             game.step = step;
-            game.cells = cells;
             game.history = history;
+            if (game.isUnbounded()) {
+                // only the cells on the board are saved, so the rest of the plane is played again from the history
+                game.stepTo(step);
+                stream.close();
+                return game;
+            }
+            cells.keySet().forEach(index -> game.engine.set(index, true));
+            // only keep the saved ages if there is anything to keep
+            if (cells.values().stream().anyMatch(age -> age > 0)) {
+                game.setAgeTracking(true);
+                cells.forEach(game.ages::setAge);
+            }
+            // the steps before the saved one can only be played again from the history, so the saved board is kept
+            game.keyframes.pin(step, game.snapshot());
             stream.close();
             return game;
         } catch (ClassNotFoundException e) {
@@ -331,26 +1239,115 @@ public class GameOfLife {
 
     }
 
+    /**
+     * Decode a file saved in any format, like {@link #decode(InputStream)}. The keyframes saved in it, if there are any,
+     * are not read yet: going to a step reads the keyframe before it from the file, when there is no nearer one.
+     * @param path The file to read.
+     * @return A previously saved game of life instance
+     * @throws IOException The file contains incorrect data, or could not be read.
+     */
+    public static GameOfLife decodeFromFile(Path path) throws IOException {
+        GameOfLife game;
+        try (InputStream input = Files.newInputStream(path)) {
+            game = decode(input);
+        }
+        if (!game.isUnbounded())
+            game.savedKeyframes = SavedKeyframes.open(path);
+        return game;
+    }
+
+    /**
+     * Decode an input saved in either format, telling them apart by the file signature.
+     * @param input A stream of bytes to read from, such as a file.
+     * @return A previously saved game of life instance
+     * @throws IOException The stream of bytes contains incorrect data, or could not be read.
+     */
+    public static GameOfLife decode(InputStream input) throws IOException {
+        PushbackInputStream pushback = new PushbackInputStream(input, FILE_SIGNATURE.length);
+        byte[] b = pushback.readNBytes(FILE_SIGNATURE.length);
+        pushback.unread(b);
+        if (Arrays.equals(b, FILE_SIGNATURE))
+            return decodeFromBytes(pushback);
+        // text saves start with a row of cells, which are never # or x
+        if (b.length > 0 && (b[0] == '#' || b[0] == 'x' || b[0] == 'X'))
+            return decodeFromRle(new InputStreamReader(pushback, StandardCharsets.UTF_8));
+        return decodeFromText(pushback);
+    }
+
+    /**
+     * Decode a run length encoded pattern into a game on a board of the pattern's size, with the pattern's rules.
+     * @param input A reader to read the pattern from, such as a file.
+     * @return A game at step 0 with the pattern's cells.
+     * @throws IOException The pattern is not correct, has more than {@link RleReader#DEFAULT_LIMIT} cells, or could not be read.
+     */
+    public static GameOfLife decodeFromRle(Reader input) throws IOException {
+        return decodeFromRle(input, RleReader.DEFAULT_LIMIT);
+    }
+
+    /**
+     * Decode a run length encoded pattern into a game on a board of the pattern's size, with the pattern's rules.
+     * @param input A reader to read the pattern from, such as a file.
+     * @param limit The most cells the board may have, so a pattern too large to play is not loaded.
+     * @return A game at step 0 with the pattern's cells.
+     * @throws IOException The pattern is not correct, has more cells than the limit, or could not be read.
+     */
+    public static GameOfLife decodeFromRle(Reader input, long limit) throws IOException {
+        RleReader reader = new RleReader(input, limit);
+        reader.readHeader();
+        GameOfLife game;
+        try {
+            game = new GameOfLife(new Settings(2, 3, 3, reader.width(), reader.height(), reader.toroidal(), null, reader.rule()));
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Could not play the pattern's rules: " + e.getMessage());
+        }
+        reader.readCells(index -> game.engine.set(index, true));
+        // there is no history to play the board again from
+        game.keyframes.pin(0, game.snapshot());
+        return game;
+    }
+
     /**
      * Decode an input (containing a correct string) into an instance of Conway's game of life.
+     * Lines starting with '!' are comments, as in the plaintext patterns other Life programs write,
+     * and a comment giving the size of the board makes the board that size, even if its last rows were left out.
      * @param input A stream of bytes (in string format) to read from, such as a file.
      * @return A previously saved game of life instance
      * @throws IOException The stream of bytes contains incorrect data, or could not be read.
      */
     public static GameOfLife decodeFromText(InputStream input) throws IOException {
-        Stream<String> lines = Arrays.stream(new String(input.readAllBytes(), StandardCharsets.UTF_8).split("(\\r\\n|\\r|\\n)"));
-        AtomicInteger y = new AtomicInteger(0), width = new AtomicInteger(0);
-        Map<Integer, Integer> cells = lines.flatMapToInt(l -> {
-            if (l.matches("^.*(o|.).*$")) {
-                if (width.getPlain() == 0)
-                    width.set(l.length());
-                var s = IntStream.range(0, l.length()).filter(r -> l.charAt(r) == 'o').map(x -> x + y.get() * l.length());
-                y.getAndIncrement();
-                return s;
-            } else return IntStream.empty();
-        }).mapToObj(i -> Map.entry(i, 0)).collect(Collectors.toMap(Map.Entry::getKey, Map.Entry::getValue));
-        GameOfLife game = new GameOfLife(new Settings(2, 3, 3, width.getPlain(), y.getPlain(), true));
-        game.cells = new HashMap<>(cells);
+        BufferedReader reader = new BufferedReader(new InputStreamReader(input, StandardCharsets.UTF_8), 1 << 16);
+        // the cells are kept as their positions until every row has been read, since the width is not known before then
+        LongStream.Builder cells = LongStream.builder();
+        int width = 0, height = 0, y = 0;
+        for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+            if (line.isEmpty())
+                continue;
+            if (line.startsWith("!")) {
+                if (line.startsWith(TEXT_SIZE_COMMENT)) {
+                    String[] size = line.substring(TEXT_SIZE_COMMENT.length()).trim().split("x");
+                    try {
+                        width = Math.max(width, Integer.parseInt(size[0]));
+                        height = Math.max(height, Integer.parseInt(size[1]));
+                    } catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+                        throw new IOException("Invalid board size: " + line);
+                    }
+                }
+                continue;
+            }
+            width = Math.max(width, line.length());
+            for (int x = line.indexOf('o'); x >= 0; x = line.indexOf('o', x + 1))
+                cells.add((long) y << 32 | x);
+            y++;
+        }
+        height = Math.max(height, y);
+        if ((long) width * height > Integer.MAX_VALUE)
+            throw new IOException("The board is " + width + " by " + height + " cells, too large to play!");
+
+        GameOfLife game = new GameOfLife(new Settings(2, 3, 3, Math.max(width, 1), Math.max(height, 1), true));
+        int boardWidth = game.width();
+        cells.build().forEach(cell -> game.engine.set((int) cell + (int) (cell >>> 32) * boardWidth, true));
+        // there is no history to play the board again from
+        game.keyframes.pin(0, game.snapshot());
         return game;
     }
 
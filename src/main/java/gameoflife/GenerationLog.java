@@ -0,0 +1,355 @@
+package gameoflife;
+
+import gameoflife.engine.AgePlane;
+import gameoflife.engine.LifeEngine;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Every generation a game steps forward through, written to a file, so going to any of them reads it back
+ * rather than replaying it, however long the run and however little of it fits in memory.
+ * <p>
+ * The log is two files that are only ever appended to while the game plays forwards. The data file holds a record
+ * for every generation: either the whole board packed by a {@link CellPacker}, or the cells that were born or died
+ * since the generation before, as the differences between their indices in a variable number of bytes.
+ * A whole board is written once the records since the last one add up to its size, so going to a generation never reads
+ * much more than two whole boards, and the log is never much more than twice the size of the cells that changed.
+ * It is also written every {@link #FULL_INTERVAL} generations at most, and wherever cells were toggled.
+ * The index file holds where every record starts, 8 bytes each. Both are read back through memory mapping,
+ * so a read comes straight from the page cache once the file has been read or written.
+ * <p>
+ * Going to a generation reads back the whole board at or before it and sets the cells of the records after that.
+ * Ages are not written for the records in between, but the age of a cell at the generation follows from when it was
+ * last born, or from its age in the whole board if it was not.
+ * <p>
+ * The log holds the generations in a row from where it started. Toggling cells drops the generations from the step
+ * they were toggled on, which are written again as they are stepped through, starting with a whole board.
+ * Stepping forward from a generation that is not in the log or right after it starts the log again from there.
+ * Dropping generations only moves where the log ends, and their records are written over by the ones after it.
+ * The files are never made shorter while the log is open, so what has been mapped of them stays valid,
+ * and no file has to be truncated while it is mapped, which some systems refuse.
+ */
+class GenerationLog implements Closeable {
+
+    /**
+     * The most generations between whole boards.
+     */
+    static final int FULL_INTERVAL = 1024;
+
+    private static final byte FULL = 0, DELTA = 1;
+
+    private final FileChannel data, index;
+    private final MappedFile dataFile, indexFile;
+    private final CellPacker packer = new CellPacker();
+
+    /**
+     * The first generation in the log and the one after the last, so the log holds the generations from base to end.
+     */
+    private long base, end;
+    /**
+     * The size of the data file, the number of records since the last whole board, and the sizes of the records
+     * since the last whole board and of the whole board.
+     */
+    private long size;
+    private int sinceFull;
+    private long sinceFullBytes, fullBytes;
+
+    /**
+     * The cells that changed in the generation being stepped.
+     */
+    private int[] changes = new int[64];
+    private int changeCount;
+    private ByteBuffer buffer = ByteBuffer.allocate(256);
+    /**
+     * Where the record being written starts, as it is written to the index file.
+     */
+    private final ByteBuffer indexEntry = ByteBuffer.allocate(Long.BYTES);
+    /**
+     * The record being read.
+     */
+    private byte[] record = new byte[256];
+
+    /**
+     * @param path The data file, which the index file is written next to with ".idx" added. Both are emptied.
+     */
+    GenerationLog(Path path) throws IOException {
+        StandardOpenOption[] options = { StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE };
+        this.data = FileChannel.open(path, options);
+        this.index = FileChannel.open(path.resolveSibling(path.getFileName() + ".idx"), options);
+        this.dataFile = new MappedFile(this.data);
+        this.indexFile = new MappedFile(this.index);
+    }
+
+    /**
+     * @return true if a generation is in the log.
+     */
+    boolean contains(long step) {
+        return step >= this.base && step < this.end;
+    }
+
+    /**
+     * @return The number of generations in the log.
+     */
+    long size() {
+        return this.end - this.base;
+    }
+
+    /**
+     * @return The number of bytes in the data file.
+     */
+    long bytes() {
+        return this.size;
+    }
+
+    /**
+     * Get ready to record a generation stepped forward from a step,
+     * starting the log again from the step if it is not in it.
+     */
+    void beforeStep(long step, LifeEngine engine, AgePlane ages) {
+        this.changeCount = 0;
+        if (contains(step))
+            return;
+        if (step != this.end) {
+            clear();
+            this.base = this.end = step;
+        }
+        append(FULL, engine, ages);
+    }
+
+    /**
+     * Record a cell that was born or died in the generation being stepped.
+     */
+    void changed(int index) {
+        if (this.changeCount == this.changes.length)
+            this.changes = Arrays.copyOf(this.changes, this.changeCount * 2);
+        this.changes[this.changeCount++] = index;
+    }
+
+    /**
+     * Write the generation that was stepped to, unless it is in the log already.
+     */
+    void afterStep(long step, LifeEngine engine, AgePlane ages) {
+        if (step != this.end)
+            return;
+        boolean full = this.sinceFull + 1 >= FULL_INTERVAL || this.sinceFullBytes >= this.fullBytes;
+        append(full ? FULL : DELTA, engine, ages);
+    }
+
+    /**
+     * Drop the generations from a step on, since a toggle at the step changed them.
+     * The files keep their size, and the records past the new end are written over as the game steps on.
+     */
+    void truncate(long step) {
+        if (step >= this.end)
+            return;
+        step = Math.max(step, this.base);
+        try {
+            this.size = step == this.base ? 0 : offset(step);
+            this.end = step;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Drop every generation, such as when the game was cleared.
+     */
+    void clear() {
+        truncate(this.base);
+    }
+
+    /**
+     * Set an engine and ages to a generation in the log.
+     * @param ages The ages to set, or null if ages are not being kept.
+     */
+    void restore(long step, LifeEngine engine, AgePlane ages) {
+        try {
+            long full = step;
+            while (record(full, 1).get() != FULL)
+                full--;
+            int length = read(full);
+            this.packer.unpack(Arrays.copyOfRange(this.record, 1, length), engine, ages);
+            if (full == step)
+                return;
+
+            // cells alive in the whole board and still alive at the step are older by the generations in between,
+            // and the cells born after it are as old as the generations since they were last born
+            if (ages != null) {
+                long older = step - full;
+                engine.forEachLiveCell(i -> ages.setAge(i, (int) Math.min(ages.age(i) + older, AgePlane.MAX_AGE)));
+            }
+            int[] position = new int[1];
+            for (long s = full + 1; s <= step; s++) {
+                read(s);
+                position[0] = 1;
+                int count = Varints.read(this.record, position), cell = 0;
+                for (int i = 0; i < count; i++) {
+                    cell += Varints.read(this.record, position);
+                    boolean alive = engine.toggle(cell);
+                    if (ages != null)
+                        ages.setAge(cell, alive ? (int) Math.min(step - s, AgePlane.MAX_AGE) : -1);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.dataFile.invalidate();
+        this.indexFile.invalidate();
+        try (this.data; this.index) {
+            this.data.force(false);
+        }
+    }
+
+    /**
+     * Append the record of the generation after the last one.
+     */
+    private void append(byte type, LifeEngine engine, AgePlane ages) {
+        this.buffer.clear();
+        put(type);
+        if (type == FULL) {
+            byte[] packed = this.packer.pack(engine, ages);
+            ensure(packed.length);
+            this.buffer.put(packed);
+            this.sinceFull = 0;
+            this.sinceFullBytes = 0;
+            this.fullBytes = packed.length;
+        } else {
+            Arrays.sort(this.changes, 0, this.changeCount);
+            writeVarint(this.changeCount);
+            int previous = 0;
+            for (int i = 0; i < this.changeCount; i++) {
+                writeVarint(this.changes[i] - previous);
+                previous = this.changes[i];
+            }
+            this.sinceFull++;
+            this.sinceFullBytes += this.buffer.position();
+        }
+        this.buffer.flip();
+        try {
+            this.indexEntry.clear().putLong(0, this.size);
+            write(this.index, this.indexEntry, (this.end - this.base) * Long.BYTES);
+            this.size += write(this.data, this.buffer, this.size);
+            this.end++;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static int write(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        int written = 0;
+        while (buffer.hasRemaining())
+            written += channel.write(buffer, position + written);
+        return written;
+    }
+
+    /**
+     * @return Where the record of a generation starts in the data file.
+     */
+    private long offset(long step) throws IOException {
+        return this.indexFile.read((step - this.base) * Long.BYTES, Long.BYTES).getLong();
+    }
+
+    /**
+     * @param length The most bytes to read, such as 1 for just the type.
+     * @return The record of a generation, starting with its type.
+     */
+    private ByteBuffer record(long step, int length) throws IOException {
+        long start = offset(step), end = step + 1 < this.end ? offset(step + 1) : this.size;
+        return this.dataFile.read(start, (int) Math.min(end - start, length));
+    }
+
+    /**
+     * Copy the record of a generation into {@link #record}, since reading bytes one at a time from a mapped buffer
+     * is several times slower than from an array.
+     * @return The length of the record.
+     */
+    private int read(long step) throws IOException {
+        ByteBuffer record = record(step, Integer.MAX_VALUE);
+        int length = record.remaining();
+        if (this.record.length < length)
+            this.record = new byte[Math.max(length, this.record.length * 2)];
+        record.get(this.record, 0, length);
+        return length;
+    }
+
+    private void put(byte b) {
+        ensure(1);
+        this.buffer.put(b);
+    }
+
+    private void ensure(int more) {
+        if (this.buffer.remaining() < more) {
+            ByteBuffer bigger = ByteBuffer.allocate(Math.max(this.buffer.capacity() * 2, this.buffer.position() + more));
+            this.buffer.flip();
+            this.buffer = bigger.put(this.buffer);
+        }
+    }
+
+    private void writeVarint(int value) {
+        ensure(Varints.MAX_INT_BYTES);
+        this.buffer.position(Varints.write(this.buffer.array(), this.buffer.position(), value));
+    }
+
+    /**
+     * A file mapped into memory in parts of a gigabyte, since a mapping cannot be larger than 2 gigabytes.
+     * Every part is mapped once, and again only if the file has grown past what was mapped of it.
+     */
+    private static final class MappedFile {
+
+        private static final int PART_BITS = 30;
+        private static final long PART_SIZE = 1L << PART_BITS;
+
+        private final FileChannel channel;
+        private final List<MappedByteBuffer> parts = new ArrayList<>();
+
+        MappedFile(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        /**
+         * @return The bytes from a position in the file.
+         */
+        ByteBuffer read(long position, int length) throws IOException {
+            int part = (int) (position >>> PART_BITS), offset = (int) (position & (PART_SIZE - 1));
+            if (offset + length > PART_SIZE) {
+                // the few reads that cross from one part into the next are copied
+                ByteBuffer copy = ByteBuffer.allocate(length);
+                while (copy.hasRemaining())
+                    this.channel.read(copy, position + copy.position());
+                return copy.flip();
+            }
+            while (this.parts.size() <= part)
+                this.parts.add(null);
+            MappedByteBuffer mapped = this.parts.get(part);
+            if (mapped == null || mapped.capacity() < offset + length) {
+                long start = (long) part << PART_BITS;
+                mapped = this.channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(PART_SIZE, this.channel.size() - start));
+                this.parts.set(part, mapped);
+            }
+            return mapped.slice(offset, length);
+        }
+
+        /**
+         * Forget the mapped parts, once the file is closed.
+         */
+        void invalidate() {
+            this.parts.clear();
+        }
+
+    }
+
+}
@@ -0,0 +1,127 @@
+package gameoflife;
+
+import java.io.*;
+import java.util.Locale;
+
+/**
+ * Runs a saved game from the command line, without a window, such as on a server or in a script:
+ * <pre>
+ * java -cp out gameoflife.Main --headless --in board.gol --generations 100000 --out result.gol --stats
+ * </pre>
+ * Nothing here touches Swing or AWT, so their classes are never loaded, and no display is needed.
+ */
+public class Headless {
+
+    private static final String USAGE = """
+            Usage: --headless --in <file> [--generations <n>] [--out <file>] [--text [--crop] | --keyframes] [--stats]
+              --in <file>          The save to load, in either format.
+              --generations <n>    The number of generations to step forward from the saved step (default 0).
+              --out <file>         Where to save the game after stepping.
+              --text               Save the board as text rather than as a full save.
+              --crop               Only save the smallest rectangle holding the live cells as text.
+              --keyframes          Save the keyframes taken while stepping, so going back in the save is quick.
+              --stats              Print the time taken, the generations per second and the population.""";
+
+    private Headless() {}
+
+    /**
+     * Run a game from the command line.
+     * @param args The command line arguments.
+     * @return The exit code of the program: 0 if the game ran, 1 if the save could not be read or written,
+     *         or 2 if the arguments were wrong.
+     */
+    public static int run(String[] args, PrintStream out, PrintStream err) {
+        File in = null, output = null;
+        long generations = 0;
+        boolean text = false, crop = false, keyframes = false, stats = false;
+        try {
+            for (int i = 0; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--headless" -> {}
+                    case "--in" -> in = new File(value(args, ++i));
+                    case "--out" -> output = new File(value(args, ++i));
+                    case "--generations" -> {
+                        String value = value(args, ++i);
+                        try {
+                            generations = Long.parseLong(value);
+                        } catch (NumberFormatException e) {
+                            throw new IllegalArgumentException("Not a number of generations: " + value);
+                        }
+                        if (generations < 0)
+                            throw new IllegalArgumentException("The number of generations cannot be negative");
+                    }
+                    case "--text" -> text = true;
+                    case "--crop" -> crop = true;
+                    case "--keyframes" -> keyframes = true;
+                    case "--stats" -> stats = true;
+                    default -> throw new IllegalArgumentException("Unknown argument: " + args[i]);
+                }
+            }
+            if (in == null)
+                throw new IllegalArgumentException("No save to load, use --in <file>");
+            if (crop && !text)
+                throw new IllegalArgumentException("Only text saves can be cropped, use --text");
+            if (keyframes && text)
+                throw new IllegalArgumentException("Text saves have no keyframes");
+        } catch (IllegalArgumentException e) {
+            err.println(e.getMessage());
+            err.println(USAGE);
+            return 2;
+        }
+
+        try {
+            long start = System.nanoTime();
+            GameOfLife game;
+            try (var input = new BufferedInputStream(new FileInputStream(in))) {
+                game = GameOfLife.decode(input);
+            }
+            long loaded = System.nanoTime();
+
+            // step one generation at a time until the board is found to repeat, and then skip straight to the end
+            long target = game.getStep() + generations;
+            while (game.getStep() < target && game.getPeriod() == 0)
+                game.step();
+            if (game.getStep() < target)
+                game.stepTo(target);
+            long stepped = System.nanoTime();
+
+            if (output != null) {
+                try (var stream = new BufferedOutputStream(new FileOutputStream(output))) {
+                    if (text)
+                        game.encodeIntoText(stream, crop);
+                    else
+                        game.encodeIntoBytes(stream, keyframes);
+                }
+            }
+            long saved = System.nanoTime();
+
+            if (stats) {
+                double seconds = (stepped - loaded) / 1e9;
+                out.printf(Locale.ROOT, "Loaded %s (%dx%d, %s, step %d) in %.3f s%n", in, game.width(), game.height(),
+                        game.getSettings().describeRule(), target - generations, (loaded - start) / 1e9);
+                out.printf(Locale.ROOT, "Stepped %d generations in %.3f s (%.0f generations/s)%n",
+                        generations, seconds, seconds > 0 ? generations / seconds : 0.0);
+                out.printf(Locale.ROOT, "Population at step %d: %d%n", game.getStep(), game.getEngine().population());
+                if (game.getPeriod() > 0)
+                    out.printf(Locale.ROOT, "Stable, period %d%n", game.getPeriod());
+                if (output != null)
+                    out.printf(Locale.ROOT, "Saved %s in %.3f s%n", output, (saved - stepped) / 1e9);
+            }
+            return 0;
+        } catch (IOException e) {
+            err.println("Error: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    /**
+     * @return The value after an argument.
+     * @throws IllegalArgumentException The argument is the last one.
+     */
+    private static String value(String[] args, int i) {
+        if (i >= args.length)
+            throw new IllegalArgumentException(args[i - 1] + " needs a value");
+        return args[i];
+    }
+
+}
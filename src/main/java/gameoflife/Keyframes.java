@@ -0,0 +1,189 @@
+package gameoflife;
+
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.LongPredicate;
+
+/**
+ * Copies of the board every so many steps, so going to a step that is not cached replays the generations
+ * from the nearest copy before it rather than from the start of the game.
+ * <p>
+ * Keyframes are taken at multiples of an interval, which adapts so that replaying a whole interval
+ * takes about {@link #TARGET_REPLAY_NANOS}, so slow boards get keyframes often and fast boards rarely.
+ * When the keyframes take up more than their memory budget, they are thinned out to every other one,
+ * and the interval is doubled so new keyframes are taken no more often than the ones left.
+ * <p>
+ * A keyframe of a step is taken before or while the toggles of the step are applied, since toggles set cells
+ * to a state rather than flipping them, and the toggles of the step are applied again after restoring it.
+ */
+class Keyframes {
+
+    /**
+     * The system property that sets the memory budget of the keyframes, in megabytes.
+     */
+    static final String BUDGET_PROPERTY = "gameoflife.keyframes.budget";
+
+    /**
+     * How long replaying a whole interval should take, so going back feels instant.
+     */
+    static final long TARGET_REPLAY_NANOS = 20_000_000;
+    private static final long MIN_INTERVAL = 8, MAX_INTERVAL = 1L << 40;
+
+    private final TreeMap<Long, GameOfLife.Snapshot> frames = new TreeMap<>();
+    /**
+     * The step of the keyframe that is never thinned out, such as the board a game was loaded with, or -1 if there is none.
+     */
+    private long pinned = -1;
+    private final long budget;
+    private long bytes;
+
+    /**
+     * The interval that replaying fits into the target time, and the smallest interval thinning has left.
+     */
+    private long replayInterval = MIN_INTERVAL, thinnedInterval = MIN_INTERVAL;
+    /**
+     * The average time a generation takes, in nanoseconds, or 0 before any have been measured.
+     */
+    private double nanosPerGeneration;
+
+    /**
+     * @param budget The most bytes the keyframes may take up.
+     */
+    Keyframes(long budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * @return The memory budget set by the system property, 128 megabytes by default.
+     */
+    static long defaultBudget() {
+        return Long.getLong(BUDGET_PROPERTY, 128) << 20;
+    }
+
+    /**
+     * @return The number of steps between keyframes.
+     */
+    long interval() {
+        return Math.max(this.replayInterval, this.thinnedInterval);
+    }
+
+    /**
+     * @return true if a keyframe should be taken at a step.
+     */
+    boolean isDue(long step) {
+        return step % interval() == 0 && !this.frames.containsKey(step);
+    }
+
+    /**
+     * @return The next step after a step that a keyframe would be taken at.
+     */
+    long nextDue(long step) {
+        return (step / interval() + 1) * interval();
+    }
+
+    /**
+     * Keep a keyframe, thinning out the others if they go over budget.
+     */
+    void put(long step, GameOfLife.Snapshot snapshot) {
+        GameOfLife.Snapshot old = this.frames.put(step, snapshot);
+        if (old != null)
+            this.bytes -= old.memoryEstimate();
+        this.bytes += snapshot.memoryEstimate();
+        while (this.bytes > this.budget && this.frames.size() > (this.pinned >= 0 ? 1 : 0) && this.thinnedInterval < MAX_INTERVAL) {
+            this.thinnedInterval *= 2;
+            removeIf(s -> s % this.thinnedInterval != 0);
+        }
+    }
+
+    /**
+     * Keep a keyframe that is never thinned out, replacing the keyframe that was pinned before.
+     */
+    void pin(long step, GameOfLife.Snapshot snapshot) {
+        this.pinned = step;
+        put(step, snapshot);
+    }
+
+    /**
+     * @return The keyframe at or before a step, or null if there is none.
+     */
+    Map.Entry<Long, GameOfLife.Snapshot> floor(long step) {
+        return this.frames.floorEntry(step);
+    }
+
+    /**
+     * Drop the keyframes after a step, since a toggle at the step changed what comes after it.
+     */
+    void invalidateAfter(long step) {
+        if (this.pinned > step)
+            this.pinned = -1;
+        removeIf(s -> s > step);
+    }
+
+    /**
+     * Drop every keyframe but the pinned one, such as when the keyframes need ages they were taken without.
+     * @return The step and the pinned keyframe, or null if there is none.
+     */
+    Map.Entry<Long, GameOfLife.Snapshot> clearUnpinned() {
+        removeIf(s -> true);
+        return this.pinned >= 0 ? this.frames.firstEntry() : null;
+    }
+
+    /**
+     * Drop every keyframe, the pinned one too, and forget the interval they were taken at and how long generations took.
+     */
+    void clear() {
+        this.frames.clear();
+        this.bytes = 0;
+        this.pinned = -1;
+        this.thinnedInterval = this.replayInterval = MIN_INTERVAL;
+        this.nanosPerGeneration = 0;
+    }
+
+    /**
+     * Measure how long generations take, so the interval fits replaying into the target time.
+     * @param generations The number of generations that were stepped.
+     * @param nanos How long they took.
+     */
+    void measure(long generations, long nanos) {
+        if (generations <= 0)
+            return;
+        double sample = (double) nanos / generations;
+        // follow changes in speed, such as a pattern growing, without jumping at every slow generation
+        this.nanosPerGeneration = this.nanosPerGeneration == 0 ? sample : this.nanosPerGeneration * 0.9 + sample * 0.1;
+        long interval = (long) (TARGET_REPLAY_NANOS / Math.max(this.nanosPerGeneration, 1));
+        this.replayInterval = Math.max(MIN_INTERVAL, Math.min(MAX_INTERVAL, Long.highestOneBit(Math.max(interval, 1))));
+    }
+
+    /**
+     * @return The keyframes by step, which are not to be changed.
+     */
+    NavigableMap<Long, GameOfLife.Snapshot> frames() {
+        return Collections.unmodifiableNavigableMap(this.frames);
+    }
+
+    int size() {
+        return this.frames.size();
+    }
+
+    /**
+     * @return Roughly how many bytes the keyframes take up.
+     */
+    long bytes() {
+        return this.bytes;
+    }
+
+    private void removeIf(LongPredicate remove) {
+        Iterator<Map.Entry<Long, GameOfLife.Snapshot>> iterator = this.frames.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Long, GameOfLife.Snapshot> entry = iterator.next();
+            if (entry.getKey() != this.pinned && remove.test(entry.getKey())) {
+                this.bytes -= entry.getValue().memoryEstimate();
+                iterator.remove();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,172 @@
+package gameoflife;
+
+import gameoflife.engine.LifeEngine;
+
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Works out the generations after a game's current step on another thread while the game is played forwards,
+ * so a slow generation is usually ready by the time it is shown.
+ * <p>
+ * The worker steps its own copy of the board and puts every generation into a bounded queue,
+ * as the cells that changed in it, or as a copy of the engine for engines that go on past the board's edges,
+ * whose cells on the board are not all there is to them.
+ * Moving the game forward takes the next generation from the queue and sets just those cells,
+ * which costs the same however slow the generation was to work out.
+ * <p>
+ * Setting the cells that changed costs about as much as working out a fast generation, so the worker is only
+ * started once a generation takes long enough to work out, a millisecond by default.
+ * <p>
+ * Anything that changes the game other than stepping forward, such as toggling a cell or going back,
+ * makes the generations in the queue wrong. They are thrown away and the worker starts again from the game as it is.
+ * The game is not locked by this class, so it is only changed from one thread at a time,
+ * like every other use of a game.
+ */
+public class LookAhead implements AutoCloseable {
+
+    /**
+     * A generation worked out ahead.
+     * @param task The task that worked it out, so generations of a task that was stopped are thrown away.
+     * @param from The step the generation comes after.
+     * @param changes The indices of the cells that were born or died, or null if the board was copied.
+     * @param engine A copy of the engine at the generation, or null if the cells that changed were kept.
+     */
+    record Generation(long task, long from, int[] changes, LifeEngine engine) {}
+
+    /**
+     * The system property that sets how long a generation has to take to work out for the worker to be started, in nanoseconds.
+     */
+    public static final String MIN_NANOS_PROPERTY = "gameoflife.lookahead.nanos";
+
+    private final GameOfLife game;
+    private final long minNanos = Long.getLong(MIN_NANOS_PROPERTY, 1_000_000);
+    private final BlockingQueue<Generation> queue;
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Look-ahead");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * The task the worker is running, and the revision and step of the game it started from,
+     * or null if it has not been started since the game last changed.
+     */
+    private Future<?> running;
+    private long task, revision;
+
+    /**
+     * @param game The game to look ahead of.
+     * @param depth The most generations worked out ahead.
+     */
+    public LookAhead(GameOfLife game, int depth) {
+        this.game = game;
+        this.queue = new ArrayBlockingQueue<>(depth);
+    }
+
+    /**
+     * Move the game forward one step, using the next generation worked out ahead.
+     * If it is being worked out, this waits for it, which is never longer than working it out here.
+     * If the game has changed since the worker started, the step is worked out here and the worker starts again,
+     * if the step took long enough.
+     */
+    public void step() throws InterruptedException {
+        if (this.running == null || this.revision != this.game.revision()) {
+            long start = System.nanoTime();
+            this.game.step();
+            if (System.nanoTime() - start >= this.minNanos)
+                restart();
+            else
+                invalidate();
+            return;
+        }
+        Generation generation;
+        do {
+            generation = this.queue.poll(10, TimeUnit.MILLISECONDS);
+            if (generation == null && this.running.isDone()) {
+                // the worker failed, which stepping here will most likely show why
+                this.game.step();
+                restart();
+                return;
+            }
+        } while (generation == null || generation.task != this.task);
+        if (generation.from != this.game.getStep()) {
+            this.game.step();
+            restart();
+            return;
+        }
+        this.game.step(generation);
+    }
+
+    /**
+     * Throw away the generations worked out ahead, such as when cells were toggled,
+     * and stop the worker until the game is stepped again.
+     */
+    public void invalidate() {
+        if (this.running != null)
+            this.running.cancel(true);
+        this.running = null;
+        this.queue.clear();
+    }
+
+    /**
+     * @return The number of generations worked out and waiting.
+     */
+    public int ready() {
+        return this.queue.size();
+    }
+
+    /**
+     * Start the worker again from the game as it is.
+     */
+    private void restart() {
+        invalidate();
+        long task = ++this.task;
+        this.revision = this.game.revision();
+        LifeEngine engine = this.game.getEngine().copy();
+        engine.setFingerprinting(false);
+        long from = this.game.getStep();
+        this.running = this.worker.submit(() -> produce(task, engine, from));
+    }
+
+    /**
+     * Step a copy of the board forever, putting every generation into the queue, until the task is stopped.
+     */
+    private void produce(long task, LifeEngine engine, long from) {
+        boolean copied = !engine.isBounded();
+        int[][] changes = { new int[64] };
+        int[] count = new int[1];
+        try {
+            for (long step = from; !Thread.currentThread().isInterrupted(); step++) {
+                Generation generation;
+                if (copied) {
+                    engine.step();
+                    generation = new Generation(task, step, null, engine.copy());
+                } else {
+                    count[0] = 0;
+                    engine.step(index -> {
+                        if (count[0] == changes[0].length)
+                            changes[0] = Arrays.copyOf(changes[0], count[0] * 2);
+                        changes[0][count[0]++] = index;
+                    });
+                    generation = new Generation(task, step, Arrays.copyOf(changes[0], count[0]), null);
+                }
+                this.queue.put(generation);
+            }
+        } catch (InterruptedException e) {
+            // the task was stopped
+        }
+    }
+
+    @Override
+    public void close() {
+        invalidate();
+        this.worker.shutdownNow();
+    }
+
+}
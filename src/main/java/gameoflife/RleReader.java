@@ -0,0 +1,184 @@
+package gameoflife;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Locale;
+import java.util.function.IntConsumer;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Reads a pattern in the run length encoded format other Life programs share, a character at a time,
+ * so a pattern of millions of cells is never held as a string.
+ * <p>
+ * A pattern starts with lines of comments beginning with #, then a header giving its size and rules,
+ * such as {@code x = 3, y = 3, rule = B3/S23}. The cells follow row by row as runs, such as {@code 3o} for three live cells
+ * and {@code 2b} for two dead ones, with {@code $} ending a row and {@code !} ending the pattern.
+ * A bounded grid can follow the rules, such as {@code B3/S23:T100,80} for a torus and {@code :P100,80} for a plane.
+ */
+class RleReader {
+
+    /**
+     * The most cells a pattern may have unless told otherwise, which is about an 8192 by 8192 board.
+     */
+    static final long DEFAULT_LIMIT = 1L << 26;
+
+    /**
+     * The longest a comment or header line is read, so a file that is not a pattern is not read whole looking for one.
+     */
+    private static final int MAX_LINE = 4096;
+
+    private static final Pattern HEADER = Pattern.compile("x\\s*=\\s*(\\d+)\\s*,\\s*y\\s*=\\s*(\\d+)\\s*(?:,\\s*rule\\s*=\\s*(.*))?", Pattern.CASE_INSENSITIVE);
+
+    private final Reader input;
+    private final long limit;
+    private final char[] buffer = new char[8192];
+    private int position, length;
+
+    private int width, height;
+    private String rule;
+    private boolean toroidal = true;
+
+    /**
+     * @param limit The most cells the pattern may have, counting its width times its height.
+     */
+    RleReader(Reader input, long limit) {
+        this.input = input;
+        this.limit = limit;
+    }
+
+    /**
+     * Read the comments and the header.
+     * @throws IOException There is no header, or the pattern has more cells than the limit.
+     */
+    void readHeader() throws IOException {
+        String line;
+        do {
+            line = readLine();
+            if (line == null)
+                throw new IOException("Missing RLE header!");
+            line = line.trim();
+        } while (line.isEmpty() || line.startsWith("#"));
+
+        Matcher matcher = HEADER.matcher(line);
+        if (!matcher.matches())
+            throw new IOException("Invalid RLE header: " + line);
+        long width, height;
+        try {
+            width = Math.max(1, Long.parseLong(matcher.group(1)));
+            height = Math.max(1, Long.parseLong(matcher.group(2)));
+        } catch (NumberFormatException e) {
+            throw new IOException("Invalid RLE header: " + line);
+        }
+        if (width > this.limit || height > this.limit || width * height > this.limit)
+            throw new IOException("The pattern is " + width + " by " + height + " cells, more than the limit of " + this.limit + " cells!");
+        this.width = (int) width;
+        this.height = (int) height;
+
+        // a bounded grid after the rules says whether its edges wrap around, but the board is always the pattern's size
+        String rule = matcher.group(3);
+        if (rule != null) {
+            rule = rule.trim();
+            int grid = rule.indexOf(':');
+            if (grid >= 0) {
+                this.toroidal = !rule.substring(grid + 1).trim().toUpperCase(Locale.ROOT).startsWith("P");
+                rule = rule.substring(0, grid).trim();
+            }
+            this.rule = rule.isEmpty() ? null : rule;
+        }
+    }
+
+    /**
+     * Read the cells, up to the end of the pattern or of the input.
+     * @param alive Receives the index (x + y * width) of every live cell, in order.
+     * @throws IOException The cells do not fit in the size given by the header, or are not written as runs.
+     */
+    void readCells(IntConsumer alive) throws IOException {
+        int width = this.width;
+        long x = 0, y = 0, run = 0;
+        for (int c = read(); c != -1 && c != '!'; c = read()) {
+            if (c >= '0' && c <= '9') {
+                run = run * 10 + (c - '0');
+                if (run > this.limit)
+                    throw new IOException("Run of " + run + " cells is longer than the pattern!");
+                continue;
+            }
+            long count = Math.max(run, 1);
+            run = 0;
+            switch (c) {
+                case 'b', '.' -> x += count;
+                case '$' -> {
+                    x = 0;
+                    y += count;
+                }
+                case ' ', '\t', '\r', '\n' -> {}
+                default -> {
+                    // the live cells are written as o, or as a letter for every state in patterns with more than two
+                    if (!(c >= 'A' && c <= 'Z' || c >= 'a' && c <= 'z'))
+                        throw new IOException("Unexpected '" + (char) c + "' in RLE pattern!");
+                    if (y >= this.height)
+                        throw new IOException("The pattern is taller than its header says!");
+                    if (x + count > width)
+                        throw new IOException("The pattern is wider than its header says!");
+                    for (int index = (int) (x + y * width), end = (int) (index + count); index < end; index++)
+                        alive.accept(index);
+                    x += count;
+                }
+            }
+            if (x > width)
+                throw new IOException("The pattern is wider than its header says!");
+        }
+    }
+
+    int width() {
+        return this.width;
+    }
+
+    int height() {
+        return this.height;
+    }
+
+    /**
+     * @return The rulestring of the pattern, or null if it has none.
+     */
+    String rule() {
+        return this.rule;
+    }
+
+    /**
+     * @return true unless the rules say the pattern is on a bounded plane whose edges do not wrap around.
+     */
+    boolean toroidal() {
+        return this.toroidal;
+    }
+
+    private int read() throws IOException {
+        if (this.position == this.length) {
+            this.length = this.input.read(this.buffer);
+            this.position = 0;
+            if (this.length <= 0) {
+                this.length = 0;
+                return -1;
+            }
+        }
+        return this.buffer[this.position++];
+    }
+
+    /**
+     * @return The next line without its line break, or null at the end of the input.
+     */
+    private String readLine() throws IOException {
+        StringBuilder line = new StringBuilder();
+        int c = read();
+        if (c == -1)
+            return null;
+        for (; c != -1 && c != '\n'; c = read()) {
+            if (line.length() == MAX_LINE)
+                throw new IOException("Missing RLE header!");
+            if (c != '\r')
+                line.append((char) c);
+        }
+        return line.toString();
+    }
+
+}
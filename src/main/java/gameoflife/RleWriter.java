@@ -0,0 +1,100 @@
+package gameoflife;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * Writes a pattern in the run length encoded format other Life programs share, read by a {@link RleReader}.
+ * The live cells are handed over one at a time in order, and written as they come as runs of live and dead cells,
+ * so the pattern is never held as a string. Dead cells at the end of a row and empty rows at the end are left out,
+ * and lines are wrapped at 70 characters, as the format asks.
+ */
+class RleWriter {
+
+    private static final int LINE_LENGTH = 70;
+
+    private final Writer output;
+    private final int width;
+    private final char[] digits = new char[20];
+    private int line;
+
+    /**
+     * Where the cells written so far end, and the run of live cells not yet written, which is empty if it ends where it starts.
+     */
+    private long x, y;
+    private long runStart, runEnd, runY;
+
+    /**
+     * Write the header.
+     * @param output The writer to write to, which is best buffered.
+     * @param rule The rulestring, with the grid after it if there is one.
+     */
+    RleWriter(Writer output, int width, int height, String rule) throws IOException {
+        this.output = output;
+        this.width = width;
+        output.write("x = " + width + ", y = " + height + ", rule = " + rule + "\n");
+    }
+
+    /**
+     * Write a live cell, after every live cell before it.
+     * @param index The index of the cell, x + y * width.
+     */
+    void live(int index) throws IOException {
+        long x = index % this.width, y = index / this.width;
+        if (y == this.runY && x == this.runEnd) {
+            this.runEnd++;
+            return;
+        }
+        flush();
+        this.runStart = x;
+        this.runEnd = x + 1;
+        this.runY = y;
+    }
+
+    /**
+     * Write the end of the pattern, which leaves the writer to be flushed or closed.
+     */
+    void finish() throws IOException {
+        flush();
+        run(1, '!');
+        this.output.write('\n');
+    }
+
+    /**
+     * Write the run of live cells not yet written, and the rows and dead cells before it.
+     */
+    private void flush() throws IOException {
+        if (this.runEnd == this.runStart)
+            return;
+        if (this.runY > this.y) {
+            run(this.runY - this.y, '$');
+            this.x = 0;
+            this.y = this.runY;
+        }
+        if (this.runStart > this.x)
+            run(this.runStart - this.x, 'b');
+        run(this.runEnd - this.runStart, 'o');
+        this.x = this.runEnd;
+        this.runStart = this.runEnd;
+    }
+
+    /**
+     * Write a run of cells or rows, leaving out the count of a run of one, and starting a line if it would not fit.
+     */
+    private void run(long count, char tag) throws IOException {
+        int start = this.digits.length;
+        if (count > 1) {
+            for (long n = count; n > 0; n /= 10)
+                this.digits[--start] = (char) ('0' + n % 10);
+        }
+        int length = this.digits.length - start + 1;
+        if (this.line + length > LINE_LENGTH) {
+            this.output.write('\n');
+            this.line = 0;
+        }
+        this.output.write(this.digits, start, this.digits.length - start);
+        this.output.write(tag);
+        this.line += length;
+    }
+
+}
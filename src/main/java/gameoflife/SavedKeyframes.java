@@ -0,0 +1,154 @@
+package gameoflife;
+
+import gameoflife.engine.AgePlane;
+import gameoflife.engine.LifeEngine;
+
+import java.io.ByteArrayInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.NavigableSet;
+import java.util.TreeMap;
+
+/**
+ * The keyframes written into a save file, which are only read from the file once going to a step reaches them,
+ * so a long game opens as quickly as a short one, and going back in it does not replay it from the start.
+ * <p>
+ * The keyframes follow the history in the file, each packed by a {@link CellPacker}, and are followed by an index
+ * of their steps and sizes. The file ends with {@link #TRAILER_SIZE} bytes: where the index starts and {@link #MAGIC}.
+ * Only the index is read when the file is opened. A keyframe is read with a single read at its position,
+ * from a file that is opened for it and closed again, so nothing is held open between seeks.
+ * If the file has changed since, such as when it was saved over, the keyframes are no longer read.
+ */
+class SavedKeyframes {
+
+    static final byte[] MAGIC = { 'g', '2', '2', 'k' };
+    static final int TRAILER_SIZE = Long.BYTES + 4;
+
+    private final Path path;
+    /**
+     * The size of the file and when it was changed, as they were when it was opened.
+     */
+    private final long size;
+    private final FileTime modified;
+    /**
+     * Where the keyframe of every step starts in the file, and how many bytes it takes.
+     */
+    private final TreeMap<Long, long[]> frames;
+    private final CellPacker packer = new CellPacker();
+
+    private SavedKeyframes(Path path, long size, FileTime modified, TreeMap<Long, long[]> frames) {
+        this.path = path;
+        this.size = size;
+        this.modified = modified;
+        this.frames = frames;
+    }
+
+    /**
+     * Read the index of the keyframes in a save file.
+     * @return The keyframes, or null if the file has none.
+     * @throws IOException The file could not be read, or its index is not correct.
+     */
+    static SavedKeyframes open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long size = channel.size();
+            FileTime modified = Files.getLastModifiedTime(path);
+            if (size < GameOfLife.FILE_SIGNATURE.length + 1 + TRAILER_SIZE)
+                return null;
+            ByteBuffer trailer = read(channel, size - TRAILER_SIZE, TRAILER_SIZE);
+            long indexStart = trailer.getLong();
+            byte[] magic = new byte[MAGIC.length];
+            trailer.get(magic);
+            if (!Arrays.equals(magic, MAGIC))
+                return null;
+            if (indexStart < 0 || indexStart > size - TRAILER_SIZE)
+                throw new IOException("Invalid keyframe index!");
+
+            ByteBuffer index = read(channel, indexStart, (int) (size - TRAILER_SIZE - indexStart));
+            DataInputStream stream = new DataInputStream(new ByteArrayInputStream(index.array()));
+            TreeMap<Long, long[]> frames = new TreeMap<>();
+            long count = Varints.read(stream), step = 0, offset = Varints.read(stream);
+            for (long i = 0; i < count; i++) {
+                step += Varints.read(stream);
+                long length = Varints.read(stream);
+                if (offset + length > indexStart)
+                    throw new IOException("Invalid keyframe index!");
+                frames.put(step, new long[] { offset, length });
+                offset += length;
+            }
+            return frames.isEmpty() ? null : new SavedKeyframes(path, size, modified, frames);
+        } catch (EOFException e) {
+            throw new IOException("Invalid keyframe index!");
+        }
+    }
+
+    /**
+     * @return The steps that have keyframes, in order.
+     */
+    NavigableSet<Long> steps() {
+        return this.frames.navigableKeySet();
+    }
+
+    /**
+     * @return The step of the keyframe at or before a step, or -1 if there is none.
+     */
+    long floor(long step) {
+        Long floor = this.frames.floorKey(step);
+        return floor != null ? floor : -1;
+    }
+
+    /**
+     * Drop the keyframes after a step, since a toggle at the step changed what comes after it.
+     */
+    void invalidateAfter(long step) {
+        this.frames.tailMap(step, false).clear();
+    }
+
+    boolean isEmpty() {
+        return this.frames.isEmpty();
+    }
+
+    /**
+     * @return The packed keyframe of a step.
+     * @throws IOException The file could not be read, or has changed since it was opened.
+     */
+    byte[] read(long step) throws IOException {
+        long[] frame = this.frames.get(step);
+        try (FileChannel channel = FileChannel.open(this.path, StandardOpenOption.READ)) {
+            if (channel.size() != this.size || !Files.getLastModifiedTime(this.path).equals(this.modified))
+                throw new IOException("The save file has changed: " + this.path);
+            return read(channel, frame[0], (int) frame[1]).array();
+        }
+    }
+
+    /**
+     * Set an engine and ages to the keyframe of a step.
+     * @param ages The ages to set, or null if ages are not being kept. Keyframes saved without ages set them to 0.
+     * @throws IOException The file could not be read, has changed since it was opened, or holds a keyframe the board cannot have.
+     */
+    void restore(long step, LifeEngine engine, AgePlane ages) throws IOException {
+        byte[] packed = read(step);
+        try {
+            this.packer.unpack(packed, engine.width() * engine.height(), engine, ages);
+        } catch (IOException e) {
+            throw new IOException("Invalid keyframe of step " + step + "!", e);
+        }
+    }
+
+    private static ByteBuffer read(FileChannel channel, long position, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0)
+                throw new EOFException();
+        }
+        return buffer.flip();
+    }
+
+}
@@ -0,0 +1,186 @@
+package gameoflife;
+
+import gameoflife.engine.LongLongConsumer;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Goes to other steps of a game on another thread, so a long replay does not hold up the thread that asked for it,
+ * such as the one that draws the window.
+ * <p>
+ * Every seek returns a future that completes with the step reached, and can be told how far the replay has got.
+ * Only the newest seek matters: one asked for while another is waiting to start replaces it, and one asked for while
+ * another is replaying stops that replay where it has got to, so seeking again and again never queues up work.
+ * The futures of seeks that were replaced or stopped are cancelled. Going back one step at a time is the exception,
+ * since every click should count: the steps asked for while waiting add up, and a replay going back is not stopped
+ * by another step back.
+ * <p>
+ * The game is changed while holding a lock, which everything else that changes the game has to hold too.
+ * They should {@link #cancel()} first, so they do not wait for a replay to finish.
+ */
+public class Seeker implements AutoCloseable {
+
+    /**
+     * A seek waiting to start or being replayed.
+     */
+    private static final class Request {
+        /**
+         * The step to go to, or the number of steps to go back if going back.
+         */
+        private long step;
+        private final boolean back;
+        private final LongLongConsumer progress;
+        private final CompletableFuture<Long> future = new CompletableFuture<>();
+
+        Request(long step, boolean back, LongLongConsumer progress) {
+            this.step = step;
+            this.back = back;
+            this.progress = progress;
+        }
+    }
+
+    private final GameOfLife game;
+    private final Object lock;
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "Seek");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    /**
+     * The seek waiting to start and the one being replayed, or null if there are none,
+     * and the task replaying it, so it can be interrupted.
+     */
+    private Request pending, running;
+    private Future<?> task;
+
+    /**
+     * @param game The game to seek in.
+     * @param lock The lock held while the game is changed.
+     */
+    public Seeker(GameOfLife game, Object lock) {
+        this.game = game;
+        this.lock = lock;
+    }
+
+    /**
+     * Go to a step, replacing the seek waiting to start and stopping the one being replayed.
+     * @param progress Told the number of generations replayed and the number to replay, on the seek's thread, or null.
+     * @return The step reached, or a cancelled future if the seek was replaced or stopped first.
+     */
+    public synchronized CompletableFuture<Long> seek(long step, LongLongConsumer progress) {
+        stop();
+        this.pending = new Request(step, false, progress);
+        submit();
+        return this.pending.future;
+    }
+
+    /**
+     * Go back a step from where the seeks before have got to, adding up with the steps back waiting to start.
+     * @param progress Told the number of generations replayed and the number to replay, on the seek's thread, or null.
+     * @return The step reached, which is shared with the steps back it was added up with.
+     */
+    public synchronized CompletableFuture<Long> stepBack(LongLongConsumer progress) {
+        if (this.pending != null && this.pending.back) {
+            this.pending.step++;
+            return this.pending.future;
+        }
+        if (this.pending != null)
+            this.pending.future.cancel(false);
+        if (this.running != null && !this.running.back) {
+            this.running.future.cancel(false);
+            this.task.cancel(true);
+        }
+        this.pending = new Request(1, true, progress);
+        submit();
+        return this.pending.future;
+    }
+
+    /**
+     * Stop the seek being replayed and drop the one waiting to start, leaving the game where the replay had got to.
+     */
+    public synchronized void cancel() {
+        stop();
+        this.pending = null;
+    }
+
+    /**
+     * @return true if a seek is waiting to start or being replayed.
+     */
+    public synchronized boolean isSeeking() {
+        return this.pending != null || this.running != null;
+    }
+
+    private void stop() {
+        if (this.pending != null)
+            this.pending.future.cancel(false);
+        if (this.running != null)
+            this.running.future.cancel(false);
+        if (this.task != null)
+            this.task.cancel(true);
+    }
+
+    private void submit() {
+        // a task is submitted for every seek, but the ones after the first find nothing waiting and return
+        this.task = this.worker.submit(this::replay);
+    }
+
+    /**
+     * Replay the seek waiting to start, if there still is one.
+     */
+    private void replay() {
+        Request request;
+        synchronized (this) {
+            request = this.pending;
+            this.pending = null;
+            this.running = request;
+            // an interrupt that came before the seek was taken was meant for the one before it
+            Thread.interrupted();
+        }
+        if (request == null)
+            return;
+        // the future is cancelled when the seek is replaced, which stops the replay even if the interrupt came too early
+        LongLongConsumer progress = (done, total) -> {
+            if (request.future.isDone())
+                Thread.currentThread().interrupt();
+            else if (request.progress != null)
+                request.progress.accept(done, total);
+        };
+        boolean reached = true;
+        long step = 0;
+        Throwable failure = null;
+        try {
+            synchronized (this.lock) {
+                if (request.back) {
+                    for (long i = 0; i < request.step && reached && this.game.getStep() > 0; i++)
+                        reached = this.game.stepBack(progress);
+                } else {
+                    reached = this.game.stepTo(request.step, progress);
+                }
+                step = this.game.getStep();
+            }
+        } catch (RuntimeException | Error e) {
+            failure = e;
+        }
+        // done before the future completes, so whatever it runs sees no seek going on
+        synchronized (this) {
+            this.running = null;
+        }
+        if (failure != null)
+            request.future.completeExceptionally(failure);
+        else if (reached)
+            request.future.complete(step);
+        else
+            request.future.cancel(false);
+    }
+
+    @Override
+    public synchronized void close() {
+        cancel();
+        this.worker.shutdownNow();
+    }
+
+}
@@ -0,0 +1,153 @@
+package gameoflife;
+
+import gameoflife.engine.AgePlane;
+import gameoflife.engine.LifeEngine;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * The steps just before one that was gone to, so going back through them does not replay every one,
+ * kept under a memory budget.
+ * <p>
+ * Steps of a bounded board are packed by a {@link CellPacker} rather than copied,
+ * which takes a few bytes for every run of live cells rather than a bit or a byte for every cell. Engines that go on past the board's edges
+ * cannot be set back from the cells on the board, so they are copied, and only their ages are packed.
+ * <p>
+ * When the steps take up more than the budget, the ones furthest from the step being cached are dropped first,
+ * since going back reaches those last.
+ */
+class SnapshotCache {
+
+    /**
+     * The system property that sets the memory budget of the cache, in megabytes.
+     */
+    static final String BUDGET_PROPERTY = "gameoflife.cache.budget";
+
+    /**
+     * Roughly how many bytes a cached step takes up besides its contents.
+     */
+    private static final int OVERHEAD = 64;
+
+    /**
+     * A cached step, either packed or copied.
+     * @param packed The packed cells and ages, or null if the engine was copied without ages.
+     * @param copy The copied engine, or null if the step was packed.
+     */
+    private record Entry(byte[] packed, LifeEngine copy, long bytes) {}
+
+    private final TreeMap<Long, Entry> entries = new TreeMap<>();
+    private final long budget;
+    private long bytes;
+    private long hits, misses, evictions;
+
+    private final CellPacker packer = new CellPacker();
+
+    /**
+     * @param budget The most bytes the cached steps may take up.
+     */
+    SnapshotCache(long budget) {
+        this.budget = budget;
+    }
+
+    /**
+     * @return The memory budget set by the system property, 64 megabytes by default.
+     */
+    static long defaultBudget() {
+        return Long.getLong(BUDGET_PROPERTY, 64) << 20;
+    }
+
+    /**
+     * @return true if a step is cached.
+     */
+    boolean contains(long step) {
+        return this.entries.containsKey(step);
+    }
+
+    /**
+     * Cache a step, dropping the steps furthest from it if the cache goes over budget.
+     * @param ages The ages of the cells, or null if ages are not being kept.
+     */
+    void put(long step, LifeEngine engine, AgePlane ages) {
+        Entry entry;
+        if (engine.isBounded()) {
+            byte[] packed = this.packer.pack(engine, ages);
+            entry = new Entry(packed, null, packed.length + OVERHEAD);
+        } else {
+            LifeEngine copy = engine.copy();
+            byte[] packed = ages != null ? this.packer.pack(engine, ages) : null;
+            entry = new Entry(packed, copy, copy.memoryEstimate() + (packed != null ? packed.length : 0) + OVERHEAD);
+        }
+        if (entry.bytes > this.budget)
+            return;
+        Entry old = this.entries.put(step, entry);
+        if (old != null)
+            this.bytes -= old.bytes;
+        this.bytes += entry.bytes;
+        while (this.bytes > this.budget) {
+            Map.Entry<Long, Entry> first = this.entries.firstEntry(), last = this.entries.lastEntry();
+            long furthest = step - first.getKey() >= last.getKey() - step ? first.getKey() : last.getKey();
+            this.bytes -= this.entries.remove(furthest).bytes;
+            this.evictions++;
+        }
+    }
+
+    /**
+     * Set an engine and ages to a cached step.
+     * @param engine The engine to set the cells of.
+     * @param ages The ages to set, or null if ages are not being kept.
+     * @return The engine holding the step, which is the engine given unless the step was copied,
+     *         or null if the step is not cached.
+     */
+    LifeEngine restore(long step, LifeEngine engine, AgePlane ages) {
+        Entry entry = this.entries.get(step);
+        if (entry == null) {
+            this.misses++;
+            return null;
+        }
+        this.hits++;
+        LifeEngine restored = entry.copy != null ? entry.copy.copy() : engine;
+        if (entry.packed != null)
+            this.packer.unpack(entry.packed, entry.copy != null ? null : engine, ages);
+        return restored;
+    }
+
+    /**
+     * Drop the steps from a step on, since a toggle at the step changed them.
+     */
+    void invalidateFrom(long step) {
+        Map<Long, Entry> dropped = this.entries.tailMap(step, true);
+        for (Entry entry : dropped.values())
+            this.bytes -= entry.bytes;
+        dropped.clear();
+    }
+
+    void clear() {
+        this.entries.clear();
+        this.bytes = 0;
+    }
+
+    int size() {
+        return this.entries.size();
+    }
+
+    /**
+     * @return Roughly how many bytes the cached steps take up.
+     */
+    long bytes() {
+        return this.bytes;
+    }
+
+    long hits() {
+        return this.hits;
+    }
+
+    long misses() {
+        return this.misses;
+    }
+
+    long evictions() {
+        return this.evictions;
+    }
+
+}
@@ -0,0 +1,83 @@
+package gameoflife;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Numbers in a variable number of bytes, 7 bits to a byte from the lowest, with the top bit set on every byte but the last,
+ * so small numbers take a single byte. The packed boards, the journal, the generation log and the save format all write them.
+ * <p>
+ * Numbers that may be negative are {@link #zigzag(long) zigzagged} first, so they are small when they are close to 0 either way.
+ */
+final class Varints {
+
+    /**
+     * The most bytes an int takes.
+     */
+    static final int MAX_INT_BYTES = 5;
+
+    private Varints() {}
+
+    /**
+     * Write an int, read as unsigned, into an array with room for {@link #MAX_INT_BYTES} bytes at the position.
+     * @return The position after the number.
+     */
+    static int write(byte[] bytes, int position, int value) {
+        while ((value & ~0x7F) != 0) {
+            bytes[position++] = (byte) (value & 0x7F | 0x80);
+            value >>>= 7;
+        }
+        bytes[position++] = (byte) value;
+        return position;
+    }
+
+    /**
+     * Read an int written by {@link #write(byte[], int, int)}.
+     * @param position The position to read from, which is moved past the number.
+     */
+    static int read(byte[] bytes, int[] position) {
+        int value = 0;
+        for (int shift = 0; ; shift += 7) {
+            byte b = bytes[position[0]++];
+            value |= (b & 0x7F) << shift;
+            if (b >= 0)
+                return value;
+        }
+    }
+
+    static void write(DataOutput output, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            output.writeByte((int) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        output.writeByte((int) value);
+    }
+
+    /**
+     * Read a long written by {@link #write(DataOutput, long)}.
+     * @throws IOException The number runs on for more bytes than a long takes, or could not be read.
+     */
+    static long read(DataInput input) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            byte b = input.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0)
+                return value;
+        }
+        throw new IOException("Invalid number in save!");
+    }
+
+    /**
+     * @return A number that may be negative, as one that is small when the number is close to 0 either way.
+     */
+    static long zigzag(long value) {
+        return value << 1 ^ value >> 63;
+    }
+
+    static long unzigzag(long value) {
+        return value >>> 1 ^ -(value & 1);
+    }
+
+}
@@ -0,0 +1,140 @@
+package gameoflife.engine;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * The ages of every cell on a board, one byte per cell, counting up to {@link #MAX_AGE} and then staying there.
+ * Ages are only used for drawing, so a game only keeps an age plane while something asks for it.
+ */
+public class AgePlane {
+
+    /**
+     * The age cells stop counting at, which is when they are drawn in their final color.
+     */
+    public static final int MAX_AGE = 50;
+
+    /**
+     * The age of every cell plus one, or 0 for dead cells,
+     * and the buffer the ages of the next generation are written into, which copies only make when they step.
+     */
+    private byte[] ages, next;
+
+    /**
+     * Told about the cells that reach the oldest age in the step being made, or null.
+     */
+    private IntConsumer saturated;
+
+    /**
+     * Ages a live cell by one generation, created once so stepping does not allocate.
+     */
+    private final IntConsumer advance = index -> {
+        int age = this.ages[index];
+        if (age == MAX_AGE && this.saturated != null)
+            this.saturated.accept(index);
+        this.next[index] = (byte) (age == 0 ? 1 : Math.min(age + 1, MAX_AGE + 1));
+    };
+
+    /**
+     * @param size The number of cells on the board (width * height).
+     */
+    public AgePlane(int size) {
+        this.ages = new byte[size];
+        this.next = new byte[size];
+    }
+
+    private AgePlane(AgePlane other) {
+        this.ages = other.ages.clone();
+    }
+
+    /**
+     * @param index The index of the cell.
+     * @return The age of the cell, or -1 if it is dead.
+     */
+    public int age(int index) {
+        return this.ages[index] - 1;
+    }
+
+    /**
+     * Set the age of a cell.
+     * @param index The index of the cell.
+     * @param age The new age of the cell, or -1 if it is dead.
+     */
+    public void setAge(int index, int age) {
+        this.ages[index] = (byte) (Math.min(age, MAX_AGE) + 1);
+    }
+
+    /**
+     * Age the cells that survived into the engine's current generation, and start the ones that were born at 0.
+     * @param engine The engine, which has just stepped one generation.
+     */
+    public void step(LifeEngine engine) {
+        if (this.next == null)
+            this.next = new byte[this.ages.length];
+        else
+            Arrays.fill(this.next, (byte) 0);
+        engine.forEachLiveCell(this.advance);
+        byte[] swap = this.ages;
+        this.ages = this.next;
+        this.next = swap;
+    }
+
+    /**
+     * Age the cells like {@link #step(LifeEngine)}, and tell an action about the cells that reach {@link #MAX_AGE},
+     * since going back cannot tell them apart from the cells that were already there.
+     * @param engine The engine, which has just stepped one generation.
+     * @param saturated Receives the index of every cell that was one younger than the oldest age.
+     */
+    public void step(LifeEngine engine, IntConsumer saturated) {
+        this.saturated = saturated;
+        try {
+            step(engine);
+        } finally {
+            this.saturated = null;
+        }
+    }
+
+    /**
+     * Take the ages of the engine's live cells back one generation, which kills the cells that were born in it.
+     * Cells at {@link #MAX_AGE} stay there, so the ones that only just reached it have to be set back apart.
+     * @param engine The engine, whose live cells are the ones of the generation being gone back from.
+     */
+    public void stepBack(LifeEngine engine) {
+        engine.forEachLiveCell(index -> {
+            if (this.ages[index] <= MAX_AGE)
+                this.ages[index]--;
+        });
+    }
+
+    /**
+     * Give every live cell of the engine the same age, such as after generations were skipped.
+     * @param engine The engine to take the live cells from.
+     * @param age The age of every live cell.
+     */
+    public void fill(LifeEngine engine, int age) {
+        Arrays.fill(this.ages, (byte) 0);
+        engine.forEachLiveCell(index -> setAge(index, age));
+    }
+
+    /**
+     * Kill every cell.
+     */
+    public void clear() {
+        Arrays.fill(this.ages, (byte) 0);
+    }
+
+    /**
+     * @return Roughly how many bytes the plane takes up.
+     */
+    public long memoryEstimate() {
+        return this.ages.length * (this.next == null ? 1L : 2L);
+    }
+
+    /**
+     * @return An independent copy of this plane.
+     */
+    public AgePlane copy() {
+        return new AgePlane(this);
+    }
+
+}
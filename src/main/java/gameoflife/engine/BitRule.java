@@ -0,0 +1,87 @@
+package gameoflife.engine;
+
+import java.util.stream.IntStream;
+
+/**
+ * The rules of a game, applied to 64 cells at once: the neighbor counts are added up
+ * with bitwise full adders, one bit of every count per word.
+ */
+final class BitRule {
+
+    /**
+     * The neighbor counts that keep a live cell alive and also bring a dead cell to life,
+     * the ones that only keep a live cell alive, and the ones that only bring a dead cell to life.
+     */
+    final int[] either, surviveOnly, birthOnly;
+    /**
+     * If the rules are Conway's (survive on 2 or 3, born on 3), which have a shorter formula.
+     */
+    final boolean conway;
+
+    BitRule(Rule rule) {
+        int survive = rule.surviveMask(), birth = rule.birthMask();
+        this.either = counts(survive & birth);
+        this.surviveOnly = counts(survive & ~birth);
+        this.birthOnly = counts(birth & ~survive);
+        this.conway = rule.equals(Rule.CONWAY);
+    }
+
+    /**
+     * @return The neighbor counts in a mask, with bit n set for a count of n.
+     */
+    private static int[] counts(int mask) {
+        return IntStream.range(0, 9).filter(n -> (mask & (1 << n)) != 0).toArray();
+    }
+
+    /**
+     * Count the eight neighbor planes with full adders and apply the rules to 64 cells at once.
+     * @param alive The current state of the 64 cells.
+     * @return The next state of the 64 cells.
+     */
+    long apply(long alive, long n0, long n1, long n2, long n3, long n4, long n5, long n6, long n7) {
+        // add the row above, the row below, and the two side neighbors
+        long s1 = n0 ^ n1 ^ n2, c1 = (n0 & n1) | (n2 & (n0 ^ n1));
+        long s2 = n5 ^ n6 ^ n7, c2 = (n5 & n6) | (n7 & (n5 ^ n6));
+        long s3 = n3 ^ n4, c3 = n3 & n4;
+
+        // combine the partial sums into a 4 bit count per cell
+        long bit0 = s1 ^ s2 ^ s3, k = (s1 & s2) | (s3 & (s1 ^ s2));
+        long t0 = c1 ^ c2 ^ c3, t1 = (c1 & c2) | (c3 & (c1 ^ c2));
+        long bit1 = t0 ^ k, u = t0 & k;
+        long bit2 = t1 ^ u, bit3 = t1 & u;
+
+        if (conway)
+            return bit1 & ~bit2 & ~bit3 & (bit0 | alive);
+        return other(alive, bit0, bit1, bit2, bit3);
+    }
+
+    /**
+     * Apply rules other than Conway's to the bit sliced counts, kept apart so the adders stay small enough to inline.
+     */
+    private long other(long alive, long bit0, long bit1, long bit2, long bit3) {
+        // a count of 8 is the only one with bit 3 set, and then the other bits are clear,
+        // so counts under 4 are the ones with neither bit 2 nor bit 3
+        long low = ~(bit2 | bit3);
+        long kept = 0, survived = 0, born = 0;
+        for (int n : either)
+            kept |= count(n, bit0, bit1, low, bit2, bit3);
+        for (int n : surviveOnly)
+            survived |= count(n, bit0, bit1, low, bit2, bit3);
+        for (int n : birthOnly)
+            born |= count(n, bit0, bit1, low, bit2, bit3);
+        return kept | (alive & survived) | (~alive & born);
+    }
+
+    /**
+     * @param low A mask of the cells whose count is under 4.
+     * @return A mask of every cell whose bit sliced count equals n.
+     */
+    private static long count(int n, long bit0, long bit1, long low, long bit2, long bit3) {
+        if (n == 8)
+            return bit3;
+        return ((n & 1) != 0 ? bit0 : ~bit0)
+                & ((n & 2) != 0 ? bit1 : ~bit1)
+                & (n < 4 ? low : bit2);
+    }
+
+}
@@ -0,0 +1,253 @@
+package gameoflife.engine;
+
+import java.util.Arrays;
+
+/**
+ * A map from cell indices to int values, such as neighbor counts, stored in two flat arrays with
+ * open addressing and linear probing, so nothing is boxed. Keys must not be negative.
+ * Each entry costs 8 bytes per slot, or 4 for a map of keys only, as a {@link CellSet} uses.
+ * The table is kept at most half full, and is made smaller again once it is four times larger than it needs to be.
+ */
+public class CellMap {
+
+    private static final int EMPTY = -1;
+
+    private int[] keys;
+    /**
+     * The value of the key in every slot, or null if the map only holds keys.
+     */
+    private int[] values;
+    private int size;
+    /**
+     * The number of slots minus one, used to wrap probes around the table.
+     */
+    private int mask;
+
+    public CellMap() {
+        this(16);
+    }
+
+    /**
+     * @param expected The number of entries the map should hold without growing.
+     */
+    public CellMap(int expected) {
+        this(expected, true);
+    }
+
+    /**
+     * @param expected The number of entries the map should hold without growing.
+     * @param values false for a map that only holds keys, which are added with {@link #addKey(int)}.
+     */
+    CellMap(int expected, boolean values) {
+        int capacity = capacityFor(expected);
+        this.keys = new int[capacity];
+        this.values = values ? new int[capacity] : null;
+        this.mask = capacity - 1;
+        Arrays.fill(this.keys, EMPTY);
+    }
+
+    /**
+     * @return The number of slots for a number of entries, a power of two at least twice as large.
+     */
+    private static int capacityFor(int expected) {
+        return Integer.highestOneBit(Math.max(expected, 4) * 2 - 1) << 1;
+    }
+
+    /**
+     * Spread the bits of a key, so rows of neighboring cells do not cluster in the table.
+     */
+    private static int hash(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * @return The slot holding the key, or the empty slot it would be placed in.
+     */
+    private int slot(int key) {
+        int slot = hash(key) & mask;
+        while (keys[slot] != EMPTY && keys[slot] != key)
+            slot = (slot + 1) & mask;
+        return slot;
+    }
+
+    public int size() {
+        return this.size;
+    }
+
+    public boolean isEmpty() {
+        return this.size == 0;
+    }
+
+    public boolean containsKey(int key) {
+        return keys[slot(key)] == key;
+    }
+
+    /**
+     * @param key The key to look up.
+     * @param missing The value to return if the key is not in the map.
+     * @return The value of the key, or the missing value.
+     */
+    public int get(int key, int missing) {
+        int slot = slot(key);
+        return keys[slot] == key ? values[slot] : missing;
+    }
+
+    /**
+     * @return The slot holding the key, after adding it with a value of 0 if it is not in the map.
+     */
+    private int insert(int key) {
+        int slot = slot(key);
+        if (keys[slot] != key) {
+            if (size + 1 > (mask + 1) >>> 1) {
+                rehash(keys.length * 2);
+                slot = slot(key);
+            }
+            keys[slot] = key;
+            if (values != null)
+                values[slot] = 0;
+            size++;
+        }
+        return slot;
+    }
+
+    /**
+     * Set the value of a key, adding it if it is not in the map.
+     */
+    public void put(int key, int value) {
+        // the slot is found first, since adding the key may move the values to a new array
+        int slot = insert(key);
+        values[slot] = value;
+    }
+
+    /**
+     * Add to the value of a key, adding the key with a value of 0 first if it is not in the map.
+     * @return The new value.
+     */
+    public int add(int key, int amount) {
+        int slot = insert(key);
+        return values[slot] += amount;
+    }
+
+    /**
+     * Add a key without touching its value, such as to a map that only holds keys.
+     * @return true if the key was not already in the map.
+     */
+    boolean addKey(int key) {
+        int size = this.size;
+        insert(key);
+        return this.size != size;
+    }
+
+    /**
+     * Remove a key from the map.
+     * @return true if the key was in the map.
+     */
+    public boolean remove(int key) {
+        int slot = slot(key);
+        if (keys[slot] != key)
+            return false;
+        // shift the entries after it back, so no probe sequence is broken by the gap
+        int gap = slot;
+        for (int next = (gap + 1) & mask; keys[next] != EMPTY; next = (next + 1) & mask) {
+            int home = hash(keys[next]) & mask;
+            // move the entry if its home slot is not between the gap and where it is now
+            if (((next - home) & mask) >= ((next - gap) & mask)) {
+                keys[gap] = keys[next];
+                if (values != null)
+                    values[gap] = values[next];
+                gap = next;
+            }
+        }
+        keys[gap] = EMPTY;
+        size--;
+        if (capacityFor(size) <= keys.length >>> 2)
+            rehash(capacityFor(size));
+        return true;
+    }
+
+    /**
+     * Remove every entry. The table keeps its capacity if it was no more than four times
+     * what the entries needed, so a map filled to about the same size every time is not made again,
+     * and is otherwise made again for that many entries.
+     */
+    public void clear() {
+        if (size == 0)
+            return;
+        int capacity = capacityFor(size);
+        size = 0;
+        if (capacity <= keys.length >>> 2) {
+            rehash(capacity);
+            return;
+        }
+        Arrays.fill(keys, EMPTY);
+    }
+
+    /**
+     * @return The number of slots in the table, for walking it with {@link #keyAt(int)} and {@link #valueAt(int)}.
+     */
+    public int capacity() {
+        return this.keys.length;
+    }
+
+    /**
+     * @param slot A slot of the table, from 0 up to the capacity.
+     * @return The key in the slot, or -1 if the slot is empty.
+     */
+    public int keyAt(int slot) {
+        return this.keys[slot];
+    }
+
+    /**
+     * @param slot A slot of the table that holds a key.
+     * @return The value of the key in the slot.
+     */
+    public int valueAt(int slot) {
+        return this.values[slot];
+    }
+
+    /**
+     * Run an action for every entry, without allocating.
+     * @param action Receives the key and the value of every entry.
+     */
+    public void forEach(IntIntConsumer action) {
+        int[] keys = this.keys, values = this.values;
+        for (int slot = 0; slot < keys.length; slot++)
+            if (keys[slot] != EMPTY)
+                action.accept(keys[slot], values[slot]);
+    }
+
+    /**
+     * @return An independent copy of this map.
+     */
+    public CellMap copy() {
+        CellMap copy = new CellMap(4);
+        copy.keys = this.keys.clone();
+        copy.values = this.values != null ? this.values.clone() : null;
+        copy.size = this.size;
+        copy.mask = this.mask;
+        return copy;
+    }
+
+    /**
+     * Move every entry into a new table, larger when the map grows or smaller when it shrinks.
+     */
+    private void rehash(int capacity) {
+        int[] oldKeys = keys, oldValues = values;
+        keys = new int[capacity];
+        values = oldValues != null ? new int[capacity] : null;
+        mask = capacity - 1;
+        Arrays.fill(keys, EMPTY);
+        if (size == 0)
+            return;
+        for (int slot = 0; slot < oldKeys.length; slot++) {
+            if (oldKeys[slot] != EMPTY) {
+                int s = slot(oldKeys[slot]);
+                keys[s] = oldKeys[slot];
+                if (values != null)
+                    values[s] = oldValues[slot];
+            }
+        }
+    }
+
+}
@@ -0,0 +1,98 @@
+package gameoflife.engine;
+
+import java.util.function.IntConsumer;
+
+/**
+ * A set of cell indices, kept in a {@link CellMap} that holds only keys, so nothing is boxed.
+ * Indices must not be negative. Each entry costs 4 bytes per slot, the table is kept at most half full,
+ * and is made smaller again when the set shrinks.
+ */
+public class CellSet {
+
+    private final CellMap map;
+
+    public CellSet() {
+        this(16);
+    }
+
+    /**
+     * @param expected The number of indices the set should hold without growing.
+     */
+    public CellSet(int expected) {
+        this.map = new CellMap(expected, false);
+    }
+
+    private CellSet(CellMap map) {
+        this.map = map;
+    }
+
+    public int size() {
+        return this.map.size();
+    }
+
+    public boolean isEmpty() {
+        return this.map.isEmpty();
+    }
+
+    public boolean contains(int key) {
+        return this.map.containsKey(key);
+    }
+
+    /**
+     * Add an index to the set.
+     * @return true if the index was not already in the set.
+     */
+    public boolean add(int key) {
+        return this.map.addKey(key);
+    }
+
+    /**
+     * Remove an index from the set.
+     * @return true if the index was in the set.
+     */
+    public boolean remove(int key) {
+        return this.map.remove(key);
+    }
+
+    /**
+     * Remove every index, keeping the table's capacity unless it is much larger than the set was.
+     */
+    public void clear() {
+        this.map.clear();
+    }
+
+    /**
+     * @return The number of slots in the table, for walking it with {@link #keyAt(int)}.
+     */
+    public int capacity() {
+        return this.map.capacity();
+    }
+
+    /**
+     * @param slot A slot of the table, from 0 up to the capacity.
+     * @return The index in the slot, or -1 if the slot is empty.
+     */
+    public int keyAt(int slot) {
+        return this.map.keyAt(slot);
+    }
+
+    /**
+     * Run an action for every index, without allocating.
+     */
+    public void forEach(IntConsumer action) {
+        CellMap map = this.map;
+        for (int slot = 0; slot < map.capacity(); slot++) {
+            int key = map.keyAt(slot);
+            if (key >= 0)
+                action.accept(key);
+        }
+    }
+
+    /**
+     * @return An independent copy of this set.
+     */
+    public CellSet copy() {
+        return new CellSet(this.map.copy());
+    }
+
+}
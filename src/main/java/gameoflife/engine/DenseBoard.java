@@ -0,0 +1,620 @@
+package gameoflife.engine;
+
+import gameoflife.GameOfLife;
+
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.IntConsumer;
+
+/**
+ * A dense, bit-packed board. Every row is stored as a run of longs (64 cells per word),
+ * and a generation is computed with bitwise full adders, 64 cells at a time.
+ */
+public class DenseBoard {
+
+    /**
+     * The width and height of the board.
+     */
+    private final int width, height;
+    /**
+     * Defines if cell activity on board sides should be toroidal.
+     */
+    private final boolean toroidal;
+    /**
+     * The number of longs that make up one row.
+     */
+    private final int wordsPerRow;
+    /**
+     * The bits of the last word in a row that are actually on the board.
+     */
+    private final long lastWordMask;
+    /**
+     * The rules of the game.
+     */
+    private final BitRule rule;
+    /**
+     * The kernel that computes the middle of every row with vector instructions,
+     * or null if the Vector API is not available and rows are computed one word at a time.
+     */
+    private final RowKernel kernel;
+
+    /**
+     * The current generation and the buffer the next generation is written into.
+     * Both hold height + 2 rows: row 0 and row height + 1 are ghost rows that are either
+     * empty, or copies of the opposite edge when the board is toroidal.
+     * Copies only make the second buffer when they step, since many are only kept to go back to.
+     */
+    private long[] cells, next;
+    /**
+     * The XOR of the {@link Fingerprints#key(long, long) keys} of every word of the board, by its index in the buffer.
+     * While fingerprinting, it is updated by the words that change every step, otherwise it goes stale
+     * and is worked out again when asked for.
+     */
+    private long fingerprint;
+    private boolean fingerprinting, fingerprintStale;
+
+    /**
+     * The system property that sets how many stripes a board is split into when stepping in parallel.
+     */
+    public static final String STRIPES_PROPERTY = "gameoflife.parallel.stripes";
+    /**
+     * The system property that sets the number of cells a board needs before it is stepped in parallel.
+     */
+    public static final String THRESHOLD_PROPERTY = "gameoflife.parallel.threshold";
+    /**
+     * The system property that turns the vector kernel off when set to false.
+     */
+    public static final String VECTOR_PROPERTY = "gameoflife.vector";
+
+    /**
+     * The number of horizontal stripes the board is split into when stepping in parallel.
+     */
+    private int stripes = Integer.getInteger(STRIPES_PROPERTY, ForkJoinPool.getCommonPoolParallelism() * 4);
+    /**
+     * The number of cells (width * height) the board needs before it is stepped in parallel.
+     */
+    private int parallelThreshold = Integer.getInteger(THRESHOLD_PROPERTY, 512 * 512);
+    /**
+     * The tasks that step the stripes in parallel, made on the first parallel step and run again on every one after it.
+     */
+    private Stripes stripeTasks;
+
+    /**
+     * The height of a tile in rows. Tiles are one word (64 cells) wide.
+     */
+    public static final int TILE_HEIGHT = 32;
+
+    /**
+     * If only tiles that changed in the last generation (and the tiles around them) are computed.
+     */
+    private boolean tracking;
+    /**
+     * The number of tiles across and down the board.
+     */
+    private final int tilesX, tilesY;
+    /**
+     * The tiles that changed in the last generation (or were edited since),
+     * and the tiles that were computed in the last generation.
+     */
+    private boolean[] changed, computed;
+    /**
+     * The number of tiles that were computed in the last generation.
+     */
+    private int activeTiles;
+
+    /**
+     * Create an empty dense board.
+     * @param settings The settings of the game, which define the board size and the rules.
+     */
+    public DenseBoard(GameOfLife.Settings settings) {
+        this.width = settings.width();
+        this.height = settings.height();
+        this.toroidal = settings.toroidal();
+        this.wordsPerRow = (width + 63) >>> 6;
+        this.lastWordMask = (width & 63) == 0 ? -1L : (1L << (width & 63)) - 1;
+        this.rule = new BitRule(settings.rule());
+        this.kernel = vectorKernel(rule);
+        this.cells = new long[(height + 2) * wordsPerRow];
+        this.next = new long[(height + 2) * wordsPerRow];
+        this.tilesX = wordsPerRow;
+        this.tilesY = (height + TILE_HEIGHT - 1) / TILE_HEIGHT;
+        this.changed = new boolean[tilesX * tilesY];
+        this.computed = new boolean[tilesX * tilesY];
+    }
+
+    /**
+     * Create a copy of another dense board.
+     * @param other The board to copy.
+     */
+    private DenseBoard(DenseBoard other) {
+        this.width = other.width;
+        this.height = other.height;
+        this.toroidal = other.toroidal;
+        this.wordsPerRow = other.wordsPerRow;
+        this.lastWordMask = other.lastWordMask;
+        this.rule = other.rule;
+        this.kernel = other.kernel;
+        this.stripes = other.stripes;
+        this.parallelThreshold = other.parallelThreshold;
+        this.cells = other.cells.clone();
+        this.fingerprint = other.fingerprint;
+        this.fingerprinting = other.fingerprinting;
+        this.fingerprintStale = other.fingerprintStale;
+        this.tracking = other.tracking;
+        this.tilesX = other.tilesX;
+        this.tilesY = other.tilesY;
+        // the other buffer is not copied, so every tile has to be computed again
+        this.changed = new boolean[other.changed.length];
+        this.computed = new boolean[other.computed.length];
+        Arrays.fill(this.changed, true);
+    }
+
+    /**
+     * Load the vector kernel, without touching its class unless the Vector API is there,
+     * since the class cannot be loaded without it. The class is compiled from its own source root,
+     * src/vector/java, and may not have been compiled at all.
+     * @return The kernel, or null if rows should be computed one word at a time.
+     */
+    private static RowKernel vectorKernel(BitRule rule) {
+        if (!Boolean.parseBoolean(System.getProperty(VECTOR_PROPERTY, "true"))
+                || ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty())
+            return null;
+        try {
+            Class<?> type = Class.forName("gameoflife.engine.VectorKernel");
+            if (!(boolean) type.getDeclaredMethod("isUseful").invoke(null))
+                return null;
+            return (RowKernel) type.getDeclaredConstructor(BitRule.class).newInstance(rule);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+
+    public int width() {
+        return this.width;
+    }
+
+    public int height() {
+        return this.height;
+    }
+
+    /**
+     * @param x The x position of the cell.
+     * @param y The y position of the cell.
+     * @return true if the cell is alive.
+     */
+    public boolean get(int x, int y) {
+        return (cells[word(x, y)] & (1L << x)) != 0;
+    }
+
+    /**
+     * Set the state of a cell.
+     * @param x The x position of the cell.
+     * @param y The y position of the cell.
+     * @param alive The new state of the cell.
+     */
+    public void set(int x, int y, boolean alive) {
+        this.changed[tile(x, y)] = true;
+        int word = word(x, y);
+        long old = cells[word];
+        if (alive)
+            cells[word] |= 1L << x;
+        else
+            cells[word] &= ~(1L << x);
+        if (!fingerprintStale)
+            fingerprint ^= Fingerprints.key(word, old) ^ Fingerprints.key(word, cells[word]);
+    }
+
+    /**
+     * Toggle the state of a cell.
+     * @param x The x position of the cell.
+     * @param y The y position of the cell.
+     * @return The new state of the cell.
+     */
+    public boolean toggle(int x, int y) {
+        this.changed[tile(x, y)] = true;
+        int word = word(x, y);
+        long old = cells[word];
+        cells[word] ^= 1L << x;
+        if (!fingerprintStale)
+            fingerprint ^= Fingerprints.key(word, old) ^ Fingerprints.key(word, cells[word]);
+        return get(x, y);
+    }
+
+    private int word(int x, int y) {
+        return (y + 1) * wordsPerRow + (x >>> 6);
+    }
+
+    private int tile(int x, int y) {
+        return (x >>> 6) + (y / TILE_HEIGHT) * tilesX;
+    }
+
+    /**
+     * @return The number of live cells on the board.
+     */
+    public int population() {
+        int population = 0;
+        for (int i = wordsPerRow; i < (height + 1) * wordsPerRow; i++)
+            population += Long.bitCount(cells[i]);
+        return population;
+    }
+
+    /**
+     * Run an action for every live cell, in index order.
+     * @param action Receives the index (x + y * width) of every live cell.
+     */
+    public void forEachLiveCell(IntConsumer action) {
+        for (int y = 0; y < height; y++) {
+            int base = (y + 1) * wordsPerRow;
+            for (int w = 0; w < wordsPerRow; w++) {
+                long bits = cells[base + w];
+                while (bits != 0) {
+                    int x = (w << 6) + Long.numberOfTrailingZeros(bits);
+                    action.accept(x + y * width);
+                    bits &= bits - 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Run an action for every cell that was born or died in the last step, which are the bits that differ
+     * between the generation and the buffer it was written over. Cells set since then are not told apart.
+     * @param action Receives the index of every cell that changed.
+     */
+    public void forEachChange(IntConsumer action) {
+        if (next == null)
+            return;
+        for (int y = 0; y < height; y++) {
+            int base = (y + 1) * wordsPerRow;
+            for (int w = 0; w < wordsPerRow; w++) {
+                long bits = cells[base + w] ^ next[base + w];
+                while (bits != 0) {
+                    int x = (w << 6) + Long.numberOfTrailingZeros(bits);
+                    action.accept(x + y * width);
+                    bits &= bits - 1;
+                }
+            }
+        }
+    }
+
+    /**
+     * Set up how the board is stepped on multiple cores.
+     * @param stripes The number of horizontal stripes to split the board into, 1 to always step on one core.
+     * @param threshold The number of cells (width * height) the board needs before it is stepped in parallel.
+     */
+    public void setParallelism(int stripes, int threshold) {
+        if (stripes < 1)
+            throw new IllegalArgumentException("There must be at least one stripe");
+        this.stripes = stripes;
+        this.parallelThreshold = threshold;
+    }
+
+    /**
+     * @return true if the next step will be split into stripes and computed on multiple cores.
+     */
+    public boolean isParallel() {
+        return this.stripes > 1 && this.height > 1 && (long) this.width * this.height >= this.parallelThreshold;
+    }
+
+    /**
+     * @return true if whole rows are computed with vector instructions.
+     */
+    public boolean isVectorized() {
+        return this.kernel != null;
+    }
+
+    /**
+     * Turn tracking of active tiles on or off. When it is on, the board is split into tiles
+     * of 64 by {@link #TILE_HEIGHT} cells, and only the tiles that changed in the last generation,
+     * along with the tiles around them, are computed; the rest are carried over unchanged.
+     * Tracked boards are stepped on one core.
+     * @param tracking true to only compute active tiles.
+     */
+    public void setTileTracking(boolean tracking) {
+        this.tracking = tracking;
+        Arrays.fill(this.changed, true);
+    }
+
+    public boolean isTileTracking() {
+        return this.tracking;
+    }
+
+    /**
+     * @return The number of tiles that were computed in the last generation.
+     */
+    public int activeTiles() {
+        return this.activeTiles;
+    }
+
+    /**
+     * @return The number of tiles the board is split into.
+     */
+    public int tileCount() {
+        return this.tilesX * this.tilesY;
+    }
+
+    /**
+     * @return Roughly how many bytes the board takes up.
+     */
+    public long memoryEstimate() {
+        return 8L * (cells.length + (next == null ? 0 : next.length)) + changed.length * 2L;
+    }
+
+    /**
+     * @return An independent copy of this board.
+     */
+    public DenseBoard copy() {
+        return new DenseBoard(this);
+    }
+
+    /**
+     * Kill every cell on the board.
+     */
+    public void clear() {
+        Arrays.fill(cells, 0);
+        Arrays.fill(changed, true);
+        fingerprint = 0;
+        fingerprintStale = false;
+    }
+
+    /**
+     * @return A 64-bit hash of the live cells.
+     * @see LifeEngine#fingerprint()
+     */
+    public long fingerprint() {
+        if (fingerprintStale) {
+            fingerprint = 0;
+            for (int i = wordsPerRow; i < (height + 1) * wordsPerRow; i++)
+                fingerprint ^= Fingerprints.key(i, cells[i]);
+            fingerprintStale = false;
+        }
+        return this.fingerprint;
+    }
+
+    /**
+     * Start or stop updating the fingerprint by the words that change every step,
+     * which costs about as much as computing the step does on a busy board.
+     * @param fingerprinting true to keep the fingerprint up to date.
+     * @see LifeEngine#setFingerprinting(boolean)
+     */
+    public void setFingerprinting(boolean fingerprinting) {
+        if (fingerprinting)
+            fingerprint();
+        this.fingerprinting = fingerprinting;
+    }
+
+    /**
+     * Move forward one generation.
+     */
+    public void step() {
+        if (next == null)
+            next = new long[cells.length];
+        if (toroidal) {
+            // fill the ghost rows with the opposite edges of the board
+            System.arraycopy(cells, height * wordsPerRow, cells, 0, wordsPerRow);
+            System.arraycopy(cells, wordsPerRow, cells, (height + 1) * wordsPerRow, wordsPerRow);
+        }
+        if (tracking)
+            stepTiles();
+        else if (isParallel())
+            stepStripes();
+        else
+            stepRows(1, height + 1);
+        if (!tracking) {
+            activeTiles = tileCount();
+            if (fingerprinting)
+                updateFingerprint(1, height + 1, 0, wordsPerRow);
+        }
+        if (!fingerprinting)
+            fingerprintStale = true;
+
+        long[] swap = cells;
+        cells = next;
+        next = swap;
+    }
+
+    /**
+     * Compute the next generation in stripes on the common pool, reusing the tasks of the last parallel step
+     * unless the number of stripes has changed since.
+     */
+    private void stepStripes() {
+        int count = Math.min(stripes, height);
+        if (stripeTasks == null || stripeTasks.last != count)
+            stripeTasks = new Stripes(this, 0, count, count);
+        else
+            stripeTasks.reset();
+        ForkJoinPool.commonPool().invoke(stripeTasks);
+    }
+
+    /**
+     * Compute rows of the next generation.
+     * @param from The first row to compute, offset by the top ghost row.
+     * @param to The row after the last row to compute.
+     */
+    private void stepRows(int from, int to) {
+        for (int y = from; y < to; y++) {
+            if (kernel == null) {
+                stepRow(y, 0, wordsPerRow);
+                continue;
+            }
+            // the kernel does what it can of the middle of the row, the ends are done one word at a time
+            int end = kernel.step(cells, next, (y - 1) * wordsPerRow, y * wordsPerRow, (y + 1) * wordsPerRow, 1, Math.max(1, wordsPerRow - 1));
+            stepRow(y, 0, 1);
+            stepRow(y, end, wordsPerRow);
+        }
+    }
+
+    /**
+     * Compute the tiles that changed in the last generation and the tiles around them.
+     * The other tiles did not change in the last generation, so the buffer being written into,
+     * which holds the generation before this one, already has them as they are now.
+     */
+    private void stepTiles() {
+        Arrays.fill(computed, false);
+        for (int ty = 0; ty < tilesY; ty++) {
+            for (int tx = 0; tx < tilesX; tx++) {
+                if (!changed[tx + ty * tilesX])
+                    continue;
+                for (int dy = -1; dy <= 1; dy++) {
+                    for (int dx = -1; dx <= 1; dx++) {
+                        int nx = tx + dx, ny = ty + dy;
+                        if (toroidal) {
+                            nx = (nx + tilesX) % tilesX;
+                            ny = (ny + tilesY) % tilesY;
+                        } else if (nx < 0 || nx >= tilesX || ny < 0 || ny >= tilesY) {
+                            continue;
+                        }
+                        computed[nx + ny * tilesX] = true;
+                    }
+                }
+            }
+        }
+
+        activeTiles = 0;
+        for (int t = 0; t < computed.length; t++) {
+            changed[t] = false;
+            if (!computed[t])
+                continue;
+            activeTiles++;
+            int tx = t % tilesX, top = (t / tilesX) * TILE_HEIGHT;
+            long difference = 0;
+            for (int y = top; y < Math.min(top + TILE_HEIGHT, height); y++)
+                difference |= stepRow(y + 1, tx, tx + 1);
+            changed[t] = difference != 0;
+            if (changed[t] && fingerprinting)
+                updateFingerprint(top + 1, Math.min(top + TILE_HEIGHT, height) + 1, tx, tx + 1);
+        }
+    }
+
+    /**
+     * Swap the keys of the words that changed in a block of the board out of the fingerprint,
+     * and the keys of what they changed to in.
+     * @param from The first row of the block, offset by the top ghost row.
+     * @param to The row after the last row of the block.
+     * @param fromWord The first word of every row in the block.
+     * @param toWord The word after the last word of every row in the block.
+     */
+    private void updateFingerprint(int from, int to, int fromWord, int toWord) {
+        long fingerprint = this.fingerprint;
+        for (int y = from; y < to; y++) {
+            for (int i = y * wordsPerRow + fromWord; i < y * wordsPerRow + toWord; i++)
+                if (cells[i] != next[i])
+                    fingerprint ^= Fingerprints.key(i, cells[i]) ^ Fingerprints.key(i, next[i]);
+        }
+        this.fingerprint = fingerprint;
+    }
+
+    /**
+     * Computes a range of horizontal stripes of the next generation, splitting the range in half
+     * until there is a single stripe left. Every stripe only reads the current generation
+     * (including the boundary rows of the stripes next to it) and only writes its own rows of the next,
+     * so stripes never have to wait for each other.
+     * <p>
+     * The halves are made once with the task, so the same tree of tasks can be reset and run again every step.
+     */
+    private static final class Stripes extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final transient DenseBoard board;
+        /**
+         * The range of stripes to compute, from the first up to (not including) the last, out of the count.
+         */
+        private final int first, last, count;
+        /**
+         * The two halves of the range, or null if it is a single stripe.
+         */
+        private final Stripes low, high;
+
+        Stripes(DenseBoard board, int first, int last, int count) {
+            this.board = board;
+            this.first = first;
+            this.last = last;
+            this.count = count;
+            if (last - first > 1) {
+                int middle = (first + last) >>> 1;
+                this.low = new Stripes(board, first, middle, count);
+                this.high = new Stripes(board, middle, last, count);
+            } else {
+                this.low = this.high = null;
+            }
+        }
+
+        /**
+         * Get this task and its halves ready to be run again, once they have all completed.
+         */
+        void reset() {
+            reinitialize();
+            if (low != null) {
+                low.reset();
+                high.reset();
+            }
+        }
+
+        @Override
+        protected void compute() {
+            if (low != null) {
+                invokeAll(low, high);
+            } else {
+                int height = board.height;
+                board.stepRows(1 + (int) ((long) height * first / count), 1 + (int) ((long) height * last / count));
+            }
+        }
+
+    }
+
+    /**
+     * Compute part of one row of the next generation.
+     * @param y The row to compute, offset by the top ghost row.
+     * @param from The first word of the row to compute.
+     * @param to The word after the last word to compute.
+     * @return The bits that differ between this generation and the next, or'd together.
+     */
+    private long stepRow(int y, int from, int to) {
+        int above = (y - 1) * wordsPerRow, row = y * wordsPerRow, below = (y + 1) * wordsPerRow;
+        int last = wordsPerRow - 1;
+        long changed = 0;
+        for (int w = from; w < to; w++) {
+            long a = cells[above + w], c = cells[row + w], b = cells[below + w];
+
+            // the neighbors to the west (x - 1) and east (x + 1) of every cell in this word
+            long aw = a << 1, cw = c << 1, bw = b << 1;
+            long ae = a >>> 1, ce = c >>> 1, be = b >>> 1;
+            if (w > 0) {
+                aw |= cells[above + w - 1] >>> 63;
+                cw |= cells[row + w - 1] >>> 63;
+                bw |= cells[below + w - 1] >>> 63;
+            } else if (toroidal) {
+                aw |= bit(above, width - 1);
+                cw |= bit(row, width - 1);
+                bw |= bit(below, width - 1);
+            }
+            if (w < last) {
+                ae |= cells[above + w + 1] << 63;
+                ce |= cells[row + w + 1] << 63;
+                be |= cells[below + w + 1] << 63;
+            } else if (toroidal) {
+                int edge = (width - 1) & 63;
+                ae |= bit(above, 0) << edge;
+                ce |= bit(row, 0) << edge;
+                be |= bit(below, 0) << edge;
+            }
+
+            long result = rule.apply(c, aw, a, ae, cw, ce, bw, b, be);
+            if (w == last)
+                result &= lastWordMask;
+            next[row + w] = result;
+            changed |= result ^ c;
+        }
+        return changed;
+    }
+
+    /**
+     * @return 1 if the cell at the x position of the row starting at the given offset is alive, otherwise 0.
+     */
+    private long bit(int rowStart, int x) {
+        return (cells[rowStart + (x >>> 6)] >>> (x & 63)) & 1L;
+    }
+
+}
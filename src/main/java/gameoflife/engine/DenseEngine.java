@@ -0,0 +1,131 @@
+package gameoflife.engine;
+
+import gameoflife.GameOfLife;
+
+import java.util.function.IntConsumer;
+
+/**
+ * An engine that keeps the board on a bit-packed {@link DenseBoard},
+ * which suits large boards and boards with many live cells.
+ */
+public class DenseEngine implements LifeEngine {
+
+    private final DenseBoard board;
+
+    public DenseEngine(GameOfLife.Settings settings) {
+        this.board = new DenseBoard(settings);
+    }
+
+    private DenseEngine(DenseEngine other) {
+        this.board = other.board.copy();
+    }
+
+    /**
+     * Set up how the board is stepped on multiple cores.
+     * @param stripes The number of horizontal stripes to split the board into, 1 to always step on one core.
+     * @param threshold The number of cells (width * height) the board needs before it is stepped in parallel.
+     * @see DenseBoard#setParallelism(int, int)
+     */
+    public void setParallelism(int stripes, int threshold) {
+        this.board.setParallelism(stripes, threshold);
+    }
+
+    /**
+     * Turn tracking of active tiles on or off.
+     * @param tracking true to only compute tiles that changed in the last generation, and the tiles around them.
+     * @see DenseBoard#setTileTracking(boolean)
+     */
+    public void setTileTracking(boolean tracking) {
+        this.board.setTileTracking(tracking);
+    }
+
+    public boolean isTileTracking() {
+        return this.board.isTileTracking();
+    }
+
+    /**
+     * @return The number of tiles that were computed in the last generation.
+     */
+    public int activeTiles() {
+        return this.board.activeTiles();
+    }
+
+    /**
+     * @return The number of tiles the board is split into.
+     */
+    public int tileCount() {
+        return this.board.tileCount();
+    }
+
+    @Override
+    public int width() {
+        return this.board.width();
+    }
+
+    @Override
+    public int height() {
+        return this.board.height();
+    }
+
+    @Override
+    public void step() {
+        this.board.step();
+    }
+
+    @Override
+    public void step(IntConsumer changed) {
+        this.board.step();
+        this.board.forEachChange(changed);
+    }
+
+    @Override
+    public boolean toggle(int index) {
+        return this.board.toggle(index % width(), index / width());
+    }
+
+    @Override
+    public void set(int index, boolean alive) {
+        this.board.set(index % width(), index / width(), alive);
+    }
+
+    @Override
+    public boolean isAlive(int index) {
+        return this.board.get(index % width(), index / width());
+    }
+
+    @Override
+    public int population() {
+        return this.board.population();
+    }
+
+    @Override
+    public void forEachLiveCell(IntConsumer action) {
+        this.board.forEachLiveCell(action);
+    }
+
+    @Override
+    public long fingerprint() {
+        return this.board.fingerprint();
+    }
+
+    @Override
+    public void setFingerprinting(boolean fingerprinting) {
+        this.board.setFingerprinting(fingerprinting);
+    }
+
+    @Override
+    public long memoryEstimate() {
+        return this.board.memoryEstimate();
+    }
+
+    @Override
+    public void clear() {
+        this.board.clear();
+    }
+
+    @Override
+    public DenseEngine copy() {
+        return new DenseEngine(this);
+    }
+
+}
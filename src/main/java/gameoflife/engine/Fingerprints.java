@@ -0,0 +1,32 @@
+package gameoflife.engine;
+
+/**
+ * Keys for fingerprinting boards the way Zobrist hashing does: the fingerprint of a board is the XOR
+ * of a random-looking key for every run of live cells in it, so when cells change, the fingerprint can be
+ * kept up to date by XORing out the old key and XORing in the new one, without looking at the rest of the board.
+ */
+final class Fingerprints {
+
+    private Fingerprints() {}
+
+    /**
+     * @param position Where the cells are, such as the index of a word on a board.
+     * @param bits Which of the cells are alive.
+     * @return The key of the cells, which is 0 if none of them are alive.
+     */
+    static long key(long position, long bits) {
+        if (bits == 0)
+            return 0;
+        return mix(mix(position) + bits);
+    }
+
+    /**
+     * The finalizer of SplitMix64, which spreads every bit of the input over the output.
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+}
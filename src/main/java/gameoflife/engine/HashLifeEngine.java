@@ -0,0 +1,420 @@
+package gameoflife.engine;
+
+import gameoflife.GameOfLife;
+
+import java.util.HashMap;
+import java.util.function.IntConsumer;
+
+/**
+ * An engine that runs Bill Gosper's HashLife algorithm. The plane is stored as a quadtree whose
+ * nodes are interned, so every distinct square of cells exists only once, and the future of every
+ * node is memoized. Regular patterns can then be advanced 2^k generations in a single call.
+ * <p>
+ * HashLife works on an unbounded plane: the board is a window onto that plane, so this engine only
+ * matches the other engines while the pattern stays clear of the board's edges,
+ * and {@link LifeEngines#create} refuses toroidal settings for it.
+ */
+public class HashLifeEngine implements LifeEngine {
+
+    /**
+     * The system property that sets how many nodes are interned before unreachable ones are collected.
+     */
+    public static final String MAX_NODES_PROPERTY = "gameoflife.hashlife.nodes";
+
+    /**
+     * A square of 2^level by 2^level cells. Nodes are never changed after they are created,
+     * apart from remembering their results.
+     */
+    private static final class Node {
+
+        private final Node nw, ne, sw, se;
+        private final int level;
+        /**
+         * The number of live cells, which stops at Long.MAX_VALUE on astronomically large nodes.
+         */
+        private final long population;
+        private final int hash;
+
+        /**
+         * The center of this node, 2^(level - 2) generations later.
+         */
+        private Node result;
+        /**
+         * The center of this node, 2^slowLog generations later.
+         */
+        private Node slowResult;
+        private int slowLog = -1;
+
+        /**
+         * Create a single cell.
+         */
+        private Node(boolean alive) {
+            this.nw = this.ne = this.sw = this.se = null;
+            this.level = 0;
+            this.population = alive ? 1 : 0;
+            this.hash = alive ? 1 : 0;
+        }
+
+        private Node(Node nw, Node ne, Node sw, Node se) {
+            this.nw = nw;
+            this.ne = ne;
+            this.sw = sw;
+            this.se = se;
+            this.level = nw.level + 1;
+            long population = nw.population + ne.population + sw.population + se.population;
+            this.population = population < 0 ? Long.MAX_VALUE : population;
+            // children are interned, so they can be told apart by identity
+            this.hash = ((System.identityHashCode(nw) * 31 + System.identityHashCode(ne)) * 31
+                    + System.identityHashCode(sw)) * 31 + System.identityHashCode(se);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Node n && n.level == level && n.nw == nw && n.ne == ne && n.sw == sw && n.se == se;
+        }
+
+        @Override
+        public int hashCode() {
+            return this.hash;
+        }
+    }
+
+    private static final Node DEAD = new Node(false), ALIVE = new Node(true);
+
+    /**
+     * The table every node is interned into, shared with copies of this engine.
+     * Copies may be used on different threads, so everything that interns nodes or memoizes results locks it.
+     */
+    private static final class NodeTable {
+        private HashMap<Node, Node> nodes = new HashMap<>();
+        private final HashMap<Integer, Node> empty = new HashMap<>();
+    }
+
+    private final GameOfLife.Settings settings;
+    private final Rule rule;
+    private final NodeTable table;
+    /**
+     * The number of interned nodes that triggers a collection.
+     */
+    private final int maxNodes = Integer.getInteger(MAX_NODES_PROPERTY, 1 << 21);
+    /**
+     * The largest jump, as a power of two, that is taken in one go.
+     */
+    private static final int MAX_LOG = 48;
+
+    /**
+     * The whole plane. The root is centered on (0, 0), so it covers -2^(level - 1) to 2^(level - 1) on both axes.
+     */
+    private Node root;
+
+    public HashLifeEngine(GameOfLife.Settings settings) {
+        this.settings = settings;
+        this.rule = settings.rule();
+        this.table = new NodeTable();
+        this.root = empty(3);
+    }
+
+    private HashLifeEngine(HashLifeEngine other) {
+        this.settings = other.settings;
+        this.rule = other.rule;
+        this.table = other.table;
+        this.root = other.root;
+    }
+
+    private Node join(Node nw, Node ne, Node sw, Node se) {
+        Node node = new Node(nw, ne, sw, se);
+        Node interned = table.nodes.putIfAbsent(node, node);
+        return interned == null ? node : interned;
+    }
+
+    private Node empty(int level) {
+        if (level == 0)
+            return DEAD;
+        Node node = table.empty.get(level);
+        if (node == null) {
+            Node e = empty(level - 1);
+            node = join(e, e, e, e);
+            table.empty.put(level, node);
+        }
+        return node;
+    }
+
+    /**
+     * @return The node in the middle of a node, one level down.
+     */
+    private Node center(Node n) {
+        return join(n.nw.se, n.ne.sw, n.sw.ne, n.se.nw);
+    }
+
+    /**
+     * Surround the root with empty space, doubling its size.
+     */
+    private void expand() {
+        Node e = empty(root.level - 1);
+        root = join(
+                join(e, e, e, root.nw),
+                join(e, e, root.ne, e),
+                join(e, root.sw, e, e),
+                join(root.se, e, e, e));
+    }
+
+    /**
+     * @return true if every live cell of the root is within its innermost sixteenth.
+     */
+    private boolean isCentered() {
+        return root.level >= 3 && root.nw.se.se.population + root.ne.sw.sw.population
+                + root.sw.ne.ne.population + root.se.nw.nw.population == root.population;
+    }
+
+    /**
+     * Move the plane forward 2^log generations.
+     */
+    private void advance(int log) {
+        while (root.level < log + 3 || !isCentered())
+            expand();
+        root = advance(root, log);
+        // drop the empty space around the pattern, so still lifes and oscillators do not keep growing the plane
+        while (root.level > 3 && center(root).population == root.population)
+            root = center(root);
+        if (table.nodes.size() > maxNodes)
+            collect();
+    }
+
+    /**
+     * @return The center of the node, 2^log generations later.
+     */
+    private Node advance(Node n, int log) {
+        if (n.population == 0)
+            return empty(n.level - 1);
+        if (log == n.level - 2)
+            return result(n);
+        if (n.slowLog == log)
+            return n.slowResult;
+
+        // the nine overlapping nodes of the next level down, trimmed to their centers
+        Node n00 = center(n.nw), n01 = center(join(n.nw.ne, n.ne.nw, n.nw.se, n.ne.sw)), n02 = center(n.ne);
+        Node n10 = center(join(n.nw.sw, n.nw.se, n.sw.nw, n.sw.ne)), n11 = center(center(n));
+        Node n12 = center(join(n.ne.sw, n.ne.se, n.se.nw, n.se.ne));
+        Node n20 = center(n.sw), n21 = center(join(n.sw.ne, n.se.nw, n.sw.se, n.se.sw)), n22 = center(n.se);
+
+        Node result = join(
+                advance(join(n00, n01, n10, n11), log),
+                advance(join(n01, n02, n11, n12), log),
+                advance(join(n10, n11, n20, n21), log),
+                advance(join(n11, n12, n21, n22), log));
+        n.slowResult = result;
+        n.slowLog = log;
+        return result;
+    }
+
+    /**
+     * @return The center of the node, 2^(level - 2) generations later.
+     */
+    private Node result(Node n) {
+        if (n.result != null)
+            return n.result;
+        if (n.level == 2)
+            return n.result = base(n);
+
+        // the nine overlapping nodes of the next level down, each advanced by half the step
+        Node n00 = result(n.nw), n01 = result(join(n.nw.ne, n.ne.nw, n.nw.se, n.ne.sw)), n02 = result(n.ne);
+        Node n10 = result(join(n.nw.sw, n.nw.se, n.sw.nw, n.sw.ne)), n11 = result(center(n));
+        Node n12 = result(join(n.ne.sw, n.ne.se, n.se.nw, n.se.ne));
+        Node n20 = result(n.sw), n21 = result(join(n.sw.ne, n.se.nw, n.sw.se, n.se.sw)), n22 = result(n.se);
+
+        // and then by the other half
+        return n.result = join(
+                result(join(n00, n01, n10, n11)),
+                result(join(n01, n02, n11, n12)),
+                result(join(n10, n11, n20, n21)),
+                result(join(n11, n12, n21, n22)));
+    }
+
+    /**
+     * Step the center 2x2 cells of a 4x4 node one generation, by looking up their 3x3 neighborhoods.
+     */
+    private Node base(Node n) {
+        int bits = 0;
+        for (int y = 0; y < 4; y++)
+            for (int x = 0; x < 4; x++)
+                if (cell(n, x, y))
+                    bits |= 1 << (x + y * 4);
+        Node[] next = new Node[4];
+        for (int i = 0; i < 4; i++) {
+            int cx = 1 + (i & 1), cy = 1 + (i >> 1);
+            // the three rows of three cells around the cell
+            int neighborhood = 0;
+            for (int dy = -1; dy <= 1; dy++)
+                neighborhood |= ((bits >>> (cx - 1 + (cy + dy) * 4)) & 7) << (3 * (dy + 1));
+            next[i] = rule.next(neighborhood) ? ALIVE : DEAD;
+        }
+        return join(next[0], next[1], next[2], next[3]);
+    }
+
+    /**
+     * @return The state of a cell, relative to the top left corner of the node.
+     */
+    private static boolean cell(Node n, long x, long y) {
+        while (n.level > 0) {
+            long half = 1L << (n.level - 1);
+            if (y < half)
+                n = x < half ? n.nw : n.ne;
+            else
+                n = x < half ? n.sw : n.se;
+            if (x >= half)
+                x -= half;
+            if (y >= half)
+                y -= half;
+        }
+        return n == ALIVE;
+    }
+
+    /**
+     * @return A copy of the node with one cell changed, relative to the top left corner of the node.
+     */
+    private Node with(Node n, long x, long y, boolean alive) {
+        if (n.level == 0)
+            return alive ? ALIVE : DEAD;
+        long half = 1L << (n.level - 1);
+        if (y < half) {
+            if (x < half)
+                return join(with(n.nw, x, y, alive), n.ne, n.sw, n.se);
+            return join(n.nw, with(n.ne, x - half, y, alive), n.sw, n.se);
+        }
+        if (x < half)
+            return join(n.nw, n.ne, with(n.sw, x, y - half, alive), n.se);
+        return join(n.nw, n.ne, n.sw, with(n.se, x - half, y - half, alive));
+    }
+
+    /**
+     * Collect every interned node that cannot be reached from the root, along with all memoized results.
+     */
+    public void collect() {
+        synchronized (table) {
+            table.nodes = new HashMap<>();
+            table.empty.clear();
+            intern(root);
+        }
+    }
+
+    private void intern(Node n) {
+        if (n.level == 0 || table.nodes.putIfAbsent(n, n) != null)
+            return;
+        n.result = null;
+        n.slowResult = null;
+        n.slowLog = -1;
+        intern(n.nw);
+        intern(n.ne);
+        intern(n.sw);
+        intern(n.se);
+    }
+
+    /**
+     * @return The number of nodes currently interned.
+     */
+    public int nodeCount() {
+        return table.nodes.size();
+    }
+
+    @Override
+    public int width() {
+        return this.settings.width();
+    }
+
+    @Override
+    public int height() {
+        return this.settings.height();
+    }
+
+    @Override
+    public void step() {
+        synchronized (table) {
+            advance(0);
+        }
+    }
+
+    @Override
+    public void stepN(long generations) {
+        synchronized (table) {
+            for (int log = 0; generations != 0; log++, generations >>>= 1) {
+                if ((generations & 1) == 0)
+                    continue;
+                // keep the plane small enough for its coordinates to fit in a long
+                for (long i = 0; i < 1L << Math.max(log - MAX_LOG, 0); i++)
+                    advance(Math.min(log, MAX_LOG));
+            }
+        }
+    }
+
+    @Override
+    public void set(int index, boolean alive) {
+        long x = index % width(), y = index / width();
+        synchronized (table) {
+            while (Math.max(x, y) >= (1L << (root.level - 1)))
+                expand();
+            long offset = 1L << (root.level - 1);
+            root = with(root, x + offset, y + offset, alive);
+        }
+    }
+
+    @Override
+    public boolean isAlive(int index) {
+        long x = index % width(), y = index / width();
+        long offset = 1L << (root.level - 1);
+        if (Math.max(x, y) >= offset)
+            return false;
+        return cell(root, x + offset, y + offset);
+    }
+
+    @Override
+    public int population() {
+        return (int) Math.min(root.population, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public void forEachLiveCell(IntConsumer action) {
+        long offset = 1L << (root.level - 1);
+        forEachLiveCell(root, -offset, -offset, action);
+    }
+
+    /**
+     * Visit the live cells of a node that are on the board.
+     * @param x The x position of the top left corner of the node on the plane.
+     * @param y The y position of the top left corner of the node on the plane.
+     */
+    private void forEachLiveCell(Node n, long x, long y, IntConsumer action) {
+        long size = 1L << n.level;
+        if (n.population == 0 || x >= width() || y >= height() || x + size <= 0 || y + size <= 0)
+            return;
+        if (n.level == 0) {
+            action.accept((int) (x + y * width()));
+            return;
+        }
+        long half = size >>> 1;
+        forEachLiveCell(n.nw, x, y, action);
+        forEachLiveCell(n.ne, x + half, y, action);
+        forEachLiveCell(n.sw, x, y + half, action);
+        forEachLiveCell(n.se, x + half, y + half, action);
+    }
+
+    /**
+     * Cells that leave the board live on past its edges, and can come back.
+     */
+    @Override
+    public boolean isBounded() {
+        return false;
+    }
+
+    @Override
+    public void clear() {
+        synchronized (table) {
+            this.root = empty(3);
+        }
+    }
+
+    @Override
+    public HashLifeEngine copy() {
+        return new HashLifeEngine(this);
+    }
+
+}
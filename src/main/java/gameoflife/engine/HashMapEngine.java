@@ -0,0 +1,158 @@
+package gameoflife.engine;
+
+import gameoflife.GameOfLife;
+
+import java.util.HashSet;
+import java.util.function.IntConsumer;
+import java.util.stream.Stream;
+
+/**
+ * The reference engine, which keeps every live cell in a hash set, as the game originally did in a hash map.
+ * It is slow, but simple enough to check the other engines against.
+ * Ages are kept outside the engines, in an {@link AgePlane}, so only the cells are stored.
+ */
+public class HashMapEngine implements LifeEngine {
+
+    private final GameOfLife.Settings settings;
+    private final Rule rule;
+
+    private HashSet<Integer> cells = new HashSet<>();
+
+    public HashMapEngine(GameOfLife.Settings settings) {
+        this.settings = settings;
+        this.rule = settings.rule();
+    }
+
+    @Override
+    public int width() {
+        return this.settings.width();
+    }
+
+    @Override
+    public int height() {
+        return this.settings.height();
+    }
+
+    @Override
+    public void step() {
+        HashSet<Integer> next = new HashSet<>();
+
+        /**
+         * An object to hold an X and Y variable
+         */
+        record XY(int x, int y) {
+
+            /**
+             * A stream of all the neighbors of this x and y variable.
+             * @param toroidal Defines if cell activity on board sides should be toroidal.
+             * @param width The width of the board, needed in order to do logic on the sides of the board.
+             * @param height The width of the board, needed in order to do logic on the sides of the board.
+             * @return A stream of neighbors of this cell.
+             */
+            Stream<XY> neighbors(boolean toroidal, int width, int height) {
+                Stream<XY> base = Stream.of(
+                        new XY(x - 1, y - 1),
+                        new XY(x - 1, y),
+                        new XY(x - 1, y + 1),
+                        new XY(x, y - 1),
+                        new XY(x, y + 1),
+                        new XY(x + 1, y - 1),
+                        new XY(x + 1, y),
+                        new XY(x + 1, y + 1)
+                );
+                if (toroidal) {
+                    base = base.map(xy -> {
+                        int x, y;
+                        if (xy.x < 0)
+                            x = xy.x + width;
+                        else if (xy.x >= width)
+                            x = xy.x - width;
+                        else x = xy.x;
+                        if (xy.y < 0)
+                            y = xy.y + height;
+                        else if (xy.y >= height)
+                            y = xy.y - height;
+                        else y = xy.y;
+                        return new XY(x, y);
+                    });
+                } else {
+                    base = base.filter(xy -> xy.x >= 0 && xy.x < width && xy.y >= 0 && xy.y < height);
+                }
+                return base;
+            }
+
+            int index(int width) {
+                return x + y * width;
+            }
+
+            /**
+             * A stream of all the neighbors of this x and y variable, including itself.
+             * @param toroidal Defines if cell activity on board sides should be toroidal.
+             * @param width The width of the board, needed in order to do logic on the sides of the board.
+             * @param height The width of the board, needed in order to do logic on the sides of the board.
+             * @return A stream of neighbors of this cell, including itself.
+             */
+            Stream<XY> neighborsAndSelf(boolean toroidal, int width, int height) {
+                return Stream.concat(neighbors(toroidal, width, height), Stream.of(this));
+            }
+
+        }
+
+        // get all cell positions and their neighbors,
+        // count the living neighbors
+        // place living and new cells into a new map
+        // ignore dead cells as they do not make it into the new map
+        this.cells.stream().map(idx -> new XY(idx % width(), idx / width())).flatMap(xy -> xy.neighborsAndSelf(settings.toroidal(), settings.width(), settings.height())).distinct().forEach(i -> {
+            int index = i.index(width());
+            boolean alive = this.cells.contains(index);
+            long neighbors = i.neighbors(settings.toroidal(), settings.width(), settings.height()).mapToInt(xy1 -> xy1.index(width())).filter(this.cells::contains).count();
+            if (alive) {
+                if (rule.survives((int) neighbors)) {
+                    next.add(index);
+                }
+            } else {
+                if(rule.isBorn((int) neighbors)) {
+                    next.add(index);
+                }
+            }
+        });
+
+        this.cells = next;
+    }
+
+    @Override
+    public void set(int index, boolean alive) {
+        if (alive)
+            this.cells.add(index);
+        else
+            this.cells.remove(index);
+    }
+
+    @Override
+    public boolean isAlive(int index) {
+        return this.cells.contains(index);
+    }
+
+    @Override
+    public int population() {
+        return this.cells.size();
+    }
+
+    @Override
+    public void forEachLiveCell(IntConsumer action) {
+        this.cells.forEach(action::accept);
+    }
+
+    @Override
+    public void clear() {
+        this.cells.clear();
+    }
+
+    @Override
+    public HashMapEngine copy() {
+        HashMapEngine copy = new HashMapEngine(this.settings);
+        copy.cells = new HashSet<>(this.cells);
+        return copy;
+    }
+
+}
@@ -0,0 +1,340 @@
+package gameoflife.engine;
+
+import gameoflife.GameOfLife;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.function.IntConsumer;
+
+/**
+ * An engine that runs on an unbounded plane, so patterns such as gliders and guns can run forever
+ * without wrapping around or falling off an edge. The plane is split into chunks of 64 by 64 cells,
+ * stored in a hash map by their position. Chunks are only made when cells may be born in them,
+ * and are dropped again once they are empty, so memory follows the live cells rather than the area they span.
+ * <p>
+ * Every chunk is bit-packed like a {@link DenseBoard}, one long per row, and is stepped with the same full adders.
+ * <p>
+ * The board is a window onto the plane, and its edges never wrap around: {@link LifeEngines#create} refuses
+ * toroidal settings for this engine.
+ */
+public class InfiniteEngine implements PlaneEngine {
+
+    /**
+     * The number of bits in the position of a cell within its chunk, which makes chunks 64 cells wide and tall.
+     */
+    private static final int CHUNK_BITS = 6;
+    private static final int CHUNK_SIZE = 1 << CHUNK_BITS;
+
+    /**
+     * The position of a chunk, in chunks: the chunk at 1, 0 holds the cells from x = 64 to x = 127.
+     */
+    private record ChunkKey(long x, long y) {}
+
+    /**
+     * A square of 64 by 64 cells.
+     */
+    private static final class Chunk {
+
+        private final ChunkKey key;
+        /**
+         * The rows of the chunk, with the cell at x = 0 in the lowest bit,
+         * and the buffer the next generation is written into.
+         */
+        private long[] rows = new long[CHUNK_SIZE], next = new long[CHUNK_SIZE];
+
+        private Chunk(ChunkKey key) {
+            this.key = key;
+        }
+
+        private Chunk copy() {
+            Chunk copy = new Chunk(this.key);
+            copy.rows = this.rows.clone();
+            return copy;
+        }
+
+        private boolean isEmpty() {
+            for (long row : rows)
+                if (row != 0)
+                    return false;
+            return true;
+        }
+
+    }
+
+    private final GameOfLife.Settings settings;
+    private final BitRule rule;
+
+    private HashMap<ChunkKey, Chunk> chunks = new HashMap<>();
+    /**
+     * The XOR of the {@link Fingerprints#key(long, long) keys} of every row of every chunk.
+     * While fingerprinting, it is updated by the rows that change every step, otherwise it goes stale
+     * and is worked out again when asked for.
+     */
+    private long fingerprint;
+    private boolean fingerprinting, fingerprintStale;
+
+    /**
+     * The rows of a chunk being stepped, and of the chunks to its west and east,
+     * with the bordering row of the chunks above and below at either end, reused for every chunk.
+     */
+    private final long[] center = new long[CHUNK_SIZE + 2], west = new long[CHUNK_SIZE + 2], east = new long[CHUNK_SIZE + 2];
+
+    public InfiniteEngine(GameOfLife.Settings settings) {
+        this.settings = settings;
+        this.rule = new BitRule(settings.rule());
+    }
+
+    private InfiniteEngine(InfiniteEngine other) {
+        this.settings = other.settings;
+        this.rule = other.rule;
+        other.chunks.forEach((key, chunk) -> this.chunks.put(key, chunk.copy()));
+        this.fingerprint = other.fingerprint;
+        this.fingerprinting = other.fingerprinting;
+        this.fingerprintStale = other.fingerprintStale;
+    }
+
+    @Override
+    public int width() {
+        return this.settings.width();
+    }
+
+    @Override
+    public int height() {
+        return this.settings.height();
+    }
+
+    /**
+     * @return The number of chunks the live cells are stored in.
+     */
+    public int chunkCount() {
+        return this.chunks.size();
+    }
+
+    @Override
+    public void step() {
+        // make the chunks that cells could be born in, next to live cells at the edges of their chunks
+        for (Chunk chunk : new ArrayList<>(this.chunks.values())) {
+            long[] rows = chunk.rows;
+            long top = rows[0], bottom = rows[CHUNK_SIZE - 1], sides = 0;
+            for (long row : rows)
+                sides |= row;
+            long cx = chunk.key.x, cy = chunk.key.y;
+            if (top != 0) {
+                ensure(cx, cy - 1);
+                if ((top & 1) != 0) ensure(cx - 1, cy - 1);
+                if (top < 0) ensure(cx + 1, cy - 1);
+            }
+            if (bottom != 0) {
+                ensure(cx, cy + 1);
+                if ((bottom & 1) != 0) ensure(cx - 1, cy + 1);
+                if (bottom < 0) ensure(cx + 1, cy + 1);
+            }
+            if ((sides & 1) != 0) ensure(cx - 1, cy);
+            if (sides < 0) ensure(cx + 1, cy);
+        }
+
+        for (Chunk chunk : this.chunks.values())
+            stepChunk(chunk);
+
+        // swap in the next generation, and drop the chunks that died out
+        var iterator = this.chunks.values().iterator();
+        while (iterator.hasNext()) {
+            Chunk chunk = iterator.next();
+            for (int row = 0; fingerprinting && row < CHUNK_SIZE; row++)
+                if (chunk.rows[row] != chunk.next[row])
+                    fingerprint ^= Fingerprints.key(position(chunk.key, row), chunk.rows[row]) ^ Fingerprints.key(position(chunk.key, row), chunk.next[row]);
+            long[] swap = chunk.rows;
+            chunk.rows = chunk.next;
+            chunk.next = swap;
+            if (chunk.isEmpty())
+                iterator.remove();
+        }
+        if (!fingerprinting)
+            fingerprintStale = true;
+    }
+
+    /**
+     * @return A number for a row of a chunk, for its fingerprint key. Rows of chunks far apart may share numbers,
+     *         since the keys only have to look random.
+     */
+    private static long position(ChunkKey key, int row) {
+        return (key.x * 0x9E3779B97F4A7C15L) ^ ((key.y << CHUNK_BITS) + row);
+    }
+
+    private void ensure(long cx, long cy) {
+        this.chunks.computeIfAbsent(new ChunkKey(cx, cy), Chunk::new);
+    }
+
+    private long[] rows(long cx, long cy) {
+        Chunk chunk = this.chunks.get(new ChunkKey(cx, cy));
+        return chunk == null ? null : chunk.rows;
+    }
+
+    /**
+     * Compute the next generation of a chunk into its next buffer.
+     */
+    private void stepChunk(Chunk chunk) {
+        long cx = chunk.key.x, cy = chunk.key.y;
+        gather(center, rows(cx, cy - 1), chunk.rows, rows(cx, cy + 1));
+        gather(west, rows(cx - 1, cy - 1), rows(cx - 1, cy), rows(cx - 1, cy + 1));
+        gather(east, rows(cx + 1, cy - 1), rows(cx + 1, cy), rows(cx + 1, cy + 1));
+
+        long[] next = chunk.next;
+        for (int y = 0; y < CHUNK_SIZE; y++) {
+            long a = center[y], c = center[y + 1], b = center[y + 2];
+            // the neighbors to the west (x - 1) and east (x + 1), carrying bits over from the chunks to the sides
+            long aw = (a << 1) | (west[y] >>> 63), cw = (c << 1) | (west[y + 1] >>> 63), bw = (b << 1) | (west[y + 2] >>> 63);
+            long ae = (a >>> 1) | (east[y] << 63), ce = (c >>> 1) | (east[y + 1] << 63), be = (b >>> 1) | (east[y + 2] << 63);
+            next[y] = rule.apply(c, aw, a, ae, cw, ce, bw, b, be);
+        }
+    }
+
+    /**
+     * Fill a column of rows: the bottom row of the chunk above, the rows of the chunk, then the top row of the chunk below.
+     * Missing chunks are empty.
+     */
+    private static void gather(long[] into, long[] above, long[] rows, long[] below) {
+        into[0] = above == null ? 0 : above[CHUNK_SIZE - 1];
+        if (rows == null)
+            Arrays.fill(into, 1, CHUNK_SIZE + 1, 0);
+        else
+            System.arraycopy(rows, 0, into, 1, CHUNK_SIZE);
+        into[CHUNK_SIZE + 1] = below == null ? 0 : below[0];
+    }
+
+    @Override
+    public boolean isAlive(long x, long y) {
+        long[] rows = rows(x >> CHUNK_BITS, y >> CHUNK_BITS);
+        return rows != null && (rows[(int) (y & (CHUNK_SIZE - 1))] & (1L << x)) != 0;
+    }
+
+    @Override
+    public void set(long x, long y, boolean alive) {
+        ChunkKey key = new ChunkKey(x >> CHUNK_BITS, y >> CHUNK_BITS);
+        int row = (int) (y & (CHUNK_SIZE - 1));
+        if (alive) {
+            long[] rows = this.chunks.computeIfAbsent(key, Chunk::new).rows;
+            long old = rows[row];
+            rows[row] |= 1L << x;
+            if (!fingerprintStale)
+                fingerprint ^= Fingerprints.key(position(key, row), old) ^ Fingerprints.key(position(key, row), rows[row]);
+        } else {
+            Chunk chunk = this.chunks.get(key);
+            if (chunk == null)
+                return;
+            long old = chunk.rows[row];
+            chunk.rows[row] &= ~(1L << x);
+            if (!fingerprintStale)
+                fingerprint ^= Fingerprints.key(position(key, row), old) ^ Fingerprints.key(position(key, row), chunk.rows[row]);
+            if (chunk.isEmpty())
+                this.chunks.remove(key);
+        }
+    }
+
+    @Override
+    public void forEachLiveCell(long left, long top, long right, long bottom, LongLongConsumer action) {
+        if (left >= right || top >= bottom)
+            return;
+        long firstX = left >> CHUNK_BITS, lastX = (right - 1) >> CHUNK_BITS;
+        long firstY = top >> CHUNK_BITS, lastY = (bottom - 1) >> CHUNK_BITS;
+        // walk whichever is smaller, the chunks in the rectangle or the chunks that exist
+        if ((double) (lastX - firstX + 1) * (lastY - firstY + 1) <= this.chunks.size()) {
+            for (long cy = firstY; cy <= lastY; cy++)
+                for (long cx = firstX; cx <= lastX; cx++) {
+                    Chunk chunk = this.chunks.get(new ChunkKey(cx, cy));
+                    if (chunk != null)
+                        forEachLiveCell(chunk, left, top, right, bottom, action);
+                }
+        } else {
+            for (Chunk chunk : this.chunks.values())
+                if (chunk.key.x >= firstX && chunk.key.x <= lastX && chunk.key.y >= firstY && chunk.key.y <= lastY)
+                    forEachLiveCell(chunk, left, top, right, bottom, action);
+        }
+    }
+
+    private static void forEachLiveCell(Chunk chunk, long left, long top, long right, long bottom, LongLongConsumer action) {
+        long baseX = chunk.key.x << CHUNK_BITS, baseY = chunk.key.y << CHUNK_BITS;
+        for (int row = 0; row < CHUNK_SIZE; row++) {
+            long y = baseY + row;
+            if (y < top || y >= bottom)
+                continue;
+            long bits = chunk.rows[row];
+            while (bits != 0) {
+                long x = baseX + Long.numberOfTrailingZeros(bits);
+                if (x >= left && x < right)
+                    action.accept(x, y);
+                bits &= bits - 1;
+            }
+        }
+    }
+
+    @Override
+    public void set(int index, boolean alive) {
+        set((long) (index % width()), index / width(), alive);
+    }
+
+    @Override
+    public boolean isAlive(int index) {
+        return isAlive((long) (index % width()), index / width());
+    }
+
+    @Override
+    public int population() {
+        int population = 0;
+        for (Chunk chunk : this.chunks.values())
+            for (long row : chunk.rows)
+                population += Long.bitCount(row);
+        return population;
+    }
+
+    /**
+     * Run an action for every live cell on the board, the window of the plane from 0, 0 to the width and height.
+     */
+    @Override
+    public void forEachLiveCell(IntConsumer action) {
+        int width = width();
+        forEachLiveCell(0, 0, width, height(), (x, y) -> action.accept((int) (x + y * width)));
+    }
+
+    /**
+     * @return A 64-bit hash of every live cell on the plane, not only the board.
+     */
+    @Override
+    public long fingerprint() {
+        if (this.fingerprintStale) {
+            this.fingerprint = 0;
+            for (Chunk chunk : this.chunks.values())
+                for (int row = 0; row < CHUNK_SIZE; row++)
+                    this.fingerprint ^= Fingerprints.key(position(chunk.key, row), chunk.rows[row]);
+            this.fingerprintStale = false;
+        }
+        return this.fingerprint;
+    }
+
+    @Override
+    public void setFingerprinting(boolean fingerprinting) {
+        if (fingerprinting)
+            fingerprint();
+        this.fingerprinting = fingerprinting;
+    }
+
+    @Override
+    public long memoryEstimate() {
+        // the rows and the buffer of every chunk, and its entry in the map
+        return this.chunks.size() * (2L * CHUNK_SIZE * Long.BYTES + 96);
+    }
+
+    @Override
+    public void clear() {
+        this.chunks.clear();
+        this.fingerprint = 0;
+        this.fingerprintStale = false;
+    }
+
+    @Override
+    public InfiniteEngine copy() {
+        return new InfiniteEngine(this);
+    }
+
+}
@@ -0,0 +1,11 @@
+package gameoflife.engine;
+
+/**
+ * An action that takes two ints, such as the index and the age of a cell.
+ */
+@FunctionalInterface
+public interface IntIntConsumer {
+
+    void accept(int a, int b);
+
+}
@@ -0,0 +1,213 @@
+package gameoflife.engine;
+
+import gameoflife.GameOfLife;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * An engine for Larger than Life rules, where neighborhoods reach out to a radius.
+ * <p>
+ * Counting every neighbor would cost (2R + 1)^2 per cell, so instead every generation builds a
+ * summed-area table, in which every entry is the number of live cells above and to the left of it.
+ * The count of any rectangle then takes four lookups, whatever the radius. The table is built over the board
+ * padded by the radius on every side, with the opposite edges copied in when the board is toroidal,
+ * so neighborhoods never have to wrap around themselves.
+ * <p>
+ * A von Neumann neighborhood is a diamond, which becomes a square when the padded board is turned by 45 degrees:
+ * the cell at (x, y) is put at (x + y, x - y), where the cells within the radius in steps are the cells
+ * within the radius on both axes. Its table is about twice as wide and tall as the board, but counts just as fast.
+ */
+public class LargerThanLifeEngine implements LifeEngine {
+
+    private final GameOfLife.Settings settings;
+    private final LargerThanLifeRule rule;
+    private final int width, height, radius;
+
+    /**
+     * The current generation and the buffer the next generation is written into.
+     */
+    private boolean[] cells, next;
+
+    /**
+     * For every column and row of the padded board, the column or row of the board it shows, or -1 if it is empty.
+     */
+    private final int[] sourceX, sourceY;
+    /**
+     * The summed-area table, made on the first step, and its width. Entry (u, v) is the number of live cells
+     * in the columns before u and the rows before v, so its first row and column are zeros.
+     */
+    private int[] table;
+    private final int tableWidth, tableHeight;
+
+    public LargerThanLifeEngine(GameOfLife.Settings settings) {
+        this.settings = settings;
+        this.rule = settings.largerThanLifeRule();
+        this.width = settings.width();
+        this.height = settings.height();
+        this.radius = rule.radius();
+        this.cells = new boolean[width * height];
+        this.next = new boolean[width * height];
+
+        int paddedWidth = width + 2 * radius, paddedHeight = height + 2 * radius;
+        this.sourceX = source(paddedWidth, width, settings.toroidal());
+        this.sourceY = source(paddedHeight, height, settings.toroidal());
+        if (rule.neighborhood() == LargerThanLifeRule.Neighborhood.MOORE) {
+            this.tableWidth = paddedWidth + 1;
+            this.tableHeight = paddedHeight + 1;
+        } else {
+            this.tableWidth = paddedWidth + paddedHeight;
+            this.tableHeight = paddedWidth + paddedHeight;
+        }
+    }
+
+    private LargerThanLifeEngine(LargerThanLifeEngine other) {
+        this.settings = other.settings;
+        this.rule = other.rule;
+        this.width = other.width;
+        this.height = other.height;
+        this.radius = other.radius;
+        this.cells = other.cells.clone();
+        this.next = new boolean[other.next.length];
+        this.sourceX = other.sourceX;
+        this.sourceY = other.sourceY;
+        this.tableWidth = other.tableWidth;
+        this.tableHeight = other.tableHeight;
+    }
+
+    /**
+     * @param padded The size of the padded board along an axis.
+     * @param size The size of the board along the axis.
+     * @return The position on the board shown at every position of the padded board, or -1 for empty positions.
+     */
+    private int[] source(int padded, int size, boolean toroidal) {
+        int[] source = new int[padded];
+        for (int i = 0; i < padded; i++) {
+            int position = i - radius;
+            source[i] = toroidal ? Math.floorMod(position, size) : position >= 0 && position < size ? position : -1;
+        }
+        return source;
+    }
+
+    @Override
+    public int width() {
+        return this.width;
+    }
+
+    @Override
+    public int height() {
+        return this.height;
+    }
+
+    @Override
+    public void step() {
+        if (this.table == null)
+            this.table = new int[tableWidth * tableHeight];
+        int[] table = this.table;
+        boolean moore = rule.neighborhood() == LargerThanLifeRule.Neighborhood.MOORE;
+        int paddedHeight = sourceY.length;
+
+        // put every live cell of the padded board into the table, then add up the rows and the columns
+        Arrays.fill(table, 0);
+        for (int j = 0; j < paddedHeight; j++) {
+            int y = sourceY[j];
+            if (y < 0)
+                continue;
+            for (int i = 0; i < sourceX.length; i++) {
+                int x = sourceX[i];
+                if (x < 0 || !cells[x + y * width])
+                    continue;
+                if (moore)
+                    table[(i + 1) + (j + 1) * tableWidth] = 1;
+                else
+                    table[(i + j + 1) + (i - j + paddedHeight) * tableWidth] = 1;
+            }
+        }
+        for (int v = 1; v < tableHeight; v++) {
+            int row = v * tableWidth;
+            for (int u = 1; u < tableWidth; u++)
+                table[row + u] += table[row + u - 1];
+        }
+        for (int v = 1; v < tableHeight; v++) {
+            int row = v * tableWidth, above = row - tableWidth;
+            for (int u = 0; u < tableWidth; u++)
+                table[row + u] += table[above + u];
+        }
+
+        int r = this.radius, size = 2 * r + 1;
+        boolean middle = rule.countsMiddle();
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                // the corner of the neighborhood in the table, which is shifted by the padding
+                int u, v;
+                if (moore) {
+                    u = x;
+                    v = y;
+                } else {
+                    u = x + y + r;
+                    v = x - y + paddedHeight - 1 - r;
+                }
+                int top = v * tableWidth, bottom = (v + size) * tableWidth;
+                int count = table[bottom + u + size] - table[top + u + size] - table[bottom + u] + table[top + u];
+                boolean alive = cells[x + y * width];
+                if (alive && !middle)
+                    count--;
+                next[x + y * width] = rule.next(alive, count);
+            }
+        }
+
+        boolean[] swap = cells;
+        cells = next;
+        next = swap;
+    }
+
+    @Override
+    public void step(IntConsumer changed) {
+        step();
+        for (int i = 0; i < this.cells.length; i++)
+            if (this.cells[i] != this.next[i])
+                changed.accept(i);
+    }
+
+    @Override
+    public void set(int index, boolean alive) {
+        this.cells[index] = alive;
+    }
+
+    @Override
+    public boolean isAlive(int index) {
+        return this.cells[index];
+    }
+
+    @Override
+    public int population() {
+        int population = 0;
+        for (boolean alive : this.cells)
+            if (alive)
+                population++;
+        return population;
+    }
+
+    @Override
+    public void forEachLiveCell(IntConsumer action) {
+        for (int i = 0; i < this.cells.length; i++)
+            if (this.cells[i])
+                action.accept(i);
+    }
+
+    @Override
+    public long memoryEstimate() {
+        return this.cells.length * 2L + (this.table == null ? 0 : this.table.length * 4L);
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(this.cells, false);
+    }
+
+    @Override
+    public LargerThanLifeEngine copy() {
+        return new LargerThanLifeEngine(this);
+    }
+
+}
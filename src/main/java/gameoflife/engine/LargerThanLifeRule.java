@@ -0,0 +1,136 @@
+package gameoflife.engine;
+
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The rules of a Larger than Life game, where cells count their live neighbors out to a radius
+ * rather than only the eight cells around them. Rules are written the way Golly writes them,
+ * such as R5,C0,M1,S34..58,B34..45,NM for Bosco's rule:
+ * <ul>
+ *     <li>R is the radius of the neighborhood.</li>
+ *     <li>C is the number of states, where 0 and 2 both mean cells are only alive or dead.</li>
+ *     <li>M is 1 if a cell counts itself as a neighbor, otherwise 0.</li>
+ *     <li>S and B are the ranges of counts that keep a live cell alive and bring a dead cell to life.</li>
+ *     <li>N is the shape of the neighborhood, M for a square (Moore) or N for a diamond (von Neumann).</li>
+ * </ul>
+ * C, M and N may be left out, in which case there are two states, cells do not count themselves,
+ * and the neighborhood is a square.
+ */
+public final class LargerThanLifeRule {
+
+    /**
+     * The shape of a neighborhood: every cell within the radius on both axes,
+     * or every cell within the radius in steps along the axes.
+     */
+    public enum Neighborhood { MOORE, VON_NEUMANN }
+
+    /**
+     * The largest radius a rule can have.
+     */
+    public static final int MAX_RADIUS = 500;
+
+    private static final Pattern PATTERN = Pattern.compile(
+            "R(\\d+)(?:,C(\\d+))?(?:,M([01]))?,S(\\d+)\\.\\.(\\d+),B(\\d+)\\.\\.(\\d+)(?:,N([MN]))?");
+
+    private final int radius;
+    private final boolean middle;
+    private final int surviveMin, surviveMax, birthMin, birthMax;
+    private final Neighborhood neighborhood;
+
+    private LargerThanLifeRule(int radius, boolean middle, int surviveMin, int surviveMax, int birthMin, int birthMax, Neighborhood neighborhood) {
+        this.radius = radius;
+        this.middle = middle;
+        this.surviveMin = surviveMin;
+        this.surviveMax = surviveMax;
+        this.birthMin = birthMin;
+        this.birthMax = birthMax;
+        this.neighborhood = neighborhood;
+    }
+
+    /**
+     * @param rulestring A rulestring of any kind.
+     * @return true if the rulestring is written the way Larger than Life rules are, starting with a radius.
+     */
+    public static boolean isLargerThanLife(String rulestring) {
+        return rulestring.trim().toUpperCase(Locale.ROOT).startsWith("R");
+    }
+
+    /**
+     * Read a Larger than Life rulestring, such as R5,C0,M1,S34..58,B34..45,NM.
+     * @param rulestring The rulestring, in any case.
+     * @return The rule.
+     * @throws IllegalArgumentException The string is not a Larger than Life rulestring,
+     *                                  or it has more than two states or too large a radius.
+     */
+    public static LargerThanLifeRule parse(String rulestring) {
+        Matcher matcher = PATTERN.matcher(rulestring.trim().toUpperCase(Locale.ROOT).replace(" ", ""));
+        if (!matcher.matches())
+            throw new IllegalArgumentException("Not a Larger than Life rulestring: " + rulestring);
+        try {
+            int radius = Integer.parseInt(matcher.group(1));
+            if (radius < 1 || radius > MAX_RADIUS)
+                throw new IllegalArgumentException("The radius must be between 1 and " + MAX_RADIUS);
+            if (matcher.group(2) != null && Integer.parseInt(matcher.group(2)) > 2)
+                throw new IllegalArgumentException("Only rules with two states are supported");
+            return new LargerThanLifeRule(
+                    radius,
+                    "1".equals(matcher.group(3)),
+                    Integer.parseInt(matcher.group(4)),
+                    Integer.parseInt(matcher.group(5)),
+                    Integer.parseInt(matcher.group(6)),
+                    Integer.parseInt(matcher.group(7)),
+                    "N".equals(matcher.group(8)) ? Neighborhood.VON_NEUMANN : Neighborhood.MOORE);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a Larger than Life rulestring: " + rulestring);
+        }
+    }
+
+    public int radius() {
+        return this.radius;
+    }
+
+    /**
+     * @return true if a cell counts itself as one of its neighbors.
+     */
+    public boolean countsMiddle() {
+        return this.middle;
+    }
+
+    public Neighborhood neighborhood() {
+        return this.neighborhood;
+    }
+
+    /**
+     * @param alive The current state of the cell.
+     * @param neighbors The number of live cells in the neighborhood of the cell.
+     * @return The next state of the cell.
+     */
+    public boolean next(boolean alive, int neighbors) {
+        return alive
+                ? neighbors >= this.surviveMin && neighbors <= this.surviveMax
+                : neighbors >= this.birthMin && neighbors <= this.birthMax;
+    }
+
+    /**
+     * @return The rulestring of this rule, with every part written out.
+     */
+    @Override
+    public String toString() {
+        return String.format("R%d,C0,M%d,S%d..%d,B%d..%d,N%s",
+                this.radius, this.middle ? 1 : 0, this.surviveMin, this.surviveMax, this.birthMin, this.birthMax,
+                this.neighborhood == Neighborhood.MOORE ? "M" : "N");
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof LargerThanLifeRule rule && rule.toString().equals(this.toString());
+    }
+
+    @Override
+    public int hashCode() {
+        return this.toString().hashCode();
+    }
+
+}
@@ -0,0 +1,138 @@
+package gameoflife.engine;
+
+import java.util.BitSet;
+import java.util.function.IntConsumer;
+
+/**
+ * A backend that stores a board and computes its generations.
+ * Cells are addressed by their index, x + y * width. Engines only know which cells are alive,
+ * the ages of cells are kept apart in an {@link AgePlane}.
+ */
+public interface LifeEngine {
+
+    /**
+     * @return The width of the board.
+     */
+    int width();
+
+    /**
+     * @return The height of the board.
+     */
+    int height();
+
+    /**
+     * Move forward one generation.
+     */
+    void step();
+
+    /**
+     * Move forward one generation, and tell an action about every cell that was born or died in it.
+     * Engines that can see what changed as they step do this faster than comparing the live cells before and after.
+     * @param changed Receives the index of every cell that was born or died, in no particular order.
+     */
+    default void step(IntConsumer changed) {
+        BitSet before = new BitSet(width() * height());
+        forEachLiveCell(before::set);
+        step();
+        // the cells alive before that are still alive are cleared, which leaves the ones that died
+        forEachLiveCell(index -> {
+            if (before.get(index))
+                before.clear(index);
+            else
+                changed.accept(index);
+        });
+        before.stream().forEach(changed);
+    }
+
+    /**
+     * Move forward a number of generations.
+     * @param generations The number of generations to move forward.
+     */
+    default void stepN(long generations) {
+        for (long i = 0; i < generations; i++)
+            step();
+    }
+
+    /**
+     * Toggle the state of a cell.
+     * @param index The index of the cell.
+     * @return The new state of the cell.
+     */
+    default boolean toggle(int index) {
+        boolean alive = !isAlive(index);
+        set(index, alive);
+        return alive;
+    }
+
+    /**
+     * Set the state of a cell.
+     * @param index The index of the cell.
+     * @param alive The new state of the cell.
+     */
+    void set(int index, boolean alive);
+
+    /**
+     * @param index The index of the cell.
+     * @return true if the cell is alive.
+     */
+    boolean isAlive(int index);
+
+    /**
+     * @return The number of live cells the engine holds. Engines on an unbounded plane count every live cell
+     *         on the plane, including the ones off the board, so this can be more than {@link #forEachLiveCell} visits.
+     */
+    int population();
+
+    /**
+     * Run an action for every live cell.
+     * @param action Receives the index of every live cell.
+     */
+    void forEachLiveCell(IntConsumer action);
+
+    /**
+     * A 64-bit hash of the live cells, which is the same for boards with the same live cells,
+     * and almost never the same for boards without. Engines keep it up to date as cells change where they can,
+     * otherwise it is worked out from the live cells when asked for.
+     * @return The fingerprint of the board.
+     */
+    default long fingerprint() {
+        long[] fingerprint = { 0 };
+        forEachLiveCell(index -> fingerprint[0] ^= Fingerprints.key(index, 1));
+        return fingerprint[0];
+    }
+
+    /**
+     * Start or stop keeping the fingerprint up to date as the board steps, rather than working it out when asked for.
+     * That pays off while it is asked for every generation, and costs time otherwise.
+     * Engines that always work it out when asked for ignore this.
+     * @param fingerprinting true to keep the fingerprint up to date.
+     */
+    default void setFingerprinting(boolean fingerprinting) {}
+
+    /**
+     * @return Roughly how many bytes the board takes up, such as for keeping copies of it under a memory budget.
+     *         Engines that do not know guess from the number of live cells.
+     */
+    default long memoryEstimate() {
+        return 16L * population();
+    }
+
+    /**
+     * @return true if the cells of the board are all there is to the engine, so it can be set back to any generation
+     *         from the cells that were alive in it. Engines that go on past the board's edges return false.
+     */
+    default boolean isBounded() {
+        return true;
+    }
+
+    /**
+     * Kill every cell.
+     */
+    void clear();
+
+    /**
+     * @return An independent copy of this engine and its board.
+     */
+    LifeEngine copy();
+
+}
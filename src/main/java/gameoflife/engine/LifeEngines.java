@@ -0,0 +1,62 @@
+package gameoflife.engine;
+
+import gameoflife.GameOfLife;
+
+/**
+ * Creates the engine a game runs on.
+ */
+public class LifeEngines {
+
+    /**
+     * The system property that picks the engine when the settings do not.
+     */
+    public static final String ENGINE_PROPERTY = "gameoflife.engine";
+
+    /**
+     * The engine used when neither the settings nor the system property pick one.
+     */
+    public static final String DEFAULT_ENGINE = "dense";
+
+    private LifeEngines() {}
+
+    /**
+     * @param settings The settings of the game.
+     * @return The name of the engine the settings ask for.
+     */
+    public static String name(GameOfLife.Settings settings) {
+        if (settings.engine() != null)
+            return settings.engine();
+        // no other engine runs Larger than Life rules, whatever the system property says
+        if (settings.isLargerThanLife())
+            return "largerthanlife";
+        return System.getProperty(ENGINE_PROPERTY, DEFAULT_ENGINE);
+    }
+
+    /**
+     * Create an empty board on the engine picked by the settings, or by the system property.
+     * @param settings The settings of the game.
+     * @return A new engine.
+     * @throws IllegalArgumentException There is no engine with the picked name, or it cannot run the rules,
+     *                                  or it runs on an unbounded plane and the settings ask for edges that wrap around.
+     */
+    public static LifeEngine create(GameOfLife.Settings settings) {
+        String name = name(settings);
+        if (settings.toroidal() && (name.equals("hashlife") || name.equals("infinite")))
+            throw new IllegalArgumentException("The " + name + " engine runs on an unbounded plane, whose edges cannot wrap around");
+        return switch (name) {
+            case "hashmap" -> new HashMapEngine(settings);
+            case "sparse" -> new SparseEngine(settings);
+            case "dense" -> new DenseEngine(settings);
+            case "tiled" -> {
+                DenseEngine engine = new DenseEngine(settings);
+                engine.setTileTracking(true);
+                yield engine;
+            }
+            case "hashlife" -> new HashLifeEngine(settings);
+            case "infinite" -> new InfiniteEngine(settings);
+            case "largerthanlife" -> new LargerThanLifeEngine(settings);
+            default -> throw new IllegalArgumentException("Unknown engine: " + name);
+        };
+    }
+
+}
@@ -0,0 +1,11 @@
+package gameoflife.engine;
+
+/**
+ * An action that takes two longs, such as the x and y position of a cell on an unbounded plane.
+ */
+@FunctionalInterface
+public interface LongLongConsumer {
+
+    void accept(long a, long b);
+
+}
@@ -0,0 +1,52 @@
+package gameoflife.engine;
+
+/**
+ * An engine whose cells are not limited to the board, but live on an unbounded plane
+ * addressed by 64 bit coordinates. The board is only the window onto the plane
+ * that the {@link LifeEngine} methods work on, with its top left corner at 0, 0.
+ */
+public interface PlaneEngine extends LifeEngine {
+
+    /**
+     * @param x The x position of the cell on the plane.
+     * @param y The y position of the cell on the plane.
+     * @return true if the cell is alive.
+     */
+    boolean isAlive(long x, long y);
+
+    /**
+     * Set the state of a cell.
+     * @param x The x position of the cell on the plane.
+     * @param y The y position of the cell on the plane.
+     * @param alive The new state of the cell.
+     */
+    void set(long x, long y, boolean alive);
+
+    /**
+     * Toggle the state of a cell.
+     * @param x The x position of the cell on the plane.
+     * @param y The y position of the cell on the plane.
+     * @return The new state of the cell.
+     */
+    default boolean toggle(long x, long y) {
+        boolean alive = !isAlive(x, y);
+        set(x, y, alive);
+        return alive;
+    }
+
+    /**
+     * Run an action for every live cell in a rectangle of the plane.
+     * @param left The x position of the left edge of the rectangle.
+     * @param top The y position of the top edge of the rectangle.
+     * @param right The x position just past the right edge of the rectangle.
+     * @param bottom The y position just past the bottom edge of the rectangle.
+     * @param action Receives the x and y position of every live cell in the rectangle.
+     */
+    void forEachLiveCell(long left, long top, long right, long bottom, LongLongConsumer action);
+
+    @Override
+    default boolean isBounded() {
+        return false;
+    }
+
+}
@@ -0,0 +1,22 @@
+package gameoflife.engine;
+
+/**
+ * Computes the middle words of a row of a {@link DenseBoard}, the ones whose neighbors
+ * to the west and east are in the same row, so no wrapping around is needed.
+ */
+interface RowKernel {
+
+    /**
+     * Compute words of one row of the next generation, as many as the kernel can do at once.
+     * @param cells The current generation.
+     * @param next The buffer the next generation is written into.
+     * @param above The offset of the row above.
+     * @param row The offset of the row.
+     * @param below The offset of the row below.
+     * @param from The first word of the row to compute, at least 1.
+     * @param to The word after the last word to compute, at most the last word of the row.
+     * @return The word after the last word that was computed, which the caller has to go on from.
+     */
+    int step(long[] cells, long[] next, int above, int row, int below, int from, int to);
+
+}
@@ -0,0 +1,167 @@
+package gameoflife.engine;
+
+import java.util.Locale;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * The rules of a Life-like game: the numbers of live neighbors that bring a dead cell to life,
+ * and the numbers that keep a live cell alive. Rules are written as B/S rulestrings,
+ * such as B3/S23 for Conway's game and B36/S23 for HighLife.
+ * <p>
+ * A rule is compiled into two 9 bit masks, with bit n set if n neighbors count,
+ * and on demand into a table of the next state of a cell for every 3x3 neighborhood.
+ * <p>
+ * Rules where dead cells with no live neighbors come to life, such as B0/S8, are not supported,
+ * since they would bring every empty cell of an unbounded plane to life.
+ */
+public final class Rule {
+
+    public static final Rule CONWAY = new Rule(1 << 3, (1 << 2) | (1 << 3));
+
+    /**
+     * B3/S23, or b3s23, with the birth counts first.
+     */
+    private static final Pattern BIRTH_FIRST = Pattern.compile("B([0-8]*)/?S([0-8]*)");
+    /**
+     * S23/B3, with the survival counts first.
+     */
+    private static final Pattern SURVIVAL_FIRST = Pattern.compile("S([0-8]*)/?B([0-8]*)");
+    /**
+     * 23/3, the older notation with the survival counts first and no letters.
+     */
+    private static final Pattern NUMBERS_ONLY = Pattern.compile("([0-8]*)/([0-8]*)");
+
+    /**
+     * The neighbor counts that bring a dead cell to life, and keep a live cell alive, as bit masks.
+     */
+    private final int birth, survive;
+    /**
+     * The next state of a cell for every 3x3 neighborhood, made the first time it is asked for.
+     */
+    private boolean[] table;
+
+    private Rule(int birth, int survive) {
+        if ((birth & 1) != 0)
+            throw new IllegalArgumentException("Rules where cells come to life with no neighbors are not supported");
+        this.birth = birth;
+        this.survive = survive;
+    }
+
+    /**
+     * Read a B/S rulestring, such as B3/S23, S23/B3 or 23/3.
+     * @param rulestring The rulestring, in any case.
+     * @return The rule.
+     * @throws IllegalArgumentException The string is not a B/S rulestring, or brings cells to life with no neighbors.
+     */
+    public static Rule parse(String rulestring) {
+        String s = rulestring.trim().toUpperCase(Locale.ROOT);
+        Matcher matcher;
+        if ((matcher = BIRTH_FIRST.matcher(s)).matches())
+            return new Rule(mask(matcher.group(1)), mask(matcher.group(2)));
+        if ((matcher = SURVIVAL_FIRST.matcher(s)).matches() || (matcher = NUMBERS_ONLY.matcher(s)).matches())
+            return new Rule(mask(matcher.group(2)), mask(matcher.group(1)));
+        throw new IllegalArgumentException("Not a B/S rulestring: " + rulestring);
+    }
+
+    /**
+     * The rule of the original settings, where live cells stay alive with a range of neighbors
+     * and dead cells come to life with an exact number of neighbors.
+     * @param minNeighbors The fewest neighbors that keep a live cell alive.
+     * @param maxNeighbors The most neighbors that keep a live cell alive.
+     * @param neededNeighbors The number of neighbors that bring a dead cell to life.
+     * @return The rule.
+     * @throws IllegalArgumentException Cells come to life with no neighbors.
+     */
+    public static Rule of(int minNeighbors, int maxNeighbors, int neededNeighbors) {
+        int survive = 0;
+        for (int n = Math.max(minNeighbors, 0); n <= Math.min(maxNeighbors, 8); n++)
+            survive |= 1 << n;
+        int birth = neededNeighbors >= 0 && neededNeighbors <= 8 ? 1 << neededNeighbors : 0;
+        return new Rule(birth, survive);
+    }
+
+    private static int mask(String digits) {
+        int mask = 0;
+        for (int i = 0; i < digits.length(); i++)
+            mask |= 1 << (digits.charAt(i) - '0');
+        return mask;
+    }
+
+    /**
+     * @return The neighbor counts that bring a dead cell to life, with bit n set if n neighbors do.
+     */
+    public int birthMask() {
+        return this.birth;
+    }
+
+    /**
+     * @return The neighbor counts that keep a live cell alive, with bit n set if n neighbors do.
+     */
+    public int surviveMask() {
+        return this.survive;
+    }
+
+    public boolean isBorn(int neighbors) {
+        return (this.birth & (1 << neighbors)) != 0;
+    }
+
+    public boolean survives(int neighbors) {
+        return (this.survive & (1 << neighbors)) != 0;
+    }
+
+    /**
+     * @param alive The current state of the cell.
+     * @param neighbors The number of live neighbors of the cell.
+     * @return The next state of the cell.
+     */
+    public boolean next(boolean alive, int neighbors) {
+        return ((alive ? this.survive : this.birth) & (1 << neighbors)) != 0;
+    }
+
+    /**
+     * Look up the next state of a cell from its 3x3 neighborhood.
+     * @param neighborhood The 9 cells of the neighborhood, row by row from the top left,
+     *                     with the cell at (dx, dy) in bit (dx + 1) + 3 * (dy + 1), so the cell itself is bit 4.
+     * @return The next state of the cell.
+     */
+    public boolean next(int neighborhood) {
+        boolean[] table = this.table;
+        if (table == null) {
+            table = new boolean[512];
+            for (int i = 0; i < 512; i++) {
+                boolean alive = (i & (1 << 4)) != 0;
+                table[i] = next(alive, Integer.bitCount(i) - (alive ? 1 : 0));
+            }
+            this.table = table;
+        }
+        return table[neighborhood];
+    }
+
+    /**
+     * @return The rulestring of this rule, such as B3/S23.
+     */
+    @Override
+    public String toString() {
+        return "B" + digits(this.birth) + "/S" + digits(this.survive);
+    }
+
+    private static String digits(int mask) {
+        StringBuilder digits = new StringBuilder();
+        for (int n = 0; n <= 8; n++)
+            if ((mask & (1 << n)) != 0)
+                digits.append(n);
+        return digits.toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof Rule rule && rule.birth == this.birth && rule.survive == this.survive;
+    }
+
+    @Override
+    public int hashCode() {
+        return this.birth * 512 + this.survive;
+    }
+
+}
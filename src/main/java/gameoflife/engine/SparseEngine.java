@@ -0,0 +1,168 @@
+package gameoflife.engine;
+
+import gameoflife.GameOfLife;
+
+import java.util.function.IntConsumer;
+
+/**
+ * An engine that keeps only the live cells, in a primitive {@link CellSet}, and counts neighbors
+ * in a primitive {@link CellMap}, which suits large boards with few live cells: its memory grows with the pattern,
+ * not the board. Once its buffers have grown to fit the pattern, stepping does not allocate.
+ */
+public class SparseEngine implements LifeEngine {
+
+    private final GameOfLife.Settings settings;
+    /**
+     * The neighbor counts that keep a live cell alive, and bring a dead cell to life, as bit masks.
+     */
+    private final int survive, birth;
+
+    /**
+     * The index of every live cell.
+     */
+    private CellSet cells = new CellSet();
+
+    /**
+     * The set the next generation is written into, which swaps with the current one every step.
+     */
+    private CellSet spare = new CellSet();
+    /**
+     * The number of live neighbors of every cell next to a live cell, which is empty between steps.
+     * It only holds the live cells and their neighbors, so it stays small on a large board,
+     * and keeps its table from one step to the next.
+     */
+    private final CellMap counts = new CellMap();
+
+    public SparseEngine(GameOfLife.Settings settings) {
+        this.settings = settings;
+        Rule rule = settings.rule();
+        this.survive = rule.surviveMask();
+        this.birth = rule.birthMask();
+    }
+
+    private SparseEngine(SparseEngine other) {
+        this.settings = other.settings;
+        this.survive = other.survive;
+        this.birth = other.birth;
+        this.cells = other.cells.copy();
+    }
+
+    @Override
+    public int width() {
+        return this.settings.width();
+    }
+
+    @Override
+    public int height() {
+        return this.settings.height();
+    }
+
+    @Override
+    public void step() {
+        int width = width(), height = height();
+        boolean toroidal = this.settings.toroidal();
+        CellMap counts = this.counts;
+        CellSet current = this.cells, next = this.spare;
+
+        // count the live neighbors of every cell next to a live cell
+        for (int slot = 0; slot < current.capacity(); slot++) {
+            int index = current.keyAt(slot);
+            if (index < 0)
+                continue;
+            int x = index % width, y = index / width;
+            for (int dy = -1; dy <= 1; dy++) {
+                for (int dx = -1; dx <= 1; dx++) {
+                    if (dx == 0 && dy == 0)
+                        continue;
+                    int nx = x + dx, ny = y + dy;
+                    if (toroidal) {
+                        nx = nx < 0 ? nx + width : nx >= width ? nx - width : nx;
+                        ny = ny < 0 ? ny + height : ny >= height ? ny - height : ny;
+                    } else if (nx < 0 || nx >= width || ny < 0 || ny >= height) {
+                        continue;
+                    }
+                    counts.add(nx + ny * width, 1);
+                }
+            }
+        }
+
+        next.clear();
+        // live cells without any live neighbors were not counted
+        if ((survive & 1) != 0) {
+            for (int slot = 0; slot < current.capacity(); slot++) {
+                int index = current.keyAt(slot);
+                if (index >= 0 && !counts.containsKey(index))
+                    next.add(index);
+            }
+        }
+        for (int slot = 0; slot < counts.capacity(); slot++) {
+            int index = counts.keyAt(slot);
+            if (index < 0)
+                continue;
+            int rule = current.contains(index) ? survive : birth;
+            if ((rule & (1 << counts.valueAt(slot))) != 0)
+                next.add(index);
+        }
+        counts.clear();
+
+        this.spare = current;
+        this.cells = next;
+    }
+
+    @Override
+    public void step(IntConsumer changed) {
+        step();
+        // the set the last generation was in is kept as the spare until the next step
+        CellSet now = this.cells, before = this.spare;
+        now.forEach(index -> {
+            if (!before.contains(index))
+                changed.accept(index);
+        });
+        before.forEach(index -> {
+            if (!now.contains(index))
+                changed.accept(index);
+        });
+    }
+
+    @Override
+    public boolean toggle(int index) {
+        if (this.cells.remove(index))
+            return false;
+        this.cells.add(index);
+        return true;
+    }
+
+    @Override
+    public void set(int index, boolean alive) {
+        if (alive)
+            this.cells.add(index);
+        else
+            this.cells.remove(index);
+    }
+
+    @Override
+    public boolean isAlive(int index) {
+        return this.cells.contains(index);
+    }
+
+    @Override
+    public int population() {
+        return this.cells.size();
+    }
+
+    @Override
+    public void forEachLiveCell(IntConsumer action) {
+        this.cells.forEach(action);
+    }
+
+    @Override
+    public void clear() {
+        this.cells.clear();
+    }
+
+    @Override
+    public SparseEngine copy() {
+        return new SparseEngine(this);
+    }
+
+}
@@ -30,6 +30,9 @@ public class Autoplay implements Runnable {
     public void run() {
         try {
             synchronized (this) {
+                // when the next step is due, which moves on by the interval every step rather than
+                // starting after the step, so steps that take a while do not stretch the ones after them
+                long due = System.nanoTime();
                 while(true) {
                     if(game.exists() && running.get()) {
                         if (this.isReverse()) {
@@ -37,12 +40,20 @@ public class Autoplay implements Runnable {
                                 this.pause();
                             this.game.stepBack();
                         } else {
-                            this.game.step();
+                            this.game.stepAhead();
+                            // once the board repeats itself, playing on would only show the same generations again
+                            if (this.game.current.getPeriod() > 0) {
+                                this.pause();
+                                this.game.refresh();
+                            }
                         }
 
-                        Thread.sleep(interval.get());
+                        long now = System.nanoTime();
+                        due = Math.max(due + interval.get() * 1_000_000L, now);
+                        Thread.sleep((due - now) / 1_000_000);
                     } else {
                             wait();
+                            due = System.nanoTime();
                     }
                 }
             }
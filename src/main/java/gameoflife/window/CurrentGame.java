@@ -1,6 +1,12 @@
 package gameoflife.window;
 
 import gameoflife.GameOfLife;
+import gameoflife.LookAhead;
+import gameoflife.Seeker;
+import gameoflife.engine.LongLongConsumer;
+
+import javax.swing.*;
+import java.util.concurrent.CompletableFuture;
 
 
 /**
@@ -9,6 +15,19 @@ import gameoflife.GameOfLife;
 public class CurrentGame {
 
     public GameOfLife current;
+    /**
+     * Works out the generations after the current one while the game plays forwards.
+     */
+    private LookAhead lookAhead;
+    /**
+     * The number of generations worked out ahead.
+     */
+    private static final int LOOK_AHEAD = 8;
+    /**
+     * Goes to other steps on another thread, so long replays do not freeze the window.
+     * The game is changed while holding this, and the seek being replayed is cancelled first.
+     */
+    private Seeker seeker;
     private GameControls controls;
     private GameBoard board;
     private final Runnable updateWindow;
@@ -19,7 +38,17 @@ public class CurrentGame {
 
     public void setCurrent(GameOfLife game) {
         System.out.println("Set new game with width " + game.width() + " and height " + game.height());
-        this.current = game;
+        synchronized (this) {
+            if (this.lookAhead != null)
+                this.lookAhead.close();
+            if (this.seeker != null)
+                this.seeker.close();
+            this.current = game;
+            this.lookAhead = new LookAhead(game, LOOK_AHEAD);
+            this.seeker = new Seeker(game, this);
+        }
+        // the board colors cells by their age
+        game.setAgeTracking(true);
         this.board.resetTransformations();
         updateWindow.run();
         this.refresh();
@@ -34,22 +63,80 @@ public class CurrentGame {
      * Step forward and update the graphics and controls.
      */
     public void step() {
+        this.seeker.cancel();
         synchronized (this) {
             this.current.step();
             refresh();
         }
     }
 
+    /**
+     * Step forward with the generation worked out ahead, and update the graphics and controls.
+     * This is how autoplay steps, since its steps come one after another.
+     */
+    public void stepAhead() throws InterruptedException {
+        this.seeker.cancel();
+        synchronized (this) {
+            this.lookAhead.step();
+            refresh();
+        }
+    }
+
+    /**
+     * Toggle a cell, throwing away the generations worked out ahead, which no longer follow.
+     */
+    public void toggleCell(long x, long y) {
+        this.seeker.cancel();
+        synchronized (this) {
+            this.current.toggleCell(x, y);
+            this.lookAhead.invalidate();
+        }
+    }
+
     /**
      * Step backwards and update the graphics and controls.
+     * This is how autoplay steps back, on its own thread.
      */
     public void stepBack() {
+        this.seeker.cancel();
         synchronized (this) {
             this.current.stepBack();
             refresh();
         }
     }
 
+    /**
+     * Step backwards on another thread, adding up with the steps back that have not started yet,
+     * and update the graphics and controls when done.
+     * @param progress Told the number of generations replayed and the number to replay, on the seek's thread, or null.
+     */
+    public CompletableFuture<Long> stepBackLater(LongLongConsumer progress) {
+        return this.seeker.stepBack(progress).whenComplete((step, e) -> SwingUtilities.invokeLater(this::refresh));
+    }
+
+    /**
+     * Go to a step on another thread, pausing autoplay and stopping the seek before,
+     * and update the graphics and controls when done.
+     * @param progress Told the number of generations replayed and the number to replay, on the seek's thread, or null.
+     * @return The step reached, or a cancelled future if another seek replaced this one first.
+     */
+    public CompletableFuture<Long> goTo(long step, LongLongConsumer progress) {
+        this.pause();
+        return this.seeker.seek(step, progress).whenComplete((reached, e) -> SwingUtilities.invokeLater(this::refresh));
+    }
+
+    /**
+     * Clear the board, stopping any seek first.
+     */
+    public void clear() {
+        this.seeker.cancel();
+        synchronized (this) {
+            this.current.clear();
+            this.lookAhead.invalidate();
+            refresh();
+        }
+    }
+
     public void refresh() {
         this.controls.refresh();
         this.board.repaint();
@@ -60,6 +147,13 @@ public class CurrentGame {
     }
 
 
+    /**
+     * @return true if a seek is waiting to start or being replayed.
+     */
+    public boolean isSeeking() {
+        return this.seeker.isSeeking();
+    }
+
     public boolean exists() {
         return this.current != null;
     }
@@ -1,11 +1,16 @@
 package gameoflife.window;
 
+import gameoflife.GameOfLife;
+import gameoflife.engine.AgePlane;
+
 import javax.swing.*;
 import java.awt.*;
 import java.awt.event.*;
 import java.awt.geom.AffineTransform;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
 import java.util.HashSet;
-import java.util.Map;
 
 /**
  * Draws the game's board and cells.
@@ -22,9 +27,20 @@ public class GameBoard extends JPanel implements MouseMotionListener, MouseListe
      */
     private final CurrentGame currentGame;
 
+    /**
+     * The smallest the board can be zoomed out to, and the smallest size in pixels
+     * a tile can be drawn at before the grid is left out.
+     */
+    private static final double MIN_SCALE = 0.05, MIN_GRID_PIXELS = 4;
+
     private double scale = 1.0;
     private int x = 0, y = 0;
-    private int[] mouseBoardPos = null;
+    /**
+     * The cell drawn at the top left corner of the drawing. Panning moves whole cells into it,
+     * so the drawing's coordinates stay small however far an unbounded plane is panned.
+     */
+    private long originX = 0, originY = 0;
+    private long[] mouseBoardPos = null;
 
     // Colors
     private static final Color COLOR_CELL = new Color(0x3b82f6); // blue
@@ -63,22 +79,44 @@ public class GameBoard extends JPanel implements MouseMotionListener, MouseListe
      * @param e The mouse event
      * @return The board coordinates as an array of two integers
      */
-    private int[] mouseToBoard(MouseEvent e) {
-        int cellX = (int) ((e.getX() / scale - x) / tileSize);
-        int cellY = (int) ((e.getY() / scale - y) / tileSize);
+    private long[] mouseToBoard(MouseEvent e) {
+        long cellX = originX + (long) Math.floor((e.getX() / scale - x) / tileSize);
+        long cellY = originY + (long) Math.floor((e.getY() / scale - y) / tileSize);
 
-        return new int[] {
+        if (currentGame.current.isUnbounded())
+            return new long[] { cellX, cellY };
+        return new long[] {
             Math.min(Math.max(0, cellX), currentGame.current.width() - 1),
             Math.min(Math.max(0, cellY), currentGame.current.height() - 1)
         };
     }
 
+    /**
+     * Move the whole cells of the panning into the origin.
+     */
+    private void rebase() {
+        int cellsX = x / tileSize, cellsY = y / tileSize;
+        originX -= cellsX;
+        originY -= cellsY;
+        x -= cellsX * tileSize;
+        y -= cellsY * tileSize;
+    }
+
+    /**
+     * @return The position in the drawing of the edge of a cell.
+     */
+    private int toDrawing(long cell, long origin) {
+        return (int) ((cell - origin) * tileSize);
+    }
+
     /**
      * Reset the transformations done to the board view.
      */
     public void resetTransformations() {
         x = 0;
         y = 0;
+        originX = 0;
+        originY = 0;
         scale = this.currentGame.exists() ? this.getPreferredScale() : 1.0;
     }
 
@@ -101,39 +139,95 @@ public class GameBoard extends JPanel implements MouseMotionListener, MouseListe
 
     /**
      * Draw the board after the transformations are done.
+     * Only the cells in view are drawn, since the board may be a window onto an unbounded plane.
      */
     private void drawBoard(Graphics2D g) {
-        Map<Integer, Integer> cells = currentGame.current.getCells();
-
-        for (int ty = 0; ty < currentGame.current.height(); ty++) {
-            for (int tx = 0; tx < currentGame.current.width(); tx++) {
-                var cell = cells.get(tx + ty * currentGame.current.width());
-                if (cell != null)
-                    g.setColor(getCellColor(cell));
-                else if ((tx + ty) % 2 == 0)
-                    g.setColor(COLOR_GRID_1);
-                else
-                    g.setColor(COLOR_GRID_2);
-                g.fillRect(tx * tileSize, ty * tileSize, tileSize, tileSize);
+        GameOfLife game = currentGame.current;
+        int width = game.width();
+
+        // the cells in view
+        long left = originX + (long) Math.floor(-x / (double) tileSize);
+        long top = originY + (long) Math.floor(-y / (double) tileSize);
+        long right = originX + (long) Math.ceil((this.getWidth() / scale - x) / tileSize);
+        long bottom = originY + (long) Math.ceil((this.getHeight() / scale - y) / tileSize);
+        if (!game.isUnbounded()) {
+            left = Math.max(left, 0);
+            top = Math.max(top, 0);
+            right = Math.min(right, width);
+            bottom = Math.min(bottom, game.height());
+        }
+
+        if (tileSize * scale >= MIN_GRID_PIXELS) {
+            for (long ty = top; ty < bottom; ty++) {
+                for (long tx = left; tx < right; tx++) {
+                    if (((tx + ty) & 1) == 0)
+                        g.setColor(COLOR_GRID_1);
+                    else
+                        g.setColor(COLOR_GRID_2);
+                    g.fillRect(toDrawing(tx, originX), toDrawing(ty, originY), tileSize, tileSize);
+                }
+            }
+        } else if (left < right && top < bottom) {
+            // the tiles are too small to tell apart
+            g.setColor(COLOR_GRID_1);
+            g.fillRect(toDrawing(left, originX), toDrawing(top, originY), toDrawing(right, left), toDrawing(bottom, top));
+        }
+
+        // Draw the live cells over the grid, unless a seek is changing them, which draws the board again when done
+        if (!currentGame.isSeeking()) {
+            if (!game.isUnbounded() && tileSize * scale < MIN_GRID_PIXELS) {
+                drawCellImage(g, game);
+            } else if (game.isUnbounded()) {
+                g.setColor(getCellColor(0));
+                game.forEachLiveCell(left, top, right, bottom, (cx, cy) ->
+                    g.fillRect(toDrawing(cx, originX), toDrawing(cy, originY), tileSize, tileSize));
+            } else {
+                game.forEachLiveCell((index, age) -> {
+                    g.setColor(getCellColor(age));
+                    g.fillRect(toDrawing(index % width, originX), toDrawing(index / width, originY), tileSize, tileSize);
+                });
             }
         }
 
         // Draw mouse hover feedback
         if (mouseBoardPos != null) {
             g.setColor(COLOR_GRID_HOVER);
-            g.fillRect(mouseBoardPos[0] * tileSize, mouseBoardPos[1] * tileSize, tileSize, tileSize);
+            g.fillRect(toDrawing(mouseBoardPos[0], originX), toDrawing(mouseBoardPos[1], originY), tileSize, tileSize);
         }
 
         // Draw border
-        g.setColor(COLOR_GRID_BORDER);
-        g.drawRect(0, 0, currentGame.current.width() * tileSize, currentGame.current.height() * tileSize);
+        if (!game.isUnbounded()) {
+            g.setColor(COLOR_GRID_BORDER);
+            g.drawRect(toDrawing(0, originX), toDrawing(0, originY), width * tileSize, game.height() * tileSize);
+        }
+    }
+
+    /**
+     * One pixel for every cell of a bounded board, reused between repaints.
+     */
+    private BufferedImage cellImage;
+
+    /**
+     * Draw the cells of a bounded board as one image scaled up to the tiles, which is much faster than
+     * filling a rectangle for every cell when there are too many to see apart, such as on large boards.
+     */
+    private void drawCellImage(Graphics2D g, GameOfLife game) {
+        int width = game.width(), height = game.height();
+        if (cellImage == null || cellImage.getWidth() != width || cellImage.getHeight() != height)
+            cellImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        int[] pixels = ((DataBufferInt) cellImage.getRaster().getDataBuffer()).getData();
+        Arrays.fill(pixels, 0);
+        game.forEachLiveCell((index, age) -> pixels[index] = getCellColor(age).getRGB());
+        g.drawImage(cellImage, toDrawing(0, originX), toDrawing(0, originY), width * tileSize, height * tileSize, null);
     }
 
     /**
      * Tracks cell toggles during a mouse drag or click so if the cell is dragged over again,
      * or the mouse moves to a different location on the same cell, it won't turn off.
      */
-    private final HashSet<Integer> cellsToggled = new HashSet<>();
+    private final HashSet<Cell> cellsToggled = new HashSet<>();
+
+    private record Cell(long x, long y) {}
 
     /**
      * Toggle a cell on a mouse drag or click.
@@ -141,16 +235,11 @@ public class GameBoard extends JPanel implements MouseMotionListener, MouseListe
      */
     private void click(MouseEvent e) {
         if (currentGame.exists()) {
-            int width = this.currentGame.current.width(), height = currentGame.current.height();
-            int[] p = mouseToBoard(e);
+            long[] p = mouseToBoard(e);
             mouseBoardPos = p;
 
-            if (p[0] < 0 || p[0] >= width || p[1] < 0 || p[1] >= height)
-                return;
-            int index = p[0] + p[1] * width;
-            if (!cellsToggled.contains(index)) {
-                cellsToggled.add(index);
-                this.currentGame.current.toggleCell(p[0], p[1]);
+            if (cellsToggled.add(new Cell(p[0], p[1]))) {
+                this.currentGame.toggleCell(p[0], p[1]);
                 this.repaint();
             }
         }
@@ -163,16 +252,31 @@ public class GameBoard extends JPanel implements MouseMotionListener, MouseListe
      * @return The color of the cell
      */
     private static Color getCellColor(int age) {
-        final int MAX_AGE = 50; // Steps until cell reaches its complementary color
+        return CELL_COLORS[Math.min(Math.max(age, 0), MAX_AGE)];
+    }
+
+    /**
+     * Steps until cell reaches its complementary color
+     */
+    public static final int MAX_AGE = AgePlane.MAX_AGE;
+
+    /**
+     * The color of a cell at every age up to the maximum, worked out once rather than on every repaint.
+     */
+    private static final Color[] CELL_COLORS = new Color[MAX_AGE + 1];
+
+    static {
         float step = 0.5f / MAX_AGE;
 
         float[] cellHSB = Color.RGBtoHSB(COLOR_CELL.getRed(), COLOR_CELL.getGreen(), COLOR_CELL.getBlue(), new float[3]);
-        float cellHue = (cellHSB[0] + Math.min(age * step, 0.5f)) % 1.0f;
+        for (int age = 0; age <= MAX_AGE; age++) {
+            float cellHue = (cellHSB[0] + Math.min(age * step, 0.5f)) % 1.0f;
 
-        return new Color(Color.HSBtoRGB(
-            cellHue,
-            cellHSB[1],
-            cellHSB[2]));
+            CELL_COLORS[age] = new Color(Color.HSBtoRGB(
+                cellHue,
+                cellHSB[1],
+                cellHSB[2]));
+        }
     }
 
     @Override
@@ -206,6 +310,7 @@ public class GameBoard extends JPanel implements MouseMotionListener, MouseListe
                 this.y += (e.getYOnScreen() - deltaY) / this.scale;
                 deltaX = e.getXOnScreen();
                 deltaY = e.getYOnScreen();
+                rebase();
                 this.repaint();
             }
         }
@@ -254,10 +359,13 @@ public class GameBoard extends JPanel implements MouseMotionListener, MouseListe
     @Override
     public void mouseWheelMoved(MouseWheelEvent e) {
         double diff = e.getWheelRotation() / 10.0;
+        if (this.scale - diff < MIN_SCALE)
+            return;
         this.scale -= diff;
         Point mp = window.getMousePosition();
         this.x += mp.getX() * diff;
         this.y += mp.getY() * diff;
+        rebase();
 
         this.repaint();
     }
@@ -1,9 +1,12 @@
 package gameoflife.window;
 
+import gameoflife.engine.DenseEngine;
+
 import javax.swing.*;
 import javax.swing.border.MatteBorder;
 
 import java.awt.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * Controls the game
@@ -24,6 +27,17 @@ public class GameControls extends JPanel {
     private final IconButton playFWButton = new IconButton("play-forward", 16);
     private final IconButton stepBWButton = new IconButton("step-backward", 16);
     private final IconButton stepFWButton = new IconButton("step-forward", 16);
+    private final JButton goToButton = new JButton("Go to...");
+
+    /**
+     * Shows how far a seek has got while it replays, hidden otherwise.
+     */
+    private final JProgressBar seekProgress = new JProgressBar();
+    /**
+     * Set while an update of the progress bar is waiting to run, so a seek does not flood the window with updates.
+     */
+    private final AtomicBoolean progressQueued = new AtomicBoolean();
+    private volatile long seekDone, seekTotal;
 
     private static final int SPEED_MIN = 50;
     private static final int SPEED_MAX = 500;
@@ -54,6 +68,9 @@ public class GameControls extends JPanel {
         stepFWButton.setToolTipText("Step Forward");
         upper.add(stepFWButton);
 
+        goToButton.setToolTipText("Go to Generation");
+        upper.add(goToButton);
+
         playBWButton.addActionListener(e -> {
             // If the game is not playing in reverse, play it in reverse
             if (!autoplay.isReverse()) {
@@ -81,13 +98,15 @@ public class GameControls extends JPanel {
             playPause();
         });
         stepBWButton.addActionListener(e -> {
+            // going back past toggled cells replays from a keyframe, which is done on another thread
             if (game.exists())
-                game.stepBack();
+                game.stepBackLater(this::showProgress);
         });
         stepFWButton.addActionListener(e -> {
             if (game.exists())
                 game.step();
         });
+        goToButton.addActionListener(e -> goToGeneration());
 
         // Middle panel: contains the speed slider
         JPanel middle = new JPanel();
@@ -117,7 +136,11 @@ public class GameControls extends JPanel {
         lower.setLayout(new BorderLayout());
   
         lower.add(stepLabel, BorderLayout.WEST);
+        lower.add(seekProgress, BorderLayout.CENTER);
         lower.add(settingsLabel, BorderLayout.EAST);
+        seekProgress.setMaximum(1000);
+        seekProgress.setStringPainted(true);
+        seekProgress.setVisible(false);
 
         // Set border of this component and lower panel to padded borders with a line on top
         MatteBorder borderMatteTop = BorderFactory.createMatteBorder(1, 0, 0, 0, Color.GRAY);
@@ -158,6 +181,8 @@ public class GameControls extends JPanel {
             this.playFWButton.setToolTipText("Play Forward");
         }
 
+        this.seekProgress.setVisible(game.exists() && game.isSeeking());
+
         this.speedSliderInc.setEnabled(autoplay.getInterval() > SPEED_MIN);
         this.speedSliderDec.setEnabled(autoplay.getInterval() < SPEED_MAX);
 
@@ -167,19 +192,24 @@ public class GameControls extends JPanel {
 
         long step = game.current.getStep();
 
+        String activity = "";
+        if (game.current.getEngine() instanceof DenseEngine dense && dense.isTileTracking())
+            activity = String.format(" • Tiles: %d/%d", dense.activeTiles(), dense.tileCount());
+        if (game.current.getPeriod() > 0)
+            activity += String.format(" • stable, period %d", game.current.getPeriod());
+
         this.stepLabel.setText(String.format(
-            "%s Step #%d",
+            "%s Step #%d%s",
             autoplay.isRunning() ? "▶️" : "⏹︎",
-            step
+            step,
+            activity
         ));
         this.settingsLabel.setText(String.format(
-            "SA: %d–%d • BA: %d • %d×%d %s",
-            game.current.getSettings().minNeighbors(),
-            game.current.getSettings().maxNeighbors(),
-            game.current.getSettings().neededNeighbors(),
+            "%s • %d×%d %s",
+            game.current.getSettings().describeRule(),
             game.current.getSettings().width(),
             game.current.getSettings().height(),
-            game.current.getSettings().toroidal() ? "Toroidal" : "Non-Toroidal"
+            game.current.isUnbounded() ? "Infinite" : game.current.getSettings().toroidal() ? "Toroidal" : "Non-Toroidal"
         ));
 
         if (step == 0) {
@@ -191,6 +221,48 @@ public class GameControls extends JPanel {
         }
     }
 
+    /**
+     * Ask for a generation and go to it on another thread, showing how far the replay has got.
+     * Asking again before it gets there goes to the new generation instead.
+     */
+    public void goToGeneration() {
+        if (!game.exists())
+            return;
+        String input = JOptionPane.showInputDialog(this, "Go to generation:", game.current.getStep());
+        if (input == null)
+            return;
+        long step;
+        try {
+            step = Long.parseLong(input.trim());
+        } catch (NumberFormatException e) {
+            step = -1;
+        }
+        if (step < 0) {
+            JOptionPane.showMessageDialog(this, "Not a generation: " + input);
+            return;
+        }
+        game.goTo(step, this::showProgress);
+    }
+
+    /**
+     * Show how far a seek has got, called from the seek's thread.
+     * Only the progress bar is updated, since the game is being changed until the seek is done,
+     * and the board is drawn again when it is.
+     */
+    private void showProgress(long done, long total) {
+        this.seekDone = done;
+        this.seekTotal = total;
+        if (this.progressQueued.getAndSet(true))
+            return;
+        SwingUtilities.invokeLater(() -> {
+            this.progressQueued.set(false);
+            long totalNow = Math.max(this.seekTotal, 1);
+            this.seekProgress.setValue((int) (this.seekDone * 1000 / totalNow));
+            this.seekProgress.setString(String.format("Replaying %d of %d generations", this.seekDone, this.seekTotal));
+            this.seekProgress.setVisible(true);
+        });
+    }
+
     /**
      * Toggle the game's play state
      */
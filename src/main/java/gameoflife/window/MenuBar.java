@@ -8,7 +8,10 @@ import javax.swing.filechooser.FileNameExtensionFilter;
 import java.awt.*;
 import java.awt.event.KeyEvent;
 import java.io.*;
-import java.util.Arrays;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
 import java.util.Scanner;
 
 /**
@@ -50,19 +53,14 @@ public class MenuBar extends JMenuBar {
                 chooser.setDialogTitle("Open a Game of Life save");
                 chooser.setAcceptAllFileFilterUsed(false);
                 chooser.addChoosableFileFilter(new FileNameExtensionFilter("Game of Life saves (*.gol)", "gol"));
+                chooser.addChoosableFileFilter(new FileNameExtensionFilter("RLE patterns (*.rle)", "rle"));
 
                 int result = chooser.showOpenDialog(open);
 
                 if (result == JFileChooser.APPROVE_OPTION) {
                     File selectedFile = chooser.getSelectedFile();
                     try {
-                        PushbackInputStream input = new PushbackInputStream(new FileInputStream(selectedFile), GameOfLife.FILE_SIGNATURE.length);
-                        byte[] b = input.readNBytes(GameOfLife.FILE_SIGNATURE.length);
-                        input.unread(b);
-                        if (Arrays.equals(b, GameOfLife.FILE_SIGNATURE))
-                            game.setCurrent(GameOfLife.decodeFromBytes(input));
-                        else
-                            game.setCurrent(GameOfLife.decodeFromText(input));
+                        game.setCurrent(GameOfLife.decodeFromFile(selectedFile.toPath()));
                     } catch (IOException ex) {
                         JOptionPane.showMessageDialog(null, "Problem loading file: " + selectedFile + System.lineSeparator() + "Error: " + ex.getMessage());
                     }
@@ -118,21 +116,38 @@ public class MenuBar extends JMenuBar {
                 FileNameExtensionFilter full = new FileNameExtensionFilter("Game of Life full saves (*.gol)", "gol");
                 chooser.addChoosableFileFilter(full);
                 chooser.addChoosableFileFilter(new FileNameExtensionFilter("Game of Life text saves (*.gol)", "gol"));
+                FileNameExtensionFilter rle = new FileNameExtensionFilter("RLE patterns (*.rle)", "rle");
+                chooser.addChoosableFileFilter(rle);
 
                 int result = chooser.showSaveDialog(save);
 
                 if (result == JFileChooser.APPROVE_OPTION) {
                     File file = chooser.getSelectedFile();
-                    if (!file.getName().endsWith(".gol")) {
-                        file = new File(file.getPath() + ".gol");
+                    String extension = chooser.getFileFilter().equals(rle) ? ".rle" : ".gol";
+                    if (!file.getName().endsWith(extension)) {
+                        file = new File(file.getPath() + extension);
                     }
                     try {
                         file.createNewFile();
-                        FileOutputStream output = new FileOutputStream(file);
-                        if (chooser.getFileFilter().equals(full))
-                            game.current.encodeIntoBytes(output);
-                        else
-                            game.current.encodeIntoText(output);
+                        if (chooser.getFileFilter().equals(full)) {
+                            // the game may have been opened from this file and still read keyframes from it,
+                            // so the old file is only replaced once the new one is written
+                            Path temporary = Files.createTempFile(file.getAbsoluteFile().getParentFile().toPath(), file.getName(), ".tmp");
+                            try (OutputStream output = Files.newOutputStream(temporary)) {
+                                game.current.encodeIntoBytes(output, true);
+                            } catch (IOException e) {
+                                Files.deleteIfExists(temporary);
+                                throw e;
+                            }
+                            Files.move(temporary, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                        } else {
+                            try (FileOutputStream output = new FileOutputStream(file)) {
+                                if (chooser.getFileFilter().equals(rle))
+                                    game.current.encodeIntoRle(new OutputStreamWriter(output, StandardCharsets.UTF_8));
+                                else
+                                    game.current.encodeIntoText(output);
+                            }
+                        }
                     } catch (IOException e) {
                         JOptionPane.showMessageDialog(null, "Problem saving file: " + file + System.lineSeparator() + "Error: " + e.getMessage());
                     }
@@ -159,13 +174,17 @@ public class MenuBar extends JMenuBar {
             clear.setMnemonic(KeyEvent.VK_C);
 
             clear.addActionListener(e -> {
-                if (currentGame.exists()) {
-                    currentGame.current.clear();
-                    board.repaint();
-                    controls.refresh();
-                }
+                if (currentGame.exists())
+                    currentGame.clear();
             });
             this.add(clear);
+
+            var goTo = new JMenuItem("Go to Generation...");
+            goTo.setAccelerator(KeyStroke.getKeyStroke("ctrl G"));
+            goTo.setMnemonic(KeyEvent.VK_G);
+
+            goTo.addActionListener(e -> controls.goToGeneration());
+            this.add(goTo);
         }
 
     }
@@ -1,6 +1,8 @@
 package gameoflife.window;
 
 import gameoflife.GameOfLife;
+import gameoflife.engine.LargerThanLifeRule;
+import gameoflife.engine.Rule;
 
 import javax.swing.*;
 import javax.swing.border.Border;
@@ -27,6 +29,11 @@ public class NewGameMenu extends JFrame {
         width = new IntField(25),
         height = new IntField(25);
 
+    /**
+     * The rules as a B/S rulestring, which takes the place of the numbers of neighbors when it is filled in.
+     */
+    private final RuleField rule = new RuleField();
+
     /**
      * Create the popup that makes a new game.
      * @param current The current game instance.
@@ -51,6 +58,12 @@ public class NewGameMenu extends JFrame {
         // Whether the board should be toroidal
         settingsBoard.addSettings("Toroidal?", toroidalCheckbox);
 
+        JCheckBox infiniteCheckbox = new JCheckBox(null, null, false);
+
+        // Whether the board is a window onto an unbounded plane, in which case it is never toroidal
+        settingsBoard.addSettings("Infinite?", infiniteCheckbox);
+        infiniteCheckbox.addActionListener(e -> toroidalCheckbox.setEnabled(!infiniteCheckbox.isSelected()));
+
         this.add(settingsBoard);
 
         SettingsPanel settingsRules = new SettingsPanel("If a cell has n neighbours...");
@@ -66,6 +79,9 @@ public class NewGameMenu extends JFrame {
         // Number of neighbors needed to revive a cell
         settingsRules.addSettings("Become Alive:", needed);
 
+        // Any Life-like rule, such as B36/S23
+        settingsRules.addSettings("Or Rule (B/S, LtL):", rule);
+
         this.add(settingsRules);
 
         // Create submit and cancel buttons
@@ -85,11 +101,16 @@ public class NewGameMenu extends JFrame {
                     return i >= min && i <= max;
                 return true;
             }, "Value must be between the minimum and maximum");
-            var width = this.width.getValidInput(i -> i > 0 && i <= 500, "Value must be between 1 and 500");
-            var height = this.height.getValidInput(i -> i > 0 && i <= 500, "Value must be between 1 and 500");
-            if (min == null || max == null || needed == null || width == null || height == null) return;
-
-            current.setCurrent(new GameOfLife(new GameOfLife.Settings(min, max, needed, width, height, toroidalCheckbox.isSelected())));
+            var width = this.width.getValidInput(i -> i > 0 && i <= 1000, "Value must be between 1 and 1000");
+            var height = this.height.getValidInput(i -> i > 0 && i <= 1000, "Value must be between 1 and 1000");
+            var rule = this.rule.getValidInput(infiniteCheckbox.isSelected());
+            if (min == null || max == null || needed == null || width == null || height == null || rule == null) return;
+
+            String rulestring = rule.isEmpty() ? null : rule;
+            if (infiniteCheckbox.isSelected())
+                current.setCurrent(new GameOfLife(new GameOfLife.Settings(min, max, needed, width, height, false, "infinite", rulestring)));
+            else
+                current.setCurrent(new GameOfLife(new GameOfLife.Settings(min, max, needed, width, height, toroidalCheckbox.isSelected(), null, rulestring)));
             this.setVisible(false);
         });
         JButton cancel = new JButton("Cancel");
@@ -102,7 +123,7 @@ public class NewGameMenu extends JFrame {
 
 
         this.setResizable(false);
-        this.setPreferredSize(new Dimension(300, 250));
+        this.setPreferredSize(new Dimension(300, 300));
         this.pack();
     }
 
@@ -137,6 +158,44 @@ public class NewGameMenu extends JFrame {
         }
     }
 
+    /**
+     * A Swing text field for a B/S or Larger than Life rulestring, which may be left empty.
+     */
+    private static class RuleField extends JTextField {
+        private final Border defaultBorder = getBorder();
+
+        RuleField() {
+            super("", 6);
+            this.setHorizontalAlignment(JTextField.CENTER);
+        }
+
+        /**
+         * @param infinite Whether the game is on an infinite plane, which only runs B/S rules.
+         * @return The rulestring written the usual way, an empty string if the field is empty, or null if it is not a rulestring.
+         */
+        public String getValidInput(boolean infinite) {
+            String text = this.getText().trim();
+            try {
+                String rulestring;
+                if (text.isEmpty())
+                    rulestring = "";
+                else if (LargerThanLifeRule.isLargerThanLife(text) && !infinite)
+                    rulestring = LargerThanLifeRule.parse(text).toString();
+                else
+                    rulestring = Rule.parse(text).toString();
+                this.setBorder(defaultBorder);
+                this.setToolTipText(null);
+                return rulestring;
+            } catch (IllegalArgumentException e) {
+                this.setBorder(BorderFactory.createLineBorder(Color.RED, 2));
+                this.setToolTipText(infinite
+                        ? "Rule must look like B3/S23"
+                        : "Rule must look like B3/S23 or R5,C0,M1,S34..58,B34..45,NM");
+                return null;
+            }
+        }
+    }
+
     /**
      * A Swing text field that automatically runs a method (the IntConsumer)
      * that takes the integer from the text field if it is able to be parsed as an int.
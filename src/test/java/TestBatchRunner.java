@@ -0,0 +1,109 @@
+import gameoflife.BatchRunner;
+import gameoflife.GameOfLife;
+import gameoflife.engine.LifeEngine;
+import gameoflife.engine.LifeEngines;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class TestBatchRunner {
+
+    private static int[] randomCells(GameOfLife.Settings settings, long seed) {
+        Random random = new Random(seed);
+        return random.ints(settings.width() * settings.height() / 3, 0, settings.width() * settings.height()).distinct().toArray();
+    }
+
+    /**
+     * Every job gives the same population curve as running its board alone, on both kinds of executor,
+     * and engines are reused between jobs with the same settings.
+     */
+    @Test
+    public void testMatchesSequential() throws InterruptedException {
+        GameOfLife.Settings[] settings = {
+                new GameOfLife.Settings(2, 3, 3, 64, 48, true),
+                new GameOfLife.Settings(2, 3, 3, 50, 50, false, "sparse", "B36/S23"),
+                new GameOfLife.Settings(2, 3, 3, 40, 40, true, null, "R2,C0,M0,S3..6,B4..5,NM") };
+
+        for (BatchRunner runner : new BatchRunner[] { BatchRunner.fixed(3), BatchRunner.virtualThreads() }) {
+            try (runner) {
+                Map<BatchRunner.Job, long[]> curves = new HashMap<>();
+                List<BatchRunner.Job> jobs = new ArrayList<>();
+                for (int seed = 0; seed < 60; seed++) {
+                    long[] curve = new long[41];
+                    BatchRunner.Job job = new BatchRunner.Job(settings[seed % 3], randomCells(settings[seed % 3], seed), 40,
+                            List.of((generation, engine) -> curve[Math.toIntExact(generation)] = engine.population()));
+                    curves.put(job, curve);
+                    jobs.add(job);
+                }
+
+                List<BatchRunner.Result> results = runner.runAll(jobs);
+                Assertions.assertEquals(jobs.size(), results.size());
+                for (BatchRunner.Result result : results) {
+                    Assertions.assertNull(result.error());
+                    LifeEngine alone = LifeEngines.create(result.job().settings());
+                    for (int index : result.job().cells())
+                        alone.set(index, true);
+                    long[] curve = curves.get(result.job());
+                    for (int generation = 0; generation <= 40; generation++) {
+                        Assertions.assertEquals(alone.population(), curve[generation]);
+                        alone.step();
+                    }
+                    Assertions.assertEquals(curve[40], result.population());
+                }
+                Assertions.assertTrue(runner.enginesCreated() < jobs.size(), "Engines should be reused");
+            }
+        }
+    }
+
+    /**
+     * A failing job is reported in its result, and does not stop the other jobs.
+     */
+    @Test
+    public void testFailedJob() throws InterruptedException {
+        GameOfLife.Settings settings = new GameOfLife.Settings(2, 3, 3, 20, 20, true);
+        BatchRunner.Job failing = new BatchRunner.Job(settings, new int[] { 1, 2, 3 }, 10, List.of((generation, engine) -> {
+            if (generation == 5)
+                throw new IllegalStateException("Observer failed");
+        }));
+        BatchRunner.Job blinker = new BatchRunner.Job(settings, new int[] { 21, 22, 23 }, 1000);
+        try (BatchRunner runner = BatchRunner.fixed(2)) {
+            for (BatchRunner.Result result : runner.runAll(List.of(failing, blinker))) {
+                if (result.job() == failing) {
+                    Assertions.assertInstanceOf(IllegalStateException.class, result.error());
+                    Assertions.assertEquals(-1, result.population());
+                } else {
+                    Assertions.assertNull(result.error());
+                    Assertions.assertEquals(3, result.population());
+                }
+            }
+        }
+    }
+
+    /**
+     * A job whose engine cannot be made is reported in its result, and does not stop the other jobs.
+     */
+    @Test
+    public void testInvalidJob() throws InterruptedException {
+        BatchRunner.Job invalid = new BatchRunner.Job(new GameOfLife.Settings(2, 3, 3, 20, 20, true, "nope"), new int[] { 1, 2, 3 }, 10);
+        BatchRunner.Job blinker = new BatchRunner.Job(new GameOfLife.Settings(2, 3, 3, 20, 20, true), new int[] { 21, 22, 23 }, 1000);
+        try (BatchRunner runner = BatchRunner.fixed(2)) {
+            List<BatchRunner.Result> results = runner.runAll(List.of(invalid, blinker));
+            Assertions.assertEquals(2, results.size());
+            for (BatchRunner.Result result : results) {
+                if (result.job() == invalid) {
+                    Assertions.assertInstanceOf(IllegalArgumentException.class, result.error());
+                    Assertions.assertEquals(-1, result.population());
+                } else {
+                    Assertions.assertNull(result.error());
+                    Assertions.assertEquals(3, result.population());
+                }
+            }
+        }
+    }
+
+}
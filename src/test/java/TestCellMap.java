@@ -0,0 +1,92 @@
+import gameoflife.engine.CellMap;
+import gameoflife.engine.CellSet;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Random;
+
+public class TestCellMap {
+
+    /**
+     * Random puts, adds and removes give the same entries as a hash map.
+     */
+    @Test
+    public void testMatchesHashMap() {
+        CellMap map = new CellMap();
+        HashMap<Integer, Integer> reference = new HashMap<>();
+        Random random = new Random(1);
+        for (int i = 0; i < 200_000; i++) {
+            // a small key range, so keys collide and are removed often
+            int key = random.nextInt(5000);
+            switch (random.nextInt(3)) {
+                case 0 -> {
+                    map.put(key, i);
+                    reference.put(key, i);
+                }
+                case 1 -> Assertions.assertEquals(reference.merge(key, 1, Integer::sum), map.add(key, 1));
+                default -> Assertions.assertEquals(reference.remove(key) != null, map.remove(key));
+            }
+        }
+        Assertions.assertEquals(reference.size(), map.size());
+        for (int key = 0; key < 5000; key++)
+            Assertions.assertEquals(reference.getOrDefault(key, -7), map.get(key, -7));
+
+        HashMap<Integer, Integer> entries = new HashMap<>();
+        map.forEach(entries::put);
+        Assertions.assertEquals(reference, entries);
+    }
+
+    /**
+     * A copy does not share entries with the original.
+     */
+    @Test
+    public void testCopyAndClear() {
+        CellMap map = new CellMap();
+        for (int key = 0; key < 100; key++)
+            map.put(key * 31, key);
+        CellMap copy = map.copy();
+        map.clear();
+        Assertions.assertTrue(map.isEmpty());
+        Assertions.assertEquals(100, copy.size());
+        Assertions.assertEquals(7, copy.get(7 * 31, -1));
+    }
+
+    /**
+     * A set matches a hash set, and its table is made smaller again once most of its indices are removed or it is cleared.
+     */
+    @Test
+    public void testSetShrinks() {
+        CellSet set = new CellSet();
+        HashSet<Integer> reference = new HashSet<>();
+        for (int key = 0; key < 100_000; key++) {
+            set.add(key * 7);
+            reference.add(key * 7);
+        }
+        int full = set.capacity();
+        for (int key = 0; key < 100_000 - 10; key++) {
+            Assertions.assertTrue(set.remove(key * 7));
+            reference.remove(key * 7);
+        }
+        Assertions.assertTrue(set.capacity() < full / 1000);
+        HashSet<Integer> keys = new HashSet<>();
+        set.forEach(keys::add);
+        Assertions.assertEquals(reference, keys);
+
+        // clearing a set filled to about the same size every time keeps its table
+        for (int key = 0; key < 5000; key++)
+            set.add(key);
+        int filled = set.capacity();
+        set.clear();
+        Assertions.assertEquals(filled, set.capacity());
+        CellMap map = new CellMap();
+        for (int key = 0; key < 100_000; key++)
+            map.put(key, key);
+        for (int key = 10; key < 100_000; key++)
+            map.remove(key);
+        map.clear();
+        Assertions.assertTrue(map.capacity() <= 64);
+    }
+
+}
@@ -0,0 +1,235 @@
+import gameoflife.GameOfLife;
+import gameoflife.engine.DenseBoard;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+public class TestDenseBoard {
+
+    /**
+     * Compute the next generation one cell at a time, the slow but obvious way.
+     */
+    private static boolean[][] naiveStep(boolean[][] cells, GameOfLife.Settings settings) {
+        int width = settings.width(), height = settings.height();
+        boolean[][] next = new boolean[height][width];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int neighbors = 0;
+                for (int dy = -1; dy <= 1; dy++) {
+                    for (int dx = -1; dx <= 1; dx++) {
+                        if (dx == 0 && dy == 0)
+                            continue;
+                        int nx = x + dx, ny = y + dy;
+                        if (settings.toroidal()) {
+                            nx = (nx + width) % width;
+                            ny = (ny + height) % height;
+                        } else if (nx < 0 || nx >= width || ny < 0 || ny >= height) {
+                            continue;
+                        }
+                        if (cells[ny][nx])
+                            neighbors++;
+                    }
+                }
+                next[y][x] = cells[y][x]
+                        ? neighbors >= settings.minNeighbors() && neighbors <= settings.maxNeighbors()
+                        : neighbors == settings.neededNeighbors();
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Run a random board on both the dense board and the naive implementation and compare them.
+     */
+    private static void compare(GameOfLife.Settings settings, long seed) {
+        Random random = new Random(seed);
+        boolean[][] cells = new boolean[settings.height()][settings.width()];
+        DenseBoard board = new DenseBoard(settings);
+        for (int y = 0; y < settings.height(); y++) {
+            for (int x = 0; x < settings.width(); x++) {
+                if (random.nextInt(3) == 0) {
+                    cells[y][x] = true;
+                    board.set(x, y, true);
+                }
+            }
+        }
+        for (int s = 0; s < 20; s++) {
+            cells = naiveStep(cells, settings);
+            board.step();
+            int population = 0;
+            for (int y = 0; y < settings.height(); y++) {
+                for (int x = 0; x < settings.width(); x++) {
+                    Assertions.assertEquals(cells[y][x], board.get(x, y), "Cell " + x + ", " + y + " at step " + (s + 1) + " with " + settings);
+                    if (cells[y][x])
+                        population++;
+                }
+            }
+            Assertions.assertEquals(population, board.population());
+        }
+    }
+
+    /**
+     * Board widths around the 64 cell word boundary, on both toroidal and non toroidal boards.
+     */
+    @Test
+    public void testMatchesNaive() {
+        for (int width : new int[] { 1, 3, 5, 63, 64, 65, 130, 1000 }) {
+            compare(new GameOfLife.Settings(2, 3, 3, width, 17, true), width);
+            compare(new GameOfLife.Settings(2, 3, 3, width, 17, false), width);
+        }
+    }
+
+    /**
+     * Rules other than Conway's.
+     */
+    @Test
+    public void testOtherRules() {
+        compare(new GameOfLife.Settings(1, 5, 3, 70, 40, true), 1);
+        compare(new GameOfLife.Settings(3, 4, 4, 70, 40, false), 2);
+        compare(new GameOfLife.Settings(1, 8, 1, 33, 33, true), 3);
+    }
+
+    /**
+     * A glider crosses the toroidal edge and comes back to where it started.
+     */
+    @Test
+    public void testGliderWraps() {
+        DenseBoard board = new DenseBoard(new GameOfLife.Settings(2, 3, 3, 70, 10, true));
+        int[][] glider = { { 1, 0 }, { 2, 1 }, { 0, 2 }, { 1, 2 }, { 2, 2 } };
+        for (int[] cell : glider)
+            board.set(cell[0], cell[1], true);
+        // a glider moves one cell diagonally every 4 steps
+        for (int s = 0; s < 4 * 70 * 10; s++)
+            board.step();
+        for (int[] cell : glider)
+            Assertions.assertTrue(board.get(cell[0], cell[1]));
+        Assertions.assertEquals(5, board.population());
+    }
+
+    /**
+     * Stepping in stripes on multiple cores gives exactly the same board as stepping on one core.
+     */
+    @Test
+    public void testParallelMatchesSequential() {
+        for (boolean toroidal : new boolean[] { true, false }) {
+            for (int stripes : new int[] { 2, 3, 7, 50 }) {
+                GameOfLife.Settings settings = new GameOfLife.Settings(2, 3, 3, 100, 37, toroidal);
+                DenseBoard sequential = new DenseBoard(settings), parallel = new DenseBoard(settings);
+                sequential.setParallelism(1, 0);
+                parallel.setParallelism(stripes, 0);
+                Assertions.assertTrue(parallel.isParallel());
+                Random random = new Random(stripes);
+                for (int i = 0; i < 1200; i++) {
+                    int x = random.nextInt(100), y = random.nextInt(37);
+                    sequential.toggle(x, y);
+                    parallel.toggle(x, y);
+                }
+                for (int s = 0; s < 50; s++) {
+                    sequential.step();
+                    parallel.step();
+                    for (int y = 0; y < 37; y++)
+                        for (int x = 0; x < 100; x++)
+                            Assertions.assertEquals(sequential.get(x, y), parallel.get(x, y));
+                }
+            }
+        }
+    }
+
+    /**
+     * Only computing active tiles gives exactly the same board as computing every tile.
+     */
+    @Test
+    public void testTilesMatchFullSteps() {
+        for (boolean toroidal : new boolean[] { true, false }) {
+            GameOfLife.Settings settings = new GameOfLife.Settings(2, 3, 3, 200, 100, toroidal);
+            DenseBoard full = new DenseBoard(settings), tiled = new DenseBoard(settings);
+            tiled.setTileTracking(true);
+            Random random = new Random(11);
+            // a few separate patches of noise, some of them across the edges
+            for (int patch = 0; patch < 6; patch++) {
+                int px = random.nextInt(200), py = random.nextInt(100);
+                for (int i = 0; i < 60; i++) {
+                    int x = (px + random.nextInt(12)) % 200, y = (py + random.nextInt(12)) % 100;
+                    full.toggle(x, y);
+                    tiled.toggle(x, y);
+                }
+            }
+            for (int s = 0; s < 300; s++) {
+                full.step();
+                tiled.step();
+                if (s == 150) {
+                    full.toggle(5, 5);
+                    tiled.toggle(5, 5);
+                }
+                for (int y = 0; y < 100; y++)
+                    for (int x = 0; x < 200; x++)
+                        Assertions.assertEquals(full.get(x, y), tiled.get(x, y), "Cell " + x + ", " + y + " at step " + (s + 1));
+            }
+        }
+    }
+
+    /**
+     * Once every tile has been computed, a still life leaves no tiles active.
+     */
+    @Test
+    public void testStillLifeHasNoActiveTiles() {
+        DenseBoard board = new DenseBoard(new GameOfLife.Settings(2, 3, 3, 640, 320, true));
+        board.setTileTracking(true);
+        board.set(100, 100, true);
+        board.set(101, 100, true);
+        board.set(100, 101, true);
+        board.set(101, 101, true);
+        board.step();
+        Assertions.assertEquals(board.tileCount(), board.activeTiles());
+        board.step();
+        Assertions.assertEquals(0, board.activeTiles());
+        // toggling a cell wakes up its tile and the tiles around it, and the lone cell dying keeps them awake
+        board.toggle(300, 200);
+        board.step();
+        Assertions.assertEquals(9, board.activeTiles());
+        board.step();
+        Assertions.assertEquals(9, board.activeTiles());
+        board.step();
+        Assertions.assertEquals(0, board.activeTiles());
+        Assertions.assertEquals(4, board.population());
+    }
+
+    /**
+     * Rows computed with vector instructions match rows computed one word at a time, for every rule path.
+     * Without the Vector API both boards are computed one word at a time.
+     */
+    @Test
+    public void testVectorMatchesScalar() {
+        for (GameOfLife.Settings settings : new GameOfLife.Settings[] {
+                new GameOfLife.Settings(2, 3, 3, 2000, 40, true),
+                new GameOfLife.Settings(1, 5, 3, 1500, 40, false) }) {
+            DenseBoard vector = new DenseBoard(settings), scalar;
+            String previous = System.getProperty(DenseBoard.VECTOR_PROPERTY);
+            try {
+                System.setProperty(DenseBoard.VECTOR_PROPERTY, "false");
+                scalar = new DenseBoard(settings);
+            } finally {
+                if (previous == null)
+                    System.clearProperty(DenseBoard.VECTOR_PROPERTY);
+                else
+                    System.setProperty(DenseBoard.VECTOR_PROPERTY, previous);
+            }
+            Assertions.assertFalse(scalar.isVectorized());
+            Random random = new Random(5);
+            for (int i = 0; i < settings.width() * settings.height() / 3; i++) {
+                int x = random.nextInt(settings.width()), y = random.nextInt(settings.height());
+                vector.toggle(x, y);
+                scalar.toggle(x, y);
+            }
+            for (int s = 0; s < 30; s++) {
+                vector.step();
+                scalar.step();
+                for (int y = 0; y < settings.height(); y++)
+                    for (int x = 0; x < settings.width(); x++)
+                        Assertions.assertEquals(scalar.get(x, y), vector.get(x, y), "Cell " + x + ", " + y + " at step " + (s + 1));
+            }
+        }
+    }
+
+}
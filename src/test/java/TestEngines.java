@@ -0,0 +1,382 @@
+import gameoflife.GameOfLife;
+import gameoflife.engine.AgePlane;
+import gameoflife.engine.DenseEngine;
+import gameoflife.engine.HashLifeEngine;
+import gameoflife.engine.HashMapEngine;
+import gameoflife.engine.InfiniteEngine;
+import gameoflife.engine.LifeEngine;
+import gameoflife.engine.LifeEngines;
+import gameoflife.engine.SparseEngine;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import com.sun.management.ThreadMXBean;
+import java.lang.management.ManagementFactory;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+public class TestEngines {
+
+    private static final String[] ENGINES = { "dense", "tiled", "sparse" };
+
+    private static Set<Integer> cells(LifeEngine engine) {
+        HashSet<Integer> cells = new HashSet<>();
+        engine.forEachLiveCell(cells::add);
+        return cells;
+    }
+
+    /**
+     * Every engine produces the same cells as the reference engine.
+     */
+    @Test
+    public void testMatchesReference() {
+        for (String name : ENGINES) {
+            for (boolean toroidal : new boolean[] { true, false }) {
+                GameOfLife.Settings settings = new GameOfLife.Settings(2, 3, 3, 70, 30, toroidal, name);
+                LifeEngine reference = new HashMapEngine(settings), engine = LifeEngines.create(settings);
+                Random random = new Random(7);
+                for (int i = 0; i < 700; i++) {
+                    int index = random.nextInt(70 * 30);
+                    Assertions.assertEquals(reference.toggle(index), engine.toggle(index));
+                }
+                for (int s = 0; s < 30; s++) {
+                    reference.step();
+                    engine.step();
+                    Assertions.assertEquals(cells(reference), cells(engine), name + " at step " + (s + 1));
+                    Assertions.assertEquals(reference.population(), engine.population());
+                }
+            }
+        }
+    }
+
+    /**
+     * Every engine runs rules other than Conway's the same way as the reference engine.
+     */
+    @Test
+    public void testRulesMatchReference() {
+        for (String rule : new String[] { "B36/S23", "B2/S", "B3678/S34678" }) {
+            for (String name : ENGINES) {
+                GameOfLife.Settings settings = new GameOfLife.Settings(2, 3, 3, 70, 30, true, name, rule);
+                LifeEngine reference = new HashMapEngine(settings), engine = LifeEngines.create(settings);
+                Random random = new Random(8);
+                for (int i = 0; i < 700; i++) {
+                    int index = random.nextInt(70 * 30);
+                    reference.toggle(index);
+                    engine.toggle(index);
+                }
+                for (int s = 0; s < 20; s++) {
+                    reference.step();
+                    engine.step();
+                    Assertions.assertEquals(cells(reference), cells(engine), name + " with " + rule + " at step " + (s + 1));
+                }
+            }
+        }
+    }
+
+    /**
+     * Rules that bring cells to life with no neighbors are refused for every engine,
+     * rather than being played by some and not by others.
+     */
+    @Test
+    public void testBirthWithNoNeighbors() {
+        for (String name : new String[] { "dense", "tiled", "sparse", "hashmap", "hashlife", "infinite" }) {
+            Assertions.assertThrows(IllegalArgumentException.class, () -> new GameOfLife.Settings(2, 3, 3, 8, 8, true, name, "B0/S8"));
+            Assertions.assertThrows(IllegalArgumentException.class, () -> new GameOfLife.Settings(2, 3, 3, 8, 8, false, name, "S8/B01"));
+            Assertions.assertThrows(IllegalArgumentException.class, () -> new GameOfLife.Settings(2, 3, 0, 8, 8, true, name));
+        }
+    }
+
+    /**
+     * The sparse engine's buffers fit the pattern rather than the board, and are reused from one step to the next,
+     * so a few gliders on a board of a billion cells step without allocating once the buffers have grown.
+     */
+    @Test
+    public void testSparseBuffers() {
+        ThreadMXBean threads = (ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        GameOfLife.Settings settings = new GameOfLife.Settings(2, 3, 3, 40000, 25000, true, "sparse");
+        SparseEngine engine = new SparseEngine(settings);
+        for (int g = 0; g < 10; g++) {
+            int x = 1000 + g * 3000, y = 2000 + g * 2000;
+            for (int[] cell : new int[][] { { 1, 0 }, { 2, 1 }, { 0, 2 }, { 1, 2 }, { 2, 2 } })
+                engine.set(x + cell[0] + (y + cell[1]) * 40000, true);
+        }
+        long before = threads.getThreadAllocatedBytes(thread);
+        for (int s = 0; s < 8; s++)
+            engine.step();
+        Assertions.assertTrue(threads.getThreadAllocatedBytes(thread) - before < 1 << 20, "The first steps grow buffers to the pattern");
+
+        before = threads.getThreadAllocatedBytes(thread);
+        for (int s = 0; s < 400; s++)
+            engine.step();
+        Assertions.assertTrue(threads.getThreadAllocatedBytes(thread) - before < 1 << 10, "Later steps reuse the buffers");
+        Assertions.assertEquals(50, engine.population());
+    }
+
+    /**
+     * A copy of an engine is not changed by stepping the original.
+     */
+    @Test
+    public void testCopy() {
+        for (String name : ENGINES) {
+            LifeEngine engine = LifeEngines.create(new GameOfLife.Settings(2, 3, 3, 10, 10, true, name));
+            engine.set(1, true);
+            LifeEngine copy = engine.copy();
+            engine.step();
+            Assertions.assertEquals(0, engine.population());
+            Assertions.assertTrue(copy.isAlive(1));
+        }
+    }
+
+    /**
+     * The engine comes from the settings first, and then the system property.
+     */
+    @Test
+    public void testSelection() {
+        Assertions.assertInstanceOf(HashMapEngine.class, LifeEngines.create(new GameOfLife.Settings(2, 3, 3, 5, 5, true, "hashmap")));
+        String previous = System.getProperty(LifeEngines.ENGINE_PROPERTY);
+        try {
+            System.setProperty(LifeEngines.ENGINE_PROPERTY, "hashmap");
+            Assertions.assertInstanceOf(HashMapEngine.class, LifeEngines.create(new GameOfLife.Settings(2, 3, 3, 5, 5, true)));
+            System.setProperty(LifeEngines.ENGINE_PROPERTY, "dense");
+            Assertions.assertInstanceOf(DenseEngine.class, LifeEngines.create(new GameOfLife.Settings(2, 3, 3, 5, 5, true)));
+        } finally {
+            if (previous == null)
+                System.clearProperty(LifeEngines.ENGINE_PROPERTY);
+            else
+                System.setProperty(LifeEngines.ENGINE_PROPERTY, previous);
+        }
+        Assertions.assertThrows(IllegalArgumentException.class, () -> LifeEngines.create(new GameOfLife.Settings(2, 3, 3, 5, 5, true, "nope")));
+        // the unbounded engines have no edges to wrap around
+        Assertions.assertThrows(IllegalArgumentException.class, () -> LifeEngines.create(new GameOfLife.Settings(2, 3, 3, 5, 5, true, "hashlife")));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> LifeEngines.create(new GameOfLife.Settings(2, 3, 3, 5, 5, true, "infinite")));
+    }
+
+    /**
+     * The unbounded engines count the live cells on the whole plane, including a glider that has left the board.
+     */
+    @Test
+    public void testUnboundedPopulation() {
+        for (String name : new String[] { "hashlife", "infinite" }) {
+            LifeEngine engine = LifeEngines.create(new GameOfLife.Settings(2, 3, 3, 10, 10, false, name));
+            for (int[] cell : new int[][] { { 1, 0 }, { 2, 1 }, { 0, 2 }, { 1, 2 }, { 2, 2 } })
+                engine.set(cell[0] + cell[1] * 10, true);
+            for (int s = 0; s < 60; s++)
+                engine.step();
+            Assertions.assertEquals(5, engine.population(), name);
+            Assertions.assertEquals(Set.of(), cells(engine), name);
+        }
+    }
+
+    /**
+     * HashLife matches the dense engine while the pattern stays clear of the board's edges,
+     * both one step at a time and when jumping many steps at once.
+     */
+    @Test
+    public void testHashLife() {
+        GameOfLife.Settings settings = new GameOfLife.Settings(2, 3, 3, 200, 200, false);
+        LifeEngine dense = new DenseEngine(settings), stepped = new HashLifeEngine(settings), jumped = new HashLifeEngine(settings);
+        Random random = new Random(3);
+        for (int i = 0; i < 400; i++) {
+            int index = 85 + random.nextInt(30) + (85 + random.nextInt(30)) * 200;
+            dense.toggle(index);
+            stepped.toggle(index);
+            jumped.toggle(index);
+        }
+        for (int s = 0; s < 60; s++) {
+            dense.step();
+            stepped.step();
+            Assertions.assertEquals(cells(dense), cells(stepped), "Step " + (s + 1));
+        }
+        jumped.stepN(60);
+        Assertions.assertEquals(cells(dense), cells(jumped));
+    }
+
+    /**
+     * A blinker reaches a very distant generation straight away, and collecting nodes does not change the board.
+     */
+    @Test
+    public void testHashLifeDistantGeneration() {
+        HashLifeEngine engine = new HashLifeEngine(new GameOfLife.Settings(2, 3, 3, 20, 20, false));
+        for (int y = 9; y <= 11; y++)
+            engine.set(10 + y * 20, true);
+        engine.stepN(1_000_000_000_001L);
+        engine.collect();
+        Assertions.assertEquals(3, engine.population());
+        for (int x = 9; x <= 11; x++)
+            Assertions.assertTrue(engine.isAlive(x + 10 * 20));
+    }
+
+    /**
+     * Ages count up one generation at a time and stop at the maximum,
+     * and going back to a step gives the same ages as stepping to it did.
+     */
+    @Test
+    public void testAges() {
+        GameOfLife game = new GameOfLife(new GameOfLife.Settings(2, 3, 3, 40, 40, false, "hashlife"));
+        game.setAgeTracking(true);
+        // a block, which never changes, and a blinker, whose ends are born every step
+        game.toggleCell(1, 1);
+        game.toggleCell(2, 1);
+        game.toggleCell(1, 2);
+        game.toggleCell(2, 2);
+        game.toggleCell(20, 19);
+        game.toggleCell(20, 20);
+        game.toggleCell(20, 21);
+        for (int s = 0; s < 30; s++)
+            game.step();
+        Map<Integer, Integer> cells = game.getCells();
+        Assertions.assertEquals(30, cells.get(1 + 40));
+        Assertions.assertEquals(30, cells.get(20 + 20 * 40));
+        Assertions.assertEquals(0, cells.get(20 + 19 * 40));
+        for (int s = 0; s < 200; s++)
+            game.step();
+        cells = game.getCells();
+        Assertions.assertEquals(AgePlane.MAX_AGE, cells.get(1 + 40));
+        Assertions.assertEquals(0, cells.get(20 + 19 * 40));
+
+        game.step();
+        Map<Integer, Integer> stepped = game.getCells();
+        // the cache is empty, so this replays the game, skipping most of it
+        game.stepTo(game.getStep() - 1);
+        Assertions.assertEquals(cells, game.getCells());
+        game.step();
+        Assertions.assertEquals(stepped, game.getCells());
+
+        game.setAgeTracking(false);
+        game.step();
+        Assertions.assertTrue(game.getCells().values().stream().allMatch(age -> age == 0));
+    }
+
+    /**
+     * The infinite engine matches the dense engine while the pattern stays clear of the board's edges,
+     * including across the edges of its chunks.
+     */
+    @Test
+    public void testInfinite() {
+        GameOfLife.Settings settings = new GameOfLife.Settings(1, 5, 3, 200, 200, false);
+        LifeEngine dense = new DenseEngine(settings), infinite = new InfiniteEngine(settings);
+        Random random = new Random(4);
+        for (int i = 0; i < 800; i++) {
+            int index = 50 + random.nextInt(100) + (50 + random.nextInt(100)) * 200;
+            Assertions.assertEquals(dense.toggle(index), infinite.toggle(index));
+        }
+        for (int s = 0; s < 25; s++) {
+            dense.step();
+            infinite.step();
+            Assertions.assertEquals(cells(dense), cells(infinite), "Step " + (s + 1));
+            Assertions.assertEquals(dense.population(), infinite.population());
+        }
+    }
+
+    /**
+     * A glider runs far off the board into negative coordinates, and the chunks it leaves behind are dropped.
+     */
+    @Test
+    public void testInfiniteGlider() {
+        GameOfLife game = new GameOfLife(new GameOfLife.Settings(2, 3, 3, 20, 20, false, "infinite"));
+        Assertions.assertTrue(game.isUnbounded());
+        // a glider heading up and to the left
+        long[][] glider = { { 0, 0 }, { 1, 0 }, { 2, 0 }, { 0, 1 }, { 1, 2 } };
+        for (long[] cell : glider)
+            game.toggleCell(cell[0], cell[1]);
+        // a glider moves one cell diagonally every 4 steps
+        for (int s = 0; s < 4 * 1000; s++)
+            game.step();
+        InfiniteEngine engine = (InfiniteEngine) game.getEngine();
+        Assertions.assertEquals(5, engine.population());
+        Assertions.assertTrue(engine.chunkCount() <= 4);
+        for (long[] cell : glider)
+            Assertions.assertTrue(engine.isAlive(cell[0] - 1000, cell[1] - 1000));
+        HashSet<Long> xs = new HashSet<>();
+        game.forEachLiveCell(-1100, -1100, -900, -900, (x, y) -> xs.add(x));
+        Assertions.assertEquals(Set.of(-1000L, -999L, -998L), xs);
+
+        // going back plays the toggles on the plane again
+        game.stepBack();
+        Assertions.assertEquals(5, engine.population());
+        Assertions.assertEquals(4 * 1000 - 1, game.getStep());
+    }
+
+    /**
+     * Fingerprints kept up to date as cells change match fingerprints worked out from the live cells,
+     * and copies of a board have the fingerprint of the board.
+     */
+    @Test
+    public void testFingerprints() {
+        for (String name : new String[] { "dense", "tiled", "infinite" }) {
+            GameOfLife.Settings settings = new GameOfLife.Settings(2, 3, 3, 150, 70, name.equals("tiled"), name);
+            LifeEngine engine = LifeEngines.create(settings), other = LifeEngines.create(settings);
+            Random random = new Random(4);
+            for (int i = 0; i < 3000; i++)
+                engine.toggle(random.nextInt(150 * 70));
+            for (int s = 0; s < 40; s++) {
+                // half the time kept up to date, half the time worked out when asked for
+                engine.setFingerprinting(s < 20);
+                engine.step();
+                Assertions.assertEquals(engine.fingerprint(), engine.copy().fingerprint());
+                // cells can leave the board on a plane, where they cannot be copied one at a time
+                if (name.equals("infinite"))
+                    continue;
+                other.clear();
+                engine.forEachLiveCell(index -> other.set(index, true));
+                Assertions.assertEquals(other.fingerprint(), engine.fingerprint(), name + " at step " + (s + 1));
+            }
+            Assertions.assertNotEquals(0, engine.fingerprint());
+            engine.clear();
+            Assertions.assertEquals(0, engine.fingerprint());
+        }
+    }
+
+    /**
+     * A board that settles into an oscillator is found to repeat once it has come round to the same board twice,
+     * going far ahead skips the repeats, and toggling a cell forgets the cycle.
+     */
+    @Test
+    public void testCycles() {
+        for (String name : new String[] { "dense", "sparse", "hashlife", "infinite" }) {
+            GameOfLife game = new GameOfLife(new GameOfLife.Settings(2, 3, 3, 30, 30, false, name));
+            game.setAgeTracking(true);
+            // a blinker next to a block
+            for (int[] cell : new int[][] { { 5, 5 }, { 6, 5 }, { 7, 5 }, { 20, 20 }, { 21, 20 }, { 20, 21 }, { 21, 21 } })
+                game.toggleCell(cell[0], cell[1]);
+            game.step();
+            game.step();
+            // the fingerprints match, but the cycle is only taken once the board is the same after another round
+            Assertions.assertEquals(0, game.getPeriod());
+            game.step();
+            game.step();
+            Assertions.assertEquals(2, game.getPeriod(), name);
+
+            // the blinker is horizontal on even steps, and the block has been alive all along
+            game.stepTo(1_000_000_001L);
+            Assertions.assertEquals(1_000_000_001L, game.getStep());
+            Map<Integer, Integer> cells = game.getCells();
+            Assertions.assertEquals(7, cells.size());
+            Assertions.assertTrue(cells.containsKey(6 + 4 * 30));
+            if (!game.isUnbounded())
+                Assertions.assertEquals(AgePlane.MAX_AGE, cells.get(20 + 20 * 30));
+            game.step();
+            Assertions.assertTrue(game.getCells().containsKey(5 + 5 * 30));
+
+            game.toggleCell(0, 0);
+            Assertions.assertEquals(0, game.getPeriod());
+            // the lone cell dies, then the board is back in a cycle
+            for (int s = 0; s < 5; s++)
+                game.step();
+            Assertions.assertEquals(2, game.getPeriod());
+        }
+
+        GameOfLife still = new GameOfLife(new GameOfLife.Settings(2, 3, 3, 10, 10, true));
+        for (int[] cell : new int[][] { { 1, 1 }, { 2, 1 }, { 1, 2 }, { 2, 2 } })
+            still.toggleCell(cell[0], cell[1]);
+        still.step();
+        still.step();
+        Assertions.assertEquals(1, still.getPeriod());
+        still.step();
+        Assertions.assertEquals(4, still.getCells().size());
+    }
+
+}
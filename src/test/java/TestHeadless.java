@@ -0,0 +1,68 @@
+import gameoflife.GameOfLife;
+import gameoflife.Headless;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+public class TestHeadless {
+
+    private static String run(int expectedCode, String... args) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        int code = Headless.run(args, new PrintStream(out, true, StandardCharsets.UTF_8), new PrintStream(OutputStream.nullOutputStream()));
+        Assertions.assertEquals(expectedCode, code);
+        return out.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * A saved glider is loaded, stepped and saved again, and comes out where stepping it in a game puts it.
+     */
+    @Test
+    public void testStepsSave(@TempDir Path directory) throws IOException {
+        GameOfLife game = new GameOfLife(new GameOfLife.Settings(2, 3, 3, 20, 20, true));
+        for (int[] cell : new int[][] { { 1, 0 }, { 2, 1 }, { 0, 2 }, { 1, 2 }, { 2, 2 } })
+            game.toggleCell(cell[0], cell[1]);
+        Path in = directory.resolve("in.gol"), out = directory.resolve("out.gol");
+        try (var output = Files.newOutputStream(in)) {
+            game.encodeIntoBytes(output);
+        }
+
+        String stats = run(0, "--headless", "--in", in.toString(), "--generations", "1000", "--out", out.toString(), "--stats");
+        Assertions.assertTrue(stats.contains("Stepped 1000 generations"), stats);
+        Assertions.assertTrue(stats.contains("Population at step 1000: 5"), stats);
+
+        for (int s = 0; s < 1000; s++)
+            game.step();
+        try (var input = Files.newInputStream(out)) {
+            GameOfLife result = GameOfLife.decode(input);
+            Assertions.assertEquals(1000, result.getStep());
+            Assertions.assertEquals(game.getCells().keySet(), result.getCells().keySet());
+        }
+
+        // the text format is read too
+        Path text = directory.resolve("text.gol");
+        run(0, "--headless", "--in", out.toString(), "--out", text.toString(), "--text");
+        Assertions.assertTrue(Files.readString(text).startsWith("...................."));
+        run(0, "--headless", "--in", text.toString(), "--generations", "4");
+
+        // and a cropped one is only the glider
+        run(0, "--headless", "--in", out.toString(), "--out", text.toString(), "--text", "--crop");
+        Assertions.assertEquals(3, Files.readAllLines(text).size());
+    }
+
+    @Test
+    public void testBadArguments() {
+        run(2, "--headless");
+        run(2, "--headless", "--in", "a.gol", "--generations", "many");
+        run(2, "--headless", "--in", "a.gol", "--generations", "-1");
+        run(2, "--headless", "--in");
+        run(2, "--headless", "--in", "a.gol", "--fast");
+        run(2, "--headless", "--in", "a.gol", "--crop");
+        run(1, "--headless", "--in", "this file does not exist.gol");
+    }
+
+}
@@ -0,0 +1,201 @@
+import gameoflife.GameOfLife;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+public class TestHistory {
+
+    /**
+     * Step a game forward, toggling random cells now and then, and keep every step's cells and ages.
+     */
+    private static List<Map<Integer, Integer>> play(GameOfLife game, int steps, Random random) {
+        List<Map<Integer, Integer>> boards = new ArrayList<>();
+        for (int s = 0; s < steps; s++) {
+            if (random.nextInt(50) == 0)
+                for (int i = 0; i < 30; i++)
+                    game.toggleCell(random.nextInt(game.width()), random.nextInt(game.height()));
+            boards.add(game.getCells());
+            game.step();
+        }
+        boards.add(game.getCells());
+        return boards;
+    }
+
+    /**
+     * Going back to any step of a long game gives the cells and ages it had, whichever keyframe it starts from.
+     */
+    @Test
+    public void testSeeksMatchPlay() {
+        for (String engine : new String[] { "dense", "sparse", "hashlife" }) {
+            // HashLife runs on an unbounded plane, whose edges do not wrap around
+            GameOfLife game = new GameOfLife(new GameOfLife.Settings(2, 3, 3, 48, 48, !engine.equals("hashlife"), engine));
+            game.setAgeTracking(true);
+            Random random = new Random(9);
+            List<Map<Integer, Integer>> boards = play(game, 3000, random);
+            for (int i = 0; i < 40; i++) {
+                int step = random.nextInt(boards.size());
+                game.stepTo(step);
+                Assertions.assertEquals(boards.get(step), game.getCells(), engine + " at step " + step);
+            }
+            // stepping back one at a time from the end
+            game.stepTo(3000);
+            for (int step = 3000; step > 2700; step--) {
+                Assertions.assertEquals(boards.get(step), game.getCells(), engine + " at step " + step);
+                game.stepBack();
+            }
+        }
+    }
+
+    /**
+     * Stepping back one generation at a time undoes the births, deaths and ages of every generation,
+     * for engines that tell what changed as they step and engines that are compared before and after.
+     */
+    @Test
+    public void testStepBackUndoesGenerations() {
+        GameOfLife.Settings[] settings = {
+                new GameOfLife.Settings(2, 3, 3, 70, 40, true, "dense"),
+                new GameOfLife.Settings(2, 3, 3, 40, 40, false, "sparse"),
+                new GameOfLife.Settings(2, 3, 3, 40, 40, true, "hashmap"),
+                new GameOfLife.Settings(2, 3, 3, 40, 40, false, "hashlife"),
+                new GameOfLife.Settings(2, 3, 3, 40, 40, true, null, "R2,C0,M0,S3..6,B4..5,NM") };
+        for (GameOfLife.Settings setting : settings) {
+            for (boolean ages : new boolean[] { true, false }) {
+                GameOfLife game = new GameOfLife(setting);
+                game.setAgeTracking(ages);
+                Random random = new Random(4);
+                for (int i = 0; i < setting.width() * setting.height() / 3; i++)
+                    game.toggleCell(random.nextInt(setting.width()), random.nextInt(setting.height()));
+                List<Map<Integer, Integer>> boards = play(game, 400, random);
+                for (int step = 400; step > 0; step--) {
+                    Assertions.assertEquals(boards.get(step), game.getCells(), setting + " at step " + step);
+                    game.stepBack();
+                }
+                Assertions.assertEquals(boards.get(0), game.getCells(), setting + " at the start");
+            }
+        }
+    }
+
+    /**
+     * Going back through steps with a cache too small for all of them drops the steps furthest away,
+     * stays under its budget, and still gives the cells and ages of every step.
+     */
+    @Test
+    public void testCacheStaysInBudget() {
+        String previous = System.getProperty("gameoflife.cache.budget");
+        GameOfLife game;
+        try {
+            System.setProperty("gameoflife.cache.budget", "1");
+            game = new GameOfLife(new GameOfLife.Settings(2, 3, 3, 256, 256, true, "sparse"));
+        } finally {
+            if (previous == null)
+                System.clearProperty("gameoflife.cache.budget");
+            else
+                System.setProperty("gameoflife.cache.budget", previous);
+        }
+        game.setAgeTracking(true);
+        Random random = new Random(6);
+        for (int i = 0; i < 256 * 256 / 3; i++)
+            game.toggleCell(random.nextInt(256), random.nextInt(256));
+        List<Map<Integer, Integer>> boards = play(game, 200, random);
+        for (int step = 199; step >= 100; step--) {
+            game.stepTo(step);
+            Assertions.assertEquals(boards.get(step), game.getCells(), "Step " + step);
+        }
+        GameOfLife.CacheStatistics statistics = game.getCacheStatistics();
+        Assertions.assertTrue(statistics.hits() > 0);
+        Assertions.assertTrue(statistics.evictions() > 0);
+        Assertions.assertTrue(statistics.bytes() <= 1 << 20);
+    }
+
+    /**
+     * Going to any step of a logged game reads back the cells and ages it had,
+     * including after going back, toggling cells and playing on, which rewrites the log from there.
+     */
+    @Test
+    public void testLogSeeksMatchPlay(@TempDir Path directory) throws IOException {
+        GameOfLife.Settings[] settings = {
+                new GameOfLife.Settings(2, 3, 3, 48, 48, true, "dense"),
+                new GameOfLife.Settings(2, 3, 3, 48, 48, false, "sparse"),
+                new GameOfLife.Settings(2, 3, 3, 40, 40, true, null, "R2,C0,M0,S3..6,B4..5,NM") };
+        for (GameOfLife.Settings setting : settings) {
+            GameOfLife game = new GameOfLife(setting);
+            game.setAgeTracking(true);
+            Path path = directory.resolve(setting.engine() + ".log");
+            game.startLog(path);
+            Random random = new Random(12);
+            List<Map<Integer, Integer>> boards = play(game, 1000, random);
+            for (int i = 0; i < 40; i++) {
+                int step = random.nextInt(boards.size());
+                game.stepTo(step);
+                Assertions.assertEquals(boards.get(step), game.getCells(), setting + " at step " + step);
+            }
+            game.stepTo(1000);
+            while (game.getStep() > 600)
+                game.stepBack();
+            boards = new ArrayList<>(boards.subList(0, 600));
+            boards.addAll(play(game, 400, random));
+            for (int i = 0; i < 40; i++) {
+                int step = random.nextInt(boards.size());
+                game.stepTo(step);
+                Assertions.assertEquals(boards.get(step), game.getCells(), setting + " at step " + step);
+            }
+            game.stopLog();
+            Assertions.assertTrue(Files.size(path) > 0);
+            Assertions.assertEquals(1000 * Long.BYTES + Long.BYTES, Files.size(directory.resolve(setting.engine() + ".log.idx")));
+        }
+        GameOfLife unbounded = new GameOfLife(new GameOfLife.Settings(2, 3, 3, 40, 40, false, "hashlife"));
+        Assertions.assertThrows(IllegalStateException.class, () -> unbounded.startLog(directory.resolve("hashlife.log")));
+    }
+
+    /**
+     * Toggling a cell after going back throws away what was kept of the old future.
+     */
+    @Test
+    public void testToggleAfterGoingBack() {
+        GameOfLife game = new GameOfLife(new GameOfLife.Settings(2, 3, 3, 40, 40, false));
+        Random random = new Random(12);
+        play(game, 2000, random);
+        game.stepTo(700);
+        game.toggleCell(3, 3);
+        game.toggleCell(4, 3);
+        game.toggleCell(5, 3);
+
+        List<Map<Integer, Integer>> boards = new ArrayList<>();
+        for (int s = 700; s < 2000; s++) {
+            boards.add(game.getCells());
+            game.step();
+        }
+        for (int step : new int[] { 1999, 1500, 701, 1200, 700 }) {
+            game.stepTo(step);
+            Assertions.assertEquals(boards.get(step - 700), game.getCells(), "Step " + step);
+        }
+    }
+
+    /**
+     * A board read from text has no history to play it again from, but going back to its start still finds it.
+     */
+    @Test
+    public void testTextBoardKeepsItsStart() throws IOException {
+        String text = ".....\n..o..\n..o..\n..o..\n.....\n";
+        GameOfLife game = GameOfLife.decodeFromText(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)));
+        Map<Integer, Integer> start = game.getCells();
+        Assertions.assertEquals(3, start.size());
+        for (int s = 0; s < 300; s++)
+            game.step();
+        game.stepTo(0);
+        Assertions.assertEquals(start.keySet(), game.getCells().keySet());
+        game.stepTo(1);
+        Assertions.assertEquals(3, game.getCells().size());
+    }
+
+}
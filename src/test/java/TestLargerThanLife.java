@@ -0,0 +1,127 @@
+import gameoflife.GameOfLife;
+import gameoflife.engine.DenseEngine;
+import gameoflife.engine.LargerThanLifeEngine;
+import gameoflife.engine.LargerThanLifeRule;
+import gameoflife.engine.LifeEngines;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+public class TestLargerThanLife {
+
+    private static GameOfLife.Settings settings(String rulestring, int width, int height, boolean toroidal) {
+        return new GameOfLife.Settings(2, 3, 3, width, height, toroidal, null, rulestring);
+    }
+
+    /**
+     * Compute the next generation by counting every cell in every neighborhood, the slow but obvious way.
+     */
+    private static boolean[] naiveStep(boolean[] cells, GameOfLife.Settings settings) {
+        LargerThanLifeRule rule = settings.largerThanLifeRule();
+        int width = settings.width(), height = settings.height(), r = rule.radius();
+        boolean[] next = new boolean[cells.length];
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                int neighbors = 0;
+                for (int dy = -r; dy <= r; dy++) {
+                    for (int dx = -r; dx <= r; dx++) {
+                        if (rule.neighborhood() == LargerThanLifeRule.Neighborhood.VON_NEUMANN && Math.abs(dx) + Math.abs(dy) > r)
+                            continue;
+                        if (dx == 0 && dy == 0 && !rule.countsMiddle())
+                            continue;
+                        int nx = x + dx, ny = y + dy;
+                        if (settings.toroidal()) {
+                            nx = Math.floorMod(nx, width);
+                            ny = Math.floorMod(ny, height);
+                        } else if (nx < 0 || nx >= width || ny < 0 || ny >= height) {
+                            continue;
+                        }
+                        if (cells[nx + ny * width])
+                            neighbors++;
+                    }
+                }
+                next[x + y * width] = rule.next(cells[x + y * width], neighbors);
+            }
+        }
+        return next;
+    }
+
+    private static void compare(GameOfLife.Settings settings, long seed) {
+        Random random = new Random(seed);
+        boolean[] cells = new boolean[settings.width() * settings.height()];
+        LargerThanLifeEngine engine = new LargerThanLifeEngine(settings);
+        for (int i = 0; i < cells.length; i++) {
+            if (random.nextInt(2) == 0) {
+                cells[i] = true;
+                engine.set(i, true);
+            }
+        }
+        for (int s = 0; s < 10; s++) {
+            cells = naiveStep(cells, settings);
+            engine.step();
+            for (int i = 0; i < cells.length; i++)
+                Assertions.assertEquals(cells[i], engine.isAlive(i), "Cell " + i + " at step " + (s + 1) + " with " + settings);
+        }
+    }
+
+    /**
+     * Both neighborhood shapes, with and without the middle cell, on toroidal and bounded boards,
+     * including a board narrower than its neighborhoods.
+     */
+    @Test
+    public void testMatchesNaive() {
+        String[] rules = {
+                "R5,C0,M1,S34..58,B34..45,NM",
+                "R3,C0,M0,S8..14,B9..12,NM",
+                "R4,C0,M1,S10..20,B11..16,NN",
+                "R2,C0,M0,S3..6,B4..5,NN" };
+        for (String rule : rules) {
+            for (boolean toroidal : new boolean[] { true, false }) {
+                compare(settings(rule, 40, 30, toroidal), rule.hashCode());
+                compare(settings(rule, 7, 33, toroidal), rule.hashCode() + 1);
+            }
+        }
+    }
+
+    /**
+     * A radius 1 square neighborhood is Conway's neighborhood, so it runs like the dense engine.
+     */
+    @Test
+    public void testRadiusOneIsLife() {
+        GameOfLife.Settings settings = settings("R1,C0,M0,S2..3,B3..3,NM", 60, 50, true);
+        LargerThanLifeEngine engine = new LargerThanLifeEngine(settings);
+        DenseEngine dense = new DenseEngine(new GameOfLife.Settings(2, 3, 3, 60, 50, true));
+        Random random = new Random(3);
+        for (int i = 0; i < 1000; i++) {
+            int index = random.nextInt(3000);
+            engine.toggle(index);
+            dense.toggle(index);
+        }
+        for (int s = 0; s < 100; s++) {
+            engine.step();
+            dense.step();
+            for (int i = 0; i < 3000; i++)
+                Assertions.assertEquals(dense.isAlive(i), engine.isAlive(i));
+        }
+    }
+
+    @Test
+    public void testParse() {
+        LargerThanLifeRule bosco = LargerThanLifeRule.parse("r5,c0,m1,s34..58,b34..45,nm");
+        Assertions.assertEquals("R5,C0,M1,S34..58,B34..45,NM", bosco.toString());
+        Assertions.assertEquals(LargerThanLifeRule.Neighborhood.MOORE, bosco.neighborhood());
+        Assertions.assertEquals(bosco, LargerThanLifeRule.parse("R5,M1,S34..58,B34..45"));
+        Assertions.assertEquals("R2,C0,M0,S3..6,B4..5,NN", LargerThanLifeRule.parse("R2,C2,S3..6,B4..5,NN").toString());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> LargerThanLifeRule.parse("R5,C3,M1,S34..58,B34..45,NM"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> LargerThanLifeRule.parse("R0,C0,M1,S34..58,B34..45,NM"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> LargerThanLifeRule.parse("R5,S34,B34"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> settings("R5,S1..2", 10, 10, true));
+
+        GameOfLife.Settings settings = settings("R5,C0,M1,S34..58,B34..45,NM", 10, 10, true);
+        Assertions.assertTrue(settings.isLargerThanLife());
+        Assertions.assertInstanceOf(LargerThanLifeEngine.class, LifeEngines.create(settings));
+        Assertions.assertEquals(bosco.toString(), settings.describeRule());
+    }
+
+}
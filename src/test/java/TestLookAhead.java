@@ -0,0 +1,61 @@
+import gameoflife.GameOfLife;
+import gameoflife.LookAhead;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+public class TestLookAhead {
+
+    /**
+     * Stepping with generations worked out ahead gives the same cells and ages as stepping one at a time,
+     * with cells toggled and steps gone back now and then, which throw away what was worked out.
+     */
+    @Test
+    public void testMatchesStepping() throws InterruptedException {
+        for (String engine : new String[] { "dense", "sparse", "hashlife", "infinite" }) {
+            // the unbounded engines have no edges to wrap around
+            boolean toroidal = !engine.equals("hashlife") && !engine.equals("infinite");
+            GameOfLife.Settings settings = new GameOfLife.Settings(2, 3, 3, 64, 64, toroidal, engine);
+            GameOfLife ahead = new GameOfLife(settings), stepped = new GameOfLife(settings);
+            ahead.setAgeTracking(true);
+            stepped.setAgeTracking(true);
+            Random random = new Random(3);
+            for (int i = 0; i < 64 * 64 / 3; i++) {
+                int x = random.nextInt(64), y = random.nextInt(64);
+                ahead.toggleCell(x, y);
+                stepped.toggleCell(x, y);
+            }
+            // look ahead of even the fastest generations
+            String previous = System.getProperty(LookAhead.MIN_NANOS_PROPERTY);
+            LookAhead lookAhead;
+            try {
+                System.setProperty(LookAhead.MIN_NANOS_PROPERTY, "0");
+                lookAhead = new LookAhead(ahead, 4);
+            } finally {
+                if (previous == null)
+                    System.clearProperty(LookAhead.MIN_NANOS_PROPERTY);
+                else
+                    System.setProperty(LookAhead.MIN_NANOS_PROPERTY, previous);
+            }
+            try (lookAhead) {
+                for (int s = 0; s < 500; s++) {
+                    if (random.nextInt(40) == 0) {
+                        int x = random.nextInt(64), y = random.nextInt(64);
+                        ahead.toggleCell(x, y);
+                        stepped.toggleCell(x, y);
+                    }
+                    if (random.nextInt(60) == 0) {
+                        ahead.stepBack();
+                        stepped.stepBack();
+                    }
+                    lookAhead.step();
+                    stepped.step();
+                    Assertions.assertEquals(stepped.getStep(), ahead.getStep());
+                    Assertions.assertEquals(stepped.getCells(), ahead.getCells(), engine + " at step " + ahead.getStep());
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,84 @@
+import gameoflife.GameOfLife;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+public class TestRle {
+
+    /**
+     * A glider as other Life programs write it, with comments, a rule and a row with no live cells at its end.
+     */
+    @Test
+    public void testReadGlider() throws IOException {
+        String pattern = """
+                #N Glider
+                #C A comment
+                x = 5, y = 4, rule = B3/S23
+                bo$2bo$3o2$!
+                """;
+        GameOfLife game = GameOfLife.decodeFromRle(new StringReader(pattern));
+        Assertions.assertEquals(5, game.width());
+        Assertions.assertEquals(4, game.height());
+        Assertions.assertEquals("B3/S23", game.getSettings().describeRule());
+        Assertions.assertEquals(Set.of(1, 7, 10, 11, 12), game.getCells().keySet());
+
+        // the same pattern is told apart from the other formats by how it starts
+        GameOfLife decoded = GameOfLife.decode(new ByteArrayInputStream(pattern.getBytes(StandardCharsets.UTF_8)));
+        Assertions.assertEquals(game.getCells(), decoded.getCells());
+    }
+
+    /**
+     * Writing a game and reading it back gives the same board, size, rules and edges,
+     * with the lines no longer than the format allows.
+     */
+    @Test
+    public void testRoundTrip() throws IOException {
+        for (String rule : new String[] { "B36/S23", "R2,C0,M1,S3..5,B3..4,NM" }) {
+            for (boolean toroidal : new boolean[] { true, false }) {
+                GameOfLife game = new GameOfLife(new GameOfLife.Settings(2, 3, 3, 300, 200, toroidal, null, rule));
+                Random random = new Random(rule.length());
+                for (int i = 0; i < 300 * 200 / 4; i++)
+                    game.toggleCell(random.nextInt(300), random.nextInt(150));
+                // a long run and a row reaching the right edge
+                for (int x = 100; x < 300; x++)
+                    game.toggleCell(x, 160);
+
+                StringWriter output = new StringWriter();
+                game.encodeIntoRle(output);
+                for (String line : output.toString().split("\n"))
+                    Assertions.assertTrue(line.length() <= 70 || line.startsWith("x"), line);
+
+                GameOfLife loaded = GameOfLife.decodeFromRle(new StringReader(output.toString()));
+                Assertions.assertEquals(300, loaded.width());
+                Assertions.assertEquals(200, loaded.height());
+                Assertions.assertEquals(toroidal, loaded.getSettings().toroidal());
+                Assertions.assertEquals(game.getSettings().describeRule(), loaded.getSettings().describeRule());
+                Assertions.assertEquals(game.getCells(), loaded.getCells());
+            }
+        }
+    }
+
+    /**
+     * Patterns larger than the limit, with cells outside their header's size, or that are not patterns, are not loaded.
+     */
+    @Test
+    public void testRejectBadPatterns() {
+        Assertions.assertThrows(IOException.class, () -> GameOfLife.decodeFromRle(new StringReader("x = 5000, y = 5000\n!"), 1 << 20));
+        Assertions.assertThrows(IOException.class, () -> GameOfLife.decodeFromRle(new StringReader("x = 3, y = 3\n4o!")));
+        Assertions.assertThrows(IOException.class, () -> GameOfLife.decodeFromRle(new StringReader("x = 3, y = 3\no$o$o$o!")));
+        Assertions.assertThrows(IOException.class, () -> GameOfLife.decodeFromRle(new StringReader("x = 3, y = 3\n99999999999999999o!")));
+        Assertions.assertThrows(IOException.class, () -> GameOfLife.decodeFromRle(new StringReader("x = 3, y = 3\no%o!")));
+        Assertions.assertThrows(IOException.class, () -> GameOfLife.decodeFromRle(new StringReader("x = 3, y = 3, rule = B9/S23\no!")));
+        Assertions.assertThrows(IOException.class, () -> GameOfLife.decodeFromRle(new StringReader("#C no header\n")));
+        Assertions.assertEquals(Map.of(0, 0), Assertions.assertDoesNotThrow(() -> GameOfLife.decodeFromRle(new StringReader("x = 3, y = 3\no"))).getCells());
+    }
+
+}
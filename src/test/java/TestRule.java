@@ -0,0 +1,55 @@
+import gameoflife.GameOfLife;
+import gameoflife.engine.Rule;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+public class TestRule {
+
+    /**
+     * Rulestrings are read in any of the usual notations, and written the same way every time.
+     */
+    @Test
+    public void testParse() {
+        Assertions.assertEquals(Rule.CONWAY, Rule.parse("B3/S23"));
+        Assertions.assertEquals(Rule.CONWAY, Rule.parse("b3s23"));
+        Assertions.assertEquals(Rule.CONWAY, Rule.parse("S23/B3"));
+        Assertions.assertEquals(Rule.CONWAY, Rule.parse("23/3"));
+        Assertions.assertEquals(Rule.CONWAY, Rule.of(2, 3, 3));
+        Assertions.assertEquals("B36/S23", Rule.parse(" s32/b63 ").toString());
+        Assertions.assertEquals("B2/S", Rule.parse("B2/S").toString());
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Rule.parse("B9/S23"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> Rule.parse("Conway"));
+        Assertions.assertThrows(IllegalArgumentException.class, () -> new GameOfLife.Settings(2, 3, 3, 5, 5, true, null, "nope"));
+    }
+
+    /**
+     * The neighborhood table agrees with counting the neighbors.
+     */
+    @Test
+    public void testTable() {
+        Rule rule = Rule.parse("B36/S23");
+        for (int neighborhood = 0; neighborhood < 512; neighborhood++) {
+            boolean alive = (neighborhood & (1 << 4)) != 0;
+            int neighbors = Integer.bitCount(neighborhood) - (alive ? 1 : 0);
+            Assertions.assertEquals(rule.next(alive, neighbors), rule.next(neighborhood));
+        }
+    }
+
+    /**
+     * The rulestring is kept when a game is saved and loaded again.
+     */
+    @Test
+    public void testSaved() throws IOException {
+        GameOfLife game = new GameOfLife(new GameOfLife.Settings(2, 3, 3, 10, 10, true, null, "B36/S23"));
+        game.toggleCell(1, 1);
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        game.encodeIntoBytes(output);
+        GameOfLife loaded = GameOfLife.decodeFromBytes(new ByteArrayInputStream(output.toByteArray()));
+        Assertions.assertEquals(Rule.parse("B36/S23"), loaded.getSettings().rule());
+    }
+
+}
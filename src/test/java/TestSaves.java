@@ -0,0 +1,239 @@
+import gameoflife.GameOfLife;
+import gameoflife.engine.AgePlane;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Random;
+
+public class TestSaves {
+
+    private static byte[] save(GameOfLife game) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        game.encodeIntoBytes(output);
+        return output.toByteArray();
+    }
+
+    private static GameOfLife load(byte[] save) throws IOException {
+        return GameOfLife.decode(new ByteArrayInputStream(save));
+    }
+
+    /**
+     * A game played with toggles along the way, and gone back in, is loaded at the same step with the same cells and ages,
+     * and the history played again from it matches the game it was saved from.
+     */
+    @Test
+    public void testRoundTrip() throws IOException {
+        // a few cells are written as runs, a soup as a bit for every cell
+        for (int fill : new int[] { 50, 3 }) {
+            GameOfLife game = new GameOfLife(new GameOfLife.Settings(2, 3, 3, 80, 60, true, "dense", "B36/S23"));
+            game.setAgeTracking(true);
+            Random random = new Random(fill);
+            for (int i = 0; i < 80 * 60 / fill; i++)
+                game.toggleCell(random.nextInt(80), random.nextInt(60));
+            for (int s = 0; s < 200; s++) {
+                if (s % 40 == 7)
+                    for (int i = 0; i < 30; i++)
+                        game.toggleCell(random.nextInt(80), random.nextInt(60));
+                game.step();
+            }
+
+            GameOfLife loaded = load(save(game));
+            Assertions.assertEquals(game.getSettings(), loaded.getSettings());
+            Assertions.assertEquals(200, loaded.getStep());
+            Assertions.assertTrue(loaded.isAgeTracking());
+            Assertions.assertEquals(game.getCells(), loaded.getCells());
+            for (long step : new long[] { 0, 7, 48, 130 }) {
+                game.stepTo(step);
+                loaded.stepTo(step);
+                Assertions.assertEquals(game.getCells().keySet(), loaded.getCells().keySet(), "Step " + step);
+            }
+        }
+    }
+
+    /**
+     * Only the toggles of an unbounded game are saved, and the plane is played again from them,
+     * including the cells toggled far off the board.
+     */
+    @Test
+    public void testUnboundedRoundTrip() throws IOException {
+        GameOfLife game = new GameOfLife(new GameOfLife.Settings(2, 3, 3, 40, 40, false, "infinite"));
+        for (long[] cell : new long[][] { { 1, 0 }, { 2, 1 }, { 0, 2 }, { 1, 2 }, { 2, 2 }, { -5000000000L, 7 }, { -4999999999L, 7 }, { -4999999998L, 7 } })
+            game.toggleCell(cell[0], cell[1]);
+        for (int s = 0; s < 50; s++)
+            game.step();
+        game.toggleCell(30L, 30L);
+
+        GameOfLife loaded = load(save(game));
+        Assertions.assertEquals(50, loaded.getStep());
+        Assertions.assertEquals(game.getCells(), loaded.getCells());
+        long[] count = { 0, 0 };
+        game.forEachLiveCell(-5000000001L, 5, -4999999997L, 10, (x, y) -> count[0]++);
+        loaded.forEachLiveCell(-5000000001L, 5, -4999999997L, 10, (x, y) -> count[1]++);
+        Assertions.assertEquals(3, count[0]);
+        Assertions.assertEquals(count[0], count[1]);
+    }
+
+    /**
+     * Saves from before the format had versions are still read, and written again in the new format.
+     */
+    @Test
+    public void testLegacySaves() throws IOException {
+        for (String example : new String[] { "examples/Glider Gun/file.gol", "examples/Glider/file.gol", "examples/Pulsar/pulsar.gol" }) {
+            GameOfLife game;
+            try (InputStream input = Files.newInputStream(Path.of(example))) {
+                game = GameOfLife.decode(input);
+            }
+            Assertions.assertFalse(game.getCells().isEmpty(), example);
+            byte[] save = save(game);
+            Assertions.assertEquals(1, save[GameOfLife.FILE_SIGNATURE.length]);
+            GameOfLife loaded = load(save);
+            Assertions.assertEquals(game.getSettings(), loaded.getSettings());
+            Assertions.assertEquals(game.getCells(), loaded.getCells());
+        }
+    }
+
+    /**
+     * Play a game with toggles now and then for long enough to take keyframes, and save it with them to a file.
+     */
+    private static GameOfLife playAndSave(Path file) throws IOException {
+        GameOfLife game = new GameOfLife(new GameOfLife.Settings(2, 3, 3, 96, 96, true, "dense"));
+        game.setAgeTracking(true);
+        Random random = new Random(11);
+        for (int i = 0; i < 96 * 96 / 3; i++)
+            game.toggleCell(random.nextInt(96), random.nextInt(96));
+        for (int s = 0; s < 3000; s++) {
+            if (random.nextInt(150) == 0)
+                for (int i = 0; i < 20; i++)
+                    game.toggleCell(random.nextInt(96), random.nextInt(96));
+            game.step();
+        }
+        try (OutputStream output = Files.newOutputStream(file)) {
+            game.encodeIntoBytes(output, true);
+        }
+        return game;
+    }
+
+    /**
+     * A game opened from a save with keyframes goes back to the same cells and ages as the game it was saved from,
+     * and keeps doing so after toggling cells, which drops the saved keyframes after them, and after being saved again.
+     */
+    @Test
+    public void testSavedKeyframes(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("game.gol");
+        GameOfLife game = playAndSave(file);
+        Assertions.assertEquals(2, Files.readAllBytes(file)[GameOfLife.FILE_SIGNATURE.length]);
+
+        GameOfLife loaded = GameOfLife.decodeFromFile(file);
+        Assertions.assertEquals(game.getCells(), loaded.getCells());
+        // the keyframes after the history are skipped when reading from a stream
+        try (InputStream input = Files.newInputStream(file)) {
+            Assertions.assertEquals(game.getCells(), GameOfLife.decode(input).getCells());
+        }
+        for (long step : new long[] { 2999, 2998, 2500, 1234, 1, 0, 2100 }) {
+            game.stepTo(step);
+            loaded.stepTo(step);
+            Assertions.assertEquals(game.getCells(), loaded.getCells(), "Step " + step);
+        }
+
+        for (GameOfLife g : new GameOfLife[] { game, loaded }) {
+            g.stepTo(1500);
+            g.toggleCell(5, 5);
+            g.toggleCell(6, 5);
+            for (int s = 0; s < 200; s++)
+                g.step();
+        }
+        game.stepTo(2600);
+        loaded.stepTo(2600);
+        Assertions.assertEquals(game.getCells(), loaded.getCells());
+
+        // saving over the file the game was opened from keeps its keyframes, as the window does it
+        Path temporary = directory.resolve("game.gol.tmp");
+        try (OutputStream output = Files.newOutputStream(temporary)) {
+            loaded.encodeIntoBytes(output, true);
+        }
+        Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING);
+        GameOfLife reloaded = GameOfLife.decodeFromFile(file);
+        for (long step : new long[] { 1000, 1499, 1600, 0 }) {
+            game.stepTo(step);
+            reloaded.stepTo(step);
+            Assertions.assertEquals(game.getCells(), reloaded.getCells(), "Step " + step);
+        }
+    }
+
+    /**
+     * A game whose save file has changed since it was opened replays the steps rather than reading keyframes
+     * that are no longer there.
+     */
+    @Test
+    public void testChangedSaveFile(@TempDir Path directory) throws IOException {
+        Path file = directory.resolve("game.gol");
+        GameOfLife game = playAndSave(file);
+        GameOfLife loaded = GameOfLife.decodeFromFile(file);
+        Files.write(file, new byte[] { 1, 2, 3 });
+        game.stepTo(2000);
+        loaded.stepTo(2000);
+        Assertions.assertEquals(game.getCells(), loaded.getCells());
+
+        Files.delete(file);
+        game.stepTo(700);
+        loaded.stepTo(700);
+        Assertions.assertEquals(game.getCells(), loaded.getCells());
+    }
+
+    /**
+     * Saves that were cut short or are of a version that does not exist yet are not loaded.
+     */
+    @Test
+    public void testRejectBadSaves() throws IOException {
+        GameOfLife game = new GameOfLife(new GameOfLife.Settings(2, 3, 3, 30, 30, true));
+        for (int i = 0; i < 30; i++)
+            game.toggleCell(i, i);
+        byte[] save = save(game);
+        Assertions.assertThrows(EOFException.class, () -> load(Arrays.copyOf(save, save.length - 1)));
+        save[GameOfLife.FILE_SIGNATURE.length] = 99;
+        Assertions.assertThrows(IOException.class, () -> load(save));
+    }
+
+    /**
+     * A board of runs changed to put a cell off the board, or to give a cell an age it cannot have,
+     * is rejected on an engine that would take cells anywhere, rather than loaded with them.
+     */
+    @Test
+    public void testRejectTamperedBoard() throws IOException {
+        GameOfLife game = new GameOfLife(new GameOfLife.Settings(2, 3, 3, 10, 10, false, "sparse"));
+        game.toggleCell(9, 9);
+        // the board's length, then 1 live cell without ages, 99 cells before it and a run of 1
+        byte[] save = save(game);
+        int board = indexOf(save, new byte[] { 4, 1, 0, 99, 1 });
+        save[board + 3] = 100;
+        Assertions.assertThrows(IOException.class, () -> load(save));
+
+        game.setAgeTracking(true);
+        byte[] aged = save(game);
+        int ages = indexOf(aged, new byte[] { 6, 1, 1, 99, 1, 0, 1 });
+        load(aged);
+        aged[ages + 5] = (byte) (AgePlane.MAX_AGE + 1);
+        Assertions.assertThrows(IOException.class, () -> load(aged));
+        Assertions.assertThrows(IOException.class, () -> load(Arrays.copyOf(aged, ages + 5)));
+    }
+
+    private static int indexOf(byte[] bytes, byte[] pattern) {
+        for (int i = 0; i + pattern.length <= bytes.length; i++) {
+            if (Arrays.equals(bytes, i, i + pattern.length, pattern, 0, pattern.length))
+                return i;
+        }
+        throw new AssertionError("The pattern is not in the save");
+    }
+
+}
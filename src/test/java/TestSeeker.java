@@ -0,0 +1,115 @@
+import gameoflife.GameOfLife;
+import gameoflife.Seeker;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+public class TestSeeker {
+
+    private static final int STEPS = 2000;
+
+    /**
+     * Play a soup with cells toggled now and then, so going back replays from keyframes, and keep every step's cells.
+     */
+    private static List<Map<Integer, Integer>> play(GameOfLife game) {
+        game.setAgeTracking(true);
+        Random random = new Random(5);
+        for (int i = 0; i < 96 * 96 / 3; i++)
+            game.toggleCell(random.nextInt(96), random.nextInt(96));
+        List<Map<Integer, Integer>> boards = new ArrayList<>();
+        for (int s = 0; s < STEPS; s++) {
+            if (random.nextInt(100) == 0)
+                for (int i = 0; i < 20; i++)
+                    game.toggleCell(random.nextInt(96), random.nextInt(96));
+            boards.add(game.getCells());
+            game.step();
+        }
+        boards.add(game.getCells());
+        return boards;
+    }
+
+    /**
+     * A seek reaches the step, with the cells it had, and tells how far it has got along the way.
+     */
+    @Test
+    public void testSeekMatchesPlay() throws InterruptedException, ExecutionException {
+        GameOfLife game = new GameOfLife(new GameOfLife.Settings(2, 3, 3, 96, 96, true, "dense"));
+        List<Map<Integer, Integer>> boards = play(game);
+        Object lock = new Object();
+        try (Seeker seeker = new Seeker(game, lock)) {
+            Random random = new Random(8);
+            for (int i = 0; i < 20; i++) {
+                long step = random.nextInt(STEPS + 1);
+                long[] last = { -1, -1 };
+                long reached = seeker.seek(step, (done, total) -> {
+                    Assertions.assertTrue(done >= last[0] && done < total);
+                    last[0] = done;
+                    last[1] = total;
+                }).get();
+                Assertions.assertEquals(step, reached);
+                synchronized (lock) {
+                    Assertions.assertEquals(boards.get((int) step), game.getCells(), "Step " + step);
+                }
+            }
+            Assertions.assertFalse(seeker.isSeeking());
+        }
+    }
+
+    /**
+     * Seeks asked for one after another without waiting only go to the last one,
+     * and the ones before are either done or cancelled, leaving the game at a step like any other.
+     */
+    @Test
+    public void testNewestSeekWins() throws InterruptedException, ExecutionException {
+        GameOfLife game = new GameOfLife(new GameOfLife.Settings(2, 3, 3, 96, 96, true, "dense"));
+        List<Map<Integer, Integer>> boards = play(game);
+        Object lock = new Object();
+        try (Seeker seeker = new Seeker(game, lock)) {
+            List<CompletableFuture<Long>> seeks = new ArrayList<>();
+            for (long step = 100; step <= 1900; step += 200)
+                seeks.add(seeker.seek(step, null));
+            Assertions.assertEquals(1900, seeks.get(seeks.size() - 1).get());
+            for (CompletableFuture<Long> seek : seeks)
+                Assertions.assertTrue(seek.isDone());
+            Assertions.assertEquals(boards.get(1900), game.getCells());
+
+            // a seek stopped halfway leaves the game at a step it passed through
+            CompletableFuture<Long> stopped = seeker.seek(999, (done, total) -> {
+                if (done > 0)
+                    seeker.cancel();
+            });
+            Assertions.assertThrows(CancellationException.class, stopped::join);
+            synchronized (lock) {
+                Assertions.assertEquals(boards.get(Math.toIntExact(game.getStep())), game.getCells(), "Step " + game.getStep());
+            }
+        }
+    }
+
+    /**
+     * Steps back asked for while one is waiting add up rather than replace each other.
+     */
+    @Test
+    public void testStepsBackAddUp() throws InterruptedException, ExecutionException {
+        GameOfLife game = new GameOfLife(new GameOfLife.Settings(2, 3, 3, 96, 96, true, "dense"));
+        List<Map<Integer, Integer>> boards = play(game);
+        Object lock = new Object();
+        try (Seeker seeker = new Seeker(game, lock)) {
+            CompletableFuture<Long> back = null;
+            synchronized (lock) {
+                // the worker may take the first before waiting for the lock, but the rest wait together
+                for (int i = 0; i < 5; i++)
+                    back = seeker.stepBack(null);
+            }
+            Assertions.assertEquals(STEPS - 5, back.get());
+            Assertions.assertEquals(boards.get(STEPS - 5), game.getCells());
+        }
+    }
+
+}
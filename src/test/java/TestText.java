@@ -0,0 +1,80 @@
+import gameoflife.GameOfLife;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+
+public class TestText {
+
+    private static GameOfLife read(String text) throws IOException {
+        return GameOfLife.decodeFromText(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    private static String write(GameOfLife game, boolean crop) throws IOException {
+        ByteArrayOutputStream output = new ByteArrayOutputStream();
+        game.encodeIntoText(output, crop);
+        return output.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * The empty rows at the bottom are left out, but the board is read back at its size with the same cells.
+     */
+    @Test
+    public void testRoundTrip() throws IOException {
+        GameOfLife game = new GameOfLife(new GameOfLife.Settings(2, 3, 3, 120, 90, true));
+        Random random = new Random(3);
+        for (int i = 0; i < 120 * 40 / 3; i++)
+            game.toggleCell(random.nextInt(120), random.nextInt(40));
+        game.toggleCell(119, 50);
+
+        String text = write(game, false);
+        Assertions.assertEquals(51 + 1, text.split("\n").length);
+        GameOfLife loaded = read(text);
+        Assertions.assertEquals(120, loaded.width());
+        Assertions.assertEquals(90, loaded.height());
+        Assertions.assertEquals(game.getCells(), loaded.getCells());
+
+        // an empty board is only its size
+        GameOfLife empty = read(write(new GameOfLife(new GameOfLife.Settings(2, 3, 3, 7, 5, true)), false));
+        Assertions.assertEquals(7, empty.width());
+        Assertions.assertEquals(5, empty.height());
+        Assertions.assertEquals(0, empty.getCells().size());
+    }
+
+    /**
+     * A cropped board is only the rectangle holding its live cells.
+     */
+    @Test
+    public void testCrop() throws IOException {
+        GameOfLife game = new GameOfLife(new GameOfLife.Settings(2, 3, 3, 40, 30, true));
+        game.toggleCell(11, 10);
+        game.toggleCell(12, 11);
+        game.toggleCell(10, 12);
+        game.toggleCell(11, 12);
+        game.toggleCell(12, 12);
+        Assertions.assertEquals(".o.\n..o\nooo\n", write(game, true));
+
+        GameOfLife loaded = read(write(game, true));
+        Assertions.assertEquals(3, loaded.width());
+        Assertions.assertEquals(3, loaded.height());
+        Assertions.assertEquals(Set.of(1, 5, 6, 7, 8), loaded.getCells().keySet());
+    }
+
+    /**
+     * Plaintext patterns from other programs, with comments and rows of different lengths, are read.
+     */
+    @Test
+    public void testReadPlaintext() throws IOException {
+        GameOfLife game = read("!Name: Blinker\r\n!\r\n.o\r\n.o\r\n.o.\r\n");
+        Assertions.assertEquals(3, game.width());
+        Assertions.assertEquals(3, game.height());
+        Assertions.assertEquals(Map.of(1, 0, 4, 0, 7, 0), game.getCells());
+    }
+
+}
@@ -0,0 +1,32 @@
+package gameoflife;
+
+import gameoflife.engine.LifeEngine;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+public class TestKeyframes {
+
+    /**
+     * Clearing the keyframes forgets the interval that thinning and slow generations pushed up,
+     * so a game that is cleared takes keyframes as often as a new one.
+     */
+    @Test
+    public void testClearResetsInterval() {
+        LifeEngine engine = new GameOfLife(new GameOfLife.Settings(2, 3, 3, 10, 10, true)).getEngine();
+        GameOfLife.Snapshot snapshot = new GameOfLife.Snapshot(engine.copy(), null);
+        Keyframes keyframes = new Keyframes(snapshot.memoryEstimate() * 2);
+        long initial = keyframes.interval();
+        for (long step = 0; step < 64; step += initial)
+            keyframes.put(step, new GameOfLife.Snapshot(engine.copy(), null));
+        Assertions.assertTrue(keyframes.interval() > initial);
+        keyframes.measure(1, 1);
+
+        keyframes.clear();
+        Assertions.assertEquals(initial, keyframes.interval());
+        Assertions.assertTrue(keyframes.frames().isEmpty());
+        // the first measurement after clearing is not averaged with the fast generations from before
+        keyframes.measure(1, Keyframes.TARGET_REPLAY_NANOS / 64);
+        Assertions.assertEquals(64, keyframes.interval());
+    }
+
+}
@@ -0,0 +1,100 @@
+package gameoflife.engine;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorSpecies;
+
+import static jdk.incubator.vector.VectorOperators.LSHL;
+import static jdk.incubator.vector.VectorOperators.LSHR;
+import static jdk.incubator.vector.VectorOperators.XOR;
+
+/**
+ * Computes whole vectors of words at once with the incubating Vector API, using the same
+ * full adders as {@link BitRule}, so every lane holds 64 cells.
+ * <p>
+ * This class is kept out of src/main/java, so the program compiles without the module,
+ * and is compiled on its own into the same output when vector instructions are wanted.
+ * It is only loaded when the jdk.incubator.vector module is present
+ * (the program is started with {@code --add-modules jdk.incubator.vector}),
+ * otherwise boards are stepped one word at a time.
+ */
+final class VectorKernel implements RowKernel {
+
+    private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+
+    /**
+     * The neighbor counts that keep a live cell alive and also bring a dead cell to life,
+     * the ones that only keep a live cell alive, and the ones that only bring a dead cell to life.
+     */
+    private final int[] either, surviveOnly, birthOnly;
+    /**
+     * If the rules are Conway's (survive on 2 or 3, born on 3), which have a shorter formula.
+     */
+    private final boolean conway;
+
+    VectorKernel(BitRule rule) {
+        this.either = rule.either;
+        this.surviveOnly = rule.surviveOnly;
+        this.birthOnly = rule.birthOnly;
+        this.conway = rule.conway;
+    }
+
+    /**
+     * @return true if the hardware can work on more than one word at once, otherwise this kernel is no faster.
+     */
+    static boolean isUseful() {
+        return SPECIES.length() > 1;
+    }
+
+    /**
+     * Everything is written out in this one method: vectors only stay in registers when every call
+     * on them is inlined, and splitting the work into methods of its own goes over the JIT's inlining limits.
+     */
+    @Override
+    public int step(long[] cells, long[] next, int above, int row, int below, int from, int to) {
+        int lanes = SPECIES.length();
+        int w = from;
+        for (; w + lanes <= to; w += lanes) {
+            LongVector a = LongVector.fromArray(SPECIES, cells, above + w);
+            LongVector c = LongVector.fromArray(SPECIES, cells, row + w);
+            LongVector b = LongVector.fromArray(SPECIES, cells, below + w);
+
+            // the neighbors to the west (x - 1) and east (x + 1), carrying bits over from the words next to each lane
+            LongVector aw = a.lanewise(LSHL, 1).or(LongVector.fromArray(SPECIES, cells, above + w - 1).lanewise(LSHR, 63));
+            LongVector cw = c.lanewise(LSHL, 1).or(LongVector.fromArray(SPECIES, cells, row + w - 1).lanewise(LSHR, 63));
+            LongVector bw = b.lanewise(LSHL, 1).or(LongVector.fromArray(SPECIES, cells, below + w - 1).lanewise(LSHR, 63));
+            LongVector ae = a.lanewise(LSHR, 1).or(LongVector.fromArray(SPECIES, cells, above + w + 1).lanewise(LSHL, 63));
+            LongVector ce = c.lanewise(LSHR, 1).or(LongVector.fromArray(SPECIES, cells, row + w + 1).lanewise(LSHL, 63));
+            LongVector be = b.lanewise(LSHR, 1).or(LongVector.fromArray(SPECIES, cells, below + w + 1).lanewise(LSHL, 63));
+
+            // add the row above, the row below, and the two side neighbors
+            LongVector s1 = aw.lanewise(XOR, a).lanewise(XOR, ae), c1 = aw.and(a).or(ae.and(aw.lanewise(XOR, a)));
+            LongVector s2 = bw.lanewise(XOR, b).lanewise(XOR, be), c2 = bw.and(b).or(be.and(bw.lanewise(XOR, b)));
+            LongVector s3 = cw.lanewise(XOR, ce), c3 = cw.and(ce);
+
+            // combine the partial sums into a 4 bit count per cell
+            LongVector bit0 = s1.lanewise(XOR, s2).lanewise(XOR, s3), k = s1.and(s2).or(s3.and(s1.lanewise(XOR, s2)));
+            LongVector t0 = c1.lanewise(XOR, c2).lanewise(XOR, c3), t1 = c1.and(c2).or(c3.and(c1.lanewise(XOR, c2)));
+            LongVector bit1 = t0.lanewise(XOR, k), u = t0.and(k);
+            LongVector bit2 = t1.lanewise(XOR, u), bit3 = t1.and(u);
+
+            LongVector result;
+            if (conway) {
+                result = bit1.and(bit2.or(bit3).not()).and(bit0.or(c));
+            } else {
+                // see BitRule for how the counts are told apart
+                LongVector low = bit2.or(bit3).not();
+                LongVector kept = LongVector.zero(SPECIES), survived = kept, born = kept;
+                for (int n : either)
+                    kept = kept.or(n == 8 ? bit3 : ((n & 1) != 0 ? bit0 : bit0.not()).and((n & 2) != 0 ? bit1 : bit1.not()).and(n < 4 ? low : bit2));
+                for (int n : surviveOnly)
+                    survived = survived.or(n == 8 ? bit3 : ((n & 1) != 0 ? bit0 : bit0.not()).and((n & 2) != 0 ? bit1 : bit1.not()).and(n < 4 ? low : bit2));
+                for (int n : birthOnly)
+                    born = born.or(n == 8 ? bit3 : ((n & 1) != 0 ? bit0 : bit0.not()).and((n & 2) != 0 ? bit1 : bit1.not()).and(n < 4 ? low : bit2));
+                result = kept.or(c.and(survived)).or(c.not().and(born));
+            }
+            result.intoArray(next, row + w);
+        }
+        return w;
+    }
+
+}